@@ -0,0 +1,33 @@
+package com.qubular.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with allocation profiling enabled and writes JSON results that can be compared against
+ * baseline/results.json. Any of the usual JMH command line options may be supplied to override the defaults, e.g.
+ * <pre>java -jar target/benchmarks.jar FeatureDeserializationBenchmark -rf json -rff my-results.json</pre>
+ * baseline/results.json was recorded with a short run of every benchmark that runs from the jar:
+ * <pre>java -jar target/benchmarks.jar -wi 2 -i 3 -f 1 -w 1s -r 1s -rff baseline/results.json</pre>
+ * openHAB core is not bundled in the jar, so ChannelTypeUtilBenchmark is not in the baseline. It needs the
+ * org.openhab.core and org.openhab.core.thing jars added to the class path, e.g.
+ * <pre>java -cp target/benchmarks.jar:org.openhab.core.jar:org.openhab.core.thing.jar com.qubular.benchmarks.BenchmarkRunner ChannelTypeUtilBenchmark -wi 2 -i 3 -f 1 -w 1s -r 1s -rff channel-type-results.json</pre>
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLineOptions.getResult().orElse("target/results.json"))
+                .build();
+        new Runner(options).run();
+    }
+}
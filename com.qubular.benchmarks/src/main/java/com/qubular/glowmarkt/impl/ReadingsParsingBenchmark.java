@@ -0,0 +1,42 @@
+package com.qubular.glowmarkt.impl;
+
+import com.qubular.glowmarkt.ResourceData;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadingsParsingBenchmark {
+    /** Number of readings in the response, 48 is one day of PT30M readings, 480 is the 10 day maximum */
+    @Param({"48", "480"})
+    public int readings;
+
+    private final GlowmarktServiceImpl glowmarktService = new GlowmarktServiceImpl();
+    private String responseContent;
+
+    @Setup
+    public void setUp() {
+        long start = Instant.parse("2022-10-01T00:00:00Z").getEpochSecond();
+        StringBuilder sb = new StringBuilder("{\"status\":\"OK\",\"name\":\"electricity consumption\",\"resourceTypeId\":\"e3a5db34-6e0c-4221-9653-8d33e27511ba\",\"resourceId\":\"3b89d1b5-2a2d-4b4e-9a7e-7d8b5ae8d4c3\",\"query\":{\"from\":\"2022-10-01T00:00:00\",\"to\":\"2022-10-11T00:00:00\",\"period\":\"PT30M\",\"function\":\"sum\"},\"data\":[");
+        for (int i = 0; i < readings; ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('[').append(start + i * 1800L).append(',').append(0.1 + (i % 17) * 0.013).append(']');
+        }
+        sb.append("],\"units\":\"kWh\"}");
+        responseContent = sb.toString();
+    }
+
+    @Benchmark
+    public List<ResourceData> parseReadings() {
+        return glowmarktService.parseReadings(responseContent);
+    }
+}
@@ -0,0 +1,45 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingUID;
+import org.openhab.core.thing.binding.builder.ThingBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.THING_TYPE_BRIDGE;
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.THING_TYPE_HEATING;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChannelTypeUtilBenchmark {
+    private static final String TEMPLATE = "Heating Circuit ${heatingCircuit} ${pretty:operatingProgram} Energy Saving ${pretty:0}";
+    private static final Map<String, String> PROPS = Map.of("0", "active",
+                                                            "heatingCircuit", "1",
+                                                            "operatingProgram", "reduced");
+
+    private Thing thing;
+
+    @Setup
+    public void setUp() {
+        ThingUID bridgeUID = new ThingUID(THING_TYPE_BRIDGE, "bridge");
+        thing = ThingBuilder.create(THING_TYPE_HEATING, new ThingUID(THING_TYPE_HEATING, bridgeUID, "0328bf05-9b58-35fe-9845-edfc5a9b09aa"))
+                .withBridge(bridgeUID)
+                .build();
+    }
+
+    @Benchmark
+    public String substitutePropertyValues() {
+        return ChannelTypeUtil.substitutePropertyValues(TEMPLATE, PROPS);
+    }
+
+    @Benchmark
+    public String deviceSpecificChannelTypeId() {
+        return ChannelTypeUtil.deviceSpecificChannelTypeId("heating_circuits_1_operating_programs_reducedEnergySaving_active", thing);
+    }
+}
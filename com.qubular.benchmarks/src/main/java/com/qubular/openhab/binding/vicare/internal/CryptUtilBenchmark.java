@@ -0,0 +1,59 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.openjdk.jmh.annotations.*;
+import org.osgi.service.cm.Configuration;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.security.GeneralSecurityException;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptUtilBenchmark {
+    private static final String ACCESS_TOKEN = "eyJlbmMiOiJBMjU2R0NNIiwiYWxnIjoiUlNBLU9BRVAtMjU2In0.eyJzdWIiOiJteUNsaWVudElkIiwiZXhwIjoxNjY2MDAwMDAwfQ";
+
+    @Param({"false", "true"})
+    public boolean useLimitedEncryption;
+
+    private CryptUtil cryptUtil;
+    private String encrypted;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException, IOException {
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put(CryptUtil.CONFIG_USE_LIMITED_ENCRYPTION, useLimitedEncryption);
+        cryptUtil = new CryptUtil(inMemoryConfiguration(props));
+        encrypted = cryptUtil.encrypt(ACCESS_TOKEN);
+    }
+
+    @Benchmark
+    public String encrypt() throws GeneralSecurityException, IOException {
+        return cryptUtil.encrypt(ACCESS_TOKEN);
+    }
+
+    @Benchmark
+    public String decrypt() throws GeneralSecurityException, IOException {
+        return cryptUtil.decrypt(encrypted);
+    }
+
+    private static Configuration inMemoryConfiguration(Hashtable<String, Object> props) {
+        return (Configuration) Proxy.newProxyInstance(CryptUtilBenchmark.class.getClassLoader(),
+                new Class<?>[]{Configuration.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getProperties":
+                            return props;
+                        case "update":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,46 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.features.StatusSensorFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyMap;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeatureUtilBenchmark {
+    @Param({"heating.circuits.1.operating.programs.reducedEnergySaving",
+            "heating.circuits.0.circulation.pump",
+            "heating.dhw.temperature.main"})
+    public String featureName;
+
+    private Feature feature;
+
+    @Setup
+    public void setUp() {
+        feature = new StatusSensorFeature(featureName, emptyMap());
+    }
+
+    @Benchmark
+    public String templateId() {
+        return FeatureUtil.templateId(feature, "active", 0);
+    }
+
+    @Benchmark
+    public String templateIdTruncated() {
+        return FeatureUtil.templateId(feature, "active", 1);
+    }
+
+    @Benchmark
+    public Map<String, String> extractTemplatePropertiesFromFeature() {
+        return FeatureUtil.extractTemplatePropertiesFromFeature(feature, new HashMap<>());
+    }
+}
@@ -0,0 +1,39 @@
+package com.qubular.vicare.internal;
+
+import com.qubular.vicare.model.Feature;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeatureDeserializationBenchmark {
+    @Param({"deviceFeaturesResponse.json",
+            "deviceFeaturesResponse2.json",
+            "deviceFeaturesResponse3.json",
+            "deviceFeaturesResponse4.json",
+            "deviceFeaturesResponse5.json"})
+    public String fixture;
+
+    private String responseContent;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream is = getClass().getResourceAsStream("/com/qubular/vicare/test/" + fixture)) {
+            responseContent = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public List<Feature> extractFeatures() throws IOException {
+        return VicareServiceImpl.extractFeatures(responseContent);
+    }
+}
@@ -0,0 +1,170 @@
+package com.qubular.circuitbreaker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * Stops requests being sent to an API endpoint family that is failing. After a number of consecutive failures the
+ * breaker opens and calls are rejected immediately until a backoff has elapsed. The breaker then half-opens and lets
+ * a single trial call through; if that succeeds the breaker closes, otherwise it opens again with double the backoff.
+ * Backoffs are jittered so that clients do not retry in lockstep.
+ * <p>
+ * Callers must call {@link #acquire()} before each request and then report the outcome with
+ * {@link #recordSuccess()} or {@link #recordFailure()}.
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(15);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(15);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public static class Status {
+        public final String name;
+        public final State state;
+        public final int consecutiveFailures;
+        public final long rejectedCalls;
+        /** When the next trial call is allowed, or null if the breaker is closed. */
+        public final Instant retryAt;
+
+        public Status(String name, State state, int consecutiveFailures, long rejectedCalls, Instant retryAt) {
+            this.name = name;
+            this.state = state;
+            this.consecutiveFailures = consecutiveFailures;
+            this.rejectedCalls = rejectedCalls;
+            this.retryAt = retryAt;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + state +
+                    (retryAt == null ? "" : " until " + retryAt) +
+                    ", failures=" + consecutiveFailures +
+                    ", rejected=" + rejectedCalls;
+        }
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Clock clock;
+    private final Random random;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int consecutiveOpens;
+    private Instant retryAt;
+    private long rejectedCalls;
+
+    public CircuitBreaker(String name) {
+        this(name, DEFAULT_FAILURE_THRESHOLD, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF, Clock.systemUTC(), new Random());
+    }
+
+    public CircuitBreaker(String name, int failureThreshold, Duration initialBackoff, Duration maxBackoff, Clock clock, Random random) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * Obtain permission to make a call.
+     * @throws CircuitBreakerOpenException if the breaker is open, or half-open with a trial call in progress.
+     */
+    public synchronized void acquire() throws CircuitBreakerOpenException {
+        if (state == State.CLOSED) {
+            return;
+        }
+        Instant now = clock.instant();
+        if (now.isBefore(retryAt)) {
+            ++rejectedCalls;
+            throw new CircuitBreakerOpenException(getStatus());
+        }
+        // let a single trial call through, and another if it has not reported back within the initial backoff
+        logger.debug("{} circuit breaker half-open, sending trial request", name);
+        state = State.HALF_OPEN;
+        retryAt = now.plus(initialBackoff);
+    }
+
+    /**
+     * Record that a call reached the API, even if the API rejected the request.
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("{} circuit breaker closed", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        consecutiveOpens = 0;
+        retryAt = null;
+    }
+
+    /**
+     * Close the breaker, e.g. after the endpoint configuration has changed.
+     */
+    public synchronized void reset() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        consecutiveOpens = 0;
+        retryAt = null;
+    }
+
+    /**
+     * Record that a call failed because the API was unavailable, e.g. a timeout or server error.
+     */
+    public synchronized void recordFailure() {
+        ++consecutiveFailures;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            open(clock.instant().plus(nextBackoff()));
+        }
+    }
+
+    /**
+     * Open the breaker until a known time, e.g. when a rate limit resets.
+     */
+    public synchronized void openUntil(Instant until) {
+        open(until);
+    }
+
+    private void open(Instant until) {
+        if (state != State.OPEN) {
+            logger.warn("{} circuit breaker open, next attempt after {}", name, until);
+        }
+        state = State.OPEN;
+        retryAt = until;
+    }
+
+    private Duration nextBackoff() {
+        long initialMillis = initialBackoff.toMillis();
+        long backoffMillis = Math.min(maxBackoff.toMillis(), initialMillis << Math.min(consecutiveOpens, 20));
+        ++consecutiveOpens;
+        // equal jitter, so the backoff is at least half the exponential value
+        long half = backoffMillis / 2;
+        return Duration.ofMillis(half + (half > 0 ? (long) (random.nextDouble() * half) : 0));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Status getStatus() {
+        return new Status(name, state, consecutiveFailures, rejectedCalls, retryAt);
+    }
+}
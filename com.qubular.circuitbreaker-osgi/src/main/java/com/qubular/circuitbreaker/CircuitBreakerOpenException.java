@@ -0,0 +1,19 @@
+package com.qubular.circuitbreaker;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a call while the circuit breaker for its endpoint is open.
+ */
+public class CircuitBreakerOpenException extends IOException {
+    private final CircuitBreaker.Status status;
+
+    public CircuitBreakerOpenException(CircuitBreaker.Status status) {
+        super(status.name + " is unavailable, next attempt after " + status.retryAt);
+        this.status = status;
+    }
+
+    public CircuitBreaker.Status getStatus() {
+        return status;
+    }
+}
@@ -1,14 +1,31 @@
 package com.qubular.glowmarkt;
 
+import java.time.Duration;
+import java.util.Optional;
+
 /**
  * Aggregation period for series data
  */
 public enum AggregationPeriod {
-    PT1M,
-    PT30M,
-    PT1H,
-    P1D,
-    P1W,
-    P1M,
-    P1Y
+    PT1M(null),
+    PT30M(Duration.ofDays(10)),
+    PT1H(Duration.ofDays(31)),
+    P1D(Duration.ofDays(31)),
+    P1W(Duration.ofDays(6 * 7)),
+    P1M(Duration.ofDays(366)),
+    P1Y(Duration.ofDays(366));
+
+    private final Duration maxRequestDuration;
+
+    AggregationPeriod(Duration maxRequestDuration) {
+        this.maxRequestDuration = maxRequestDuration;
+    }
+
+    /**
+     * @return The maximum length of a readings request at this period, as documented on
+     * {@link GlowmarktService#getResourceReadings}, or empty if no limit is documented.
+     */
+    public Optional<Duration> getMaxRequestDuration() {
+        return Optional.ofNullable(maxRequestDuration);
+    }
 }
@@ -1,8 +1,11 @@
 package com.qubular.glowmarkt;
 
+import com.qubular.circuitbreaker.CircuitBreaker;
+
 import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface GlowmarktService {
     GlowmarktSession authenticate(GlowmarktSettings settings, String username, String password) throws IOException, AuthenticationFailedException;
@@ -40,9 +43,19 @@ public interface GlowmarktService {
 
     TariffResponse getResourceTariff(GlowmarktSession session, GlowmarktSettings settings, String resourceId) throws IOException, AuthenticationFailedException;
 
-    void catchup(GlowmarktSession session,
-                 GlowmarktSettings settings,
-                 String resourceId);
+    /**
+     * Ask Glowmarkt to fetch the latest readings from the DCC, then poll the last time with backoff until newer
+     * readings arrive, starting after {@link GlowmarktSettings#getCatchupPollDelay()}. The poll gives up after
+     * {@link GlowmarktSettings#getCatchupTimeout()}. The new readings are fetched in as many requests as the request limit for the
+     * aggregation period needs.
+     * @return A future completed with the readings from the last time before the catch-up to the new last time, or an
+     * empty list if no new readings arrived.
+     */
+    CompletableFuture<List<ResourceData>> catchup(GlowmarktSession session,
+                                                  GlowmarktSettings settings,
+                                                  String resourceId,
+                                                  AggregationPeriod period,
+                                                  AggregationFunction aggregationFunction);
 
     Instant getFirstTime(GlowmarktSession session,
                          GlowmarktSettings settings,
@@ -51,4 +64,14 @@ public interface GlowmarktService {
     Instant getLastTime(GlowmarktSession session,
                          GlowmarktSettings settings,
                          String resourceId) throws AuthenticationFailedException, IOException;
+
+    /**
+     * @return The state of the circuit breakers guarding each family of API endpoints.
+     */
+    List<CircuitBreaker.Status> getCircuitBreakers();
+
+    /**
+     * Close all circuit breakers so that the next calls are sent to the API, e.g. after the settings have changed.
+     */
+    void resetCircuitBreakers();
 }
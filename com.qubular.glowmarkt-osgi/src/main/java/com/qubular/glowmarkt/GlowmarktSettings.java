@@ -3,14 +3,32 @@ package com.qubular.glowmarkt;
 import org.eclipse.jetty.client.HttpClient;
 
 import java.net.URI;
+import java.time.Duration;
 
 public interface GlowmarktSettings {
     URI DEFAULT_URI_ENDPOINT = URI.create("https://api.glowmarkt.com/api/v0-1/");
     String DEFAULT_APPLICATION_ID = "b0f1b774-a586-4f72-9edd-27ead8aa7a8d";
+    Duration DEFAULT_CATCHUP_POLL_DELAY = Duration.ofSeconds(2);
+    Duration DEFAULT_CATCHUP_TIMEOUT = Duration.ofMinutes(30);
 
     String getApplicationId();
 
     URI getApiEndpoint();
 
     HttpClient getHttpClient();
+
+    /**
+     * @return The delay before the first poll for new readings after a catch-up is requested, which doubles with
+     * each poll.
+     */
+    default Duration getCatchupPollDelay() {
+        return DEFAULT_CATCHUP_POLL_DELAY;
+    }
+
+    /**
+     * @return How long after a catch-up is requested to stop polling for new readings.
+     */
+    default Duration getCatchupTimeout() {
+        return DEFAULT_CATCHUP_TIMEOUT;
+    }
 }
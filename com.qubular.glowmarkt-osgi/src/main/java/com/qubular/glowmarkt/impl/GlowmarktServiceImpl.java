@@ -2,12 +2,14 @@ package com.qubular.glowmarkt.impl;
 
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.qubular.circuitbreaker.CircuitBreaker;
 import com.qubular.glowmarkt.*;
 import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.util.StringContentProvider;
 import org.eclipse.jetty.http.HttpMethod;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,17 +18,26 @@ import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static org.eclipse.jetty.http.HttpStatus.OK_200;
+import static org.eclipse.jetty.http.HttpStatus.TOO_MANY_REQUESTS_429;
 
 @Component(service = GlowmarktService.class)
 public class GlowmarktServiceImpl implements GlowmarktService {
@@ -40,6 +51,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
     public static final String QUERY_PARAM_FUNCTION = "function";
     public static final DateTimeFormatter YYYYMMDDTHHMMSS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
     public static final DateTimeFormatter YYYYMMDD_HHMMSS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    static final Duration CATCHUP_MAX_POLL_DELAY = Duration.ofMinutes(5);
 
     private static class AuthRequest {
         String username;
@@ -74,6 +86,15 @@ public class GlowmarktServiceImpl implements GlowmarktService {
     }
 
     private final Gson gson;
+    private final CircuitBreaker authCircuitBreaker = new CircuitBreaker("Glowmarkt authentication");
+    private final CircuitBreaker virtualEntityCircuitBreaker = new CircuitBreaker("Glowmarkt virtual entities");
+    private final CircuitBreaker resourceCircuitBreaker = new CircuitBreaker("Glowmarkt resources");
+    private final ResourceTimesCache resourceTimesCache = new ResourceTimesCache(Clock.systemUTC(), ResourceTimesCache.DEFAULT_LAST_TIME_TTL);
+    private final ScheduledExecutorService catchupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "Glowmarkt catch-up");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Activate
     public GlowmarktServiceImpl() {
@@ -87,6 +108,11 @@ public class GlowmarktServiceImpl implements GlowmarktService {
                 .create();
     }
 
+    @Deactivate
+    public void deactivate() {
+        catchupExecutor.shutdownNow();
+    }
+
     private static TariffPlanDetail deserializeTariffPlanDetail(JsonElement jsonElement, Type type, JsonDeserializationContext jsonDeserializationContext) {
         JsonObject jsonObject = (JsonObject) jsonElement;
         if (jsonObject.has("standing")) {
@@ -108,12 +134,14 @@ public class GlowmarktServiceImpl implements GlowmarktService {
         String json = gson.toJson(new AuthRequest(aUsername, aPassword));
         logger.trace("Sending content {}", json);
         try {
+            authCircuitBreaker.acquire();
             ContentResponse response = settings.getHttpClient()
                     .POST(authUri)
                     .accept("application/json")
                     .content(new StringContentProvider("application/json", json, StandardCharsets.UTF_8))
                     .header(HEADER_APPLICATION_ID, settings.getApplicationId())
                     .send();
+            recordResponse(authCircuitBreaker, response);
             logger.trace("Authenticate response: {}", response.getContentAsString());
             if (response.getStatus() == OK_200) {
                 AuthResponse authResponse = gson.fromJson(response.getContentAsString(), AuthResponse.class);
@@ -123,6 +151,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
                 throw exceptionForHttpResponseError(response, "Unable to authenticate");
             }
         } catch (InterruptedException | TimeoutException | ExecutionException e) {
+            authCircuitBreaker.recordFailure();
             throw new IOException("Unable to authenticate", e);
         }
     }
@@ -133,6 +162,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
         URI virtualEntityUri = settings.getApiEndpoint().resolve("virtualentity");
         logger.trace("Sending virtualentity request to {}", virtualEntityUri);
         try {
+            virtualEntityCircuitBreaker.acquire();
             ContentResponse response = settings.getHttpClient()
                     .newRequest(virtualEntityUri)
                     .accept("application/json")
@@ -140,6 +170,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
                     .header(HEADER_TOKEN, session.getToken())
                     .method(HttpMethod.GET)
                     .send();
+            recordResponse(virtualEntityCircuitBreaker, response);
             if (response.getStatus() == OK_200) {
                 List<VirtualEntity> virtualEntities = gson.fromJson(response.getContentAsString(),
                         new TypeToken<List<VirtualEntity>>() {}.getType());
@@ -148,6 +179,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
                 throw exceptionForHttpResponseError(response, "Unable to fetch virtual entities");
             }
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            virtualEntityCircuitBreaker.recordFailure();
             throw exceptionForHttpClientException(e, "Unable to fetch virtual entities");
         }
     }
@@ -158,6 +190,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
         URI virtualEntityUri = settings.getApiEndpoint().resolve(format("virtualentity/%s/resources", URLEncoder.encode(virtualEntityId, StandardCharsets.UTF_8)));
         logger.trace("Sending virtual entity resource request to {}", virtualEntityUri);
         try {
+            virtualEntityCircuitBreaker.acquire();
             ContentResponse response = settings.getHttpClient()
                     .newRequest(virtualEntityUri)
                     .accept("application/json")
@@ -165,6 +198,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
                     .header(HEADER_TOKEN, session.getToken())
                     .method(HttpMethod.GET)
                     .send();
+            recordResponse(virtualEntityCircuitBreaker, response);
             if (response.getStatus() == OK_200) {
                 VirtualEntity virtualEntity = gson.fromJson(response.getContentAsString(), VirtualEntity.class);
                 return virtualEntity;
@@ -172,6 +206,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
                 throw exceptionForHttpResponseError(response, "Unable to fetch virtual entity");
             }
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            virtualEntityCircuitBreaker.recordFailure();
             throw exceptionForHttpClientException(e, "Unable to fetch virtual entity");
         }
     }
@@ -182,6 +217,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
         URI readingsUri = settings.getApiEndpoint().resolve(format("resource/%s/readings", URLEncoder.encode(resourceId, StandardCharsets.UTF_8)));
         logger.trace("Sending reading resource request to {}, from {} to {}", readingsUri, from, to);
         try {
+            resourceCircuitBreaker.acquire();
             ContentResponse response = settings.getHttpClient()
                     .newRequest(readingsUri)
                     .header(HEADER_APPLICATION_ID, settings.getApplicationId())
@@ -194,26 +230,33 @@ public class GlowmarktServiceImpl implements GlowmarktService {
                     .param(QUERY_PARAM_FUNCTION, aggregationFunction.getValue())
                     .method(HttpMethod.GET)
                     .send();
+            recordResponse(resourceCircuitBreaker, response);
             logger.trace("Sent request");
             if (response.getStatus() == OK_200) {
-                ReadingResponse readingResponse = gson.fromJson(response.getContentAsString(), ReadingResponse.class);
-                return readingResponse.data.stream()
-                        .map(dataPairs -> new ResourceData(dataPairs[1], Instant.ofEpochSecond((long)dataPairs[0])))
-                        .collect(Collectors.toList());
+                return parseReadings(response.getContentAsString());
             } else {
                 throw exceptionForHttpResponseError(response, "Unable to fetch reading data");
             }
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            resourceCircuitBreaker.recordFailure();
             throw exceptionForHttpClientException(e, "Unable to fetch reading data");
         }
     }
 
+    List<ResourceData> parseReadings(String responseContent) {
+        ReadingResponse readingResponse = gson.fromJson(responseContent, ReadingResponse.class);
+        return readingResponse.data.stream()
+                .map(dataPairs -> new ResourceData(dataPairs[1], Instant.ofEpochSecond((long)dataPairs[0])))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public TariffResponse getResourceTariff(GlowmarktSession session, GlowmarktSettings settings, String resourceId) throws IOException, AuthenticationFailedException {
         validateToken(session);
         URI tariffUri = settings.getApiEndpoint().resolve(format("resource/%s/tariff", URLEncoder.encode(resourceId, StandardCharsets.UTF_8)));
         logger.trace("Sending tariff request to {}", tariffUri);
         try {
+            resourceCircuitBreaker.acquire();
             ContentResponse response = settings.getHttpClient()
                     .newRequest(tariffUri)
                     .header(HEADER_APPLICATION_ID, settings.getApplicationId())
@@ -221,6 +264,7 @@ public class GlowmarktServiceImpl implements GlowmarktService {
                     .accept("application/json")
                     .method(HttpMethod.GET)
                     .send();
+            recordResponse(resourceCircuitBreaker, response);
             if (response.getStatus() == 200) {
                 TariffResponse tariffResponse = gson.fromJson(response.getContentAsString(), TariffResponse.class);
                 return tariffResponse;
@@ -228,62 +272,209 @@ public class GlowmarktServiceImpl implements GlowmarktService {
                 throw exceptionForHttpResponseError(response, "Unable to fetch tariff data");
             }
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            resourceCircuitBreaker.recordFailure();
             throw exceptionForHttpClientException(e, "Unable to fetch tariff data");
         }
     }
 
     @Override
-    public void catchup(GlowmarktSession session, GlowmarktSettings settings, String resourceId) {
-        // TODO
-        throw new UnsupportedOperationException();
+    public CompletableFuture<List<ResourceData>> catchup(GlowmarktSession session, GlowmarktSettings settings, String resourceId,
+                                                         AggregationPeriod period, AggregationFunction aggregationFunction) {
+        CompletableFuture<List<ResourceData>> result = new CompletableFuture<>();
+        try {
+            catchupExecutor.execute(() -> {
+                try {
+                    Instant previousLastTime = getLastTime(session, settings, resourceId);
+                    requestCatchup(session, settings, resourceId);
+                    Instant deadline = Instant.now().plus(settings.getCatchupTimeout());
+                    pollLastTime(result, session, settings, resourceId, period, aggregationFunction, previousLastTime,
+                                 settings.getCatchupPollDelay(), deadline);
+                } catch (IOException | AuthenticationFailedException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void requestCatchup(GlowmarktSession session, GlowmarktSettings settings, String resourceId) throws AuthenticationFailedException, IOException {
+        validateToken(session);
+        URI uri = settings.getApiEndpoint().resolve(format("resource/%s/catchup", URLEncoder.encode(resourceId, StandardCharsets.UTF_8)));
+        logger.trace("Requesting catch-up for {}", resourceId);
+        try {
+            resourceCircuitBreaker.acquire();
+            ContentResponse response = settings.getHttpClient()
+                    .newRequest(uri)
+                    .header(HEADER_APPLICATION_ID, settings.getApplicationId())
+                    .header(HEADER_TOKEN, session.getToken())
+                    .method(HttpMethod.GET)
+                    .send();
+            recordResponse(resourceCircuitBreaker, response);
+            if (response.getStatus() != OK_200) {
+                throw exceptionForHttpResponseError(response, "Unable to request catch-up");
+            }
+        } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            resourceCircuitBreaker.recordFailure();
+            throw exceptionForHttpClientException(e, format("Unable to request catch-up for %s", resourceId));
+        }
+    }
+
+    /**
+     * Poll the last time until it moves past the previous last time, doubling the delay between polls up to the
+     * maximum, then fetch the readings in between.
+     */
+    private void pollLastTime(CompletableFuture<List<ResourceData>> result, GlowmarktSession session,
+                              GlowmarktSettings settings, String resourceId, AggregationPeriod period,
+                              AggregationFunction aggregationFunction, Instant previousLastTime, Duration delay,
+                              Instant deadline) {
+        catchupExecutor.schedule(() -> {
+            try {
+                Instant lastTime = fetchLastTime(session, settings, resourceId);
+                if (lastTime != null && previousLastTime != null && lastTime.isAfter(previousLastTime)) {
+                    result.complete(getResourceReadingsWithinLimits(session, settings, resourceId, previousLastTime,
+                                                                    lastTime, period, aggregationFunction));
+                } else if (lastTime != null && previousLastTime == null) {
+                    // nothing to fetch the new readings from
+                    result.complete(List.of());
+                } else {
+                    Duration nextDelay = delay.multipliedBy(2);
+                    if (nextDelay.compareTo(CATCHUP_MAX_POLL_DELAY) > 0) {
+                        nextDelay = CATCHUP_MAX_POLL_DELAY;
+                    }
+                    if (Instant.now().plus(nextDelay).isBefore(deadline)) {
+                        pollLastTime(result, session, settings, resourceId, period, aggregationFunction,
+                                     previousLastTime, nextDelay, deadline);
+                    } else {
+                        logger.debug("No new readings for {} after catch-up", resourceId);
+                        result.complete(List.of());
+                    }
+                }
+            } catch (IOException | AuthenticationFailedException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fetch the readings in as many requests as the request limit for the aggregation period needs.
+     */
+    private List<ResourceData> getResourceReadingsWithinLimits(GlowmarktSession session, GlowmarktSettings settings,
+                                                               String resourceId, Instant from, Instant to,
+                                                               AggregationPeriod period,
+                                                               AggregationFunction aggregationFunction) throws AuthenticationFailedException, IOException {
+        Duration maxDuration = period.getMaxRequestDuration().orElse(Duration.between(from, to));
+        List<ResourceData> readings = new ArrayList<>();
+        for (Instant t = from; t.isBefore(to); ) {
+            Instant t2 = t.plus(maxDuration);
+            if (t2.isAfter(to)) {
+                t2 = to;
+            }
+            readings.addAll(getResourceReadings(session, settings, resourceId, t, t2, period, aggregationFunction));
+            t = t2;
+        }
+        return readings;
     }
 
     @Override
     public Instant getFirstTime(GlowmarktSession session, GlowmarktSettings settings, String resourceId) throws AuthenticationFailedException, IOException {
         validateToken(session);
+        Instant cached = resourceTimesCache.getFirstTime(session.getToken(), settings.getApiEndpoint(), resourceId);
+        if (cached != null) {
+            return cached;
+        }
         URI uri = settings.getApiEndpoint().resolve(format("resource/%s/first-time", resourceId));
         logger.trace("Fetching first time data for {}", resourceId);
         try {
+            resourceCircuitBreaker.acquire();
             ContentResponse response = settings.getHttpClient()
                     .newRequest(uri)
                     .header(HEADER_APPLICATION_ID, settings.getApplicationId())
                     .header(HEADER_TOKEN, session.getToken())
                     .method(HttpMethod.GET)
                     .send();
+            recordResponse(resourceCircuitBreaker, response);
             if (response.getStatus() == 200) {
                 FirstTimeResponse firstTimeResponse = gson.fromJson(response.getContentAsString(), FirstTimeResponse.class);
-                return firstTimeResponse.data.firstTs;
+                Instant firstTime = firstTimeResponse.data.firstTs;
+                if (firstTime != null) {
+                    resourceTimesCache.putFirstTime(session.getToken(), settings.getApiEndpoint(), resourceId, firstTime);
+                }
+                return firstTime;
             } else {
                 throw exceptionForHttpResponseError(response, "Unable to fetch first time data");
             }
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            resourceCircuitBreaker.recordFailure();
             throw exceptionForHttpClientException(e, format("Unable to fetch first time data for %s", resourceId));
         }
     }
 
     @Override
     public Instant getLastTime(GlowmarktSession session, GlowmarktSettings settings, String resourceId) throws AuthenticationFailedException, IOException {
+        validateToken(session);
+        Instant cached = resourceTimesCache.getLastTime(session.getToken(), settings.getApiEndpoint(), resourceId);
+        if (cached != null) {
+            return cached;
+        }
+        return fetchLastTime(session, settings, resourceId);
+    }
+
+    private Instant fetchLastTime(GlowmarktSession session, GlowmarktSettings settings, String resourceId) throws AuthenticationFailedException, IOException {
         validateToken(session);
         URI uri = settings.getApiEndpoint().resolve(format("resource/%s/last-time", resourceId));
         logger.trace("Fetching last time data for {}", resourceId);
         try {
+            resourceCircuitBreaker.acquire();
             ContentResponse response = settings.getHttpClient()
                     .newRequest(uri)
                     .header(HEADER_APPLICATION_ID, settings.getApplicationId())
                     .header(HEADER_TOKEN, session.getToken())
                     .method(HttpMethod.GET)
                     .send();
+            recordResponse(resourceCircuitBreaker, response);
             if (response.getStatus() == 200) {
                 LastTimeResponse lastTimeResponse = gson.fromJson(response.getContentAsString(), LastTimeResponse.class);
-                return lastTimeResponse.data.lastTs;
+                Instant lastTime = lastTimeResponse.data.lastTs;
+                if (lastTime != null) {
+                    resourceTimesCache.putLastTime(session.getToken(), settings.getApiEndpoint(), resourceId, lastTime);
+                }
+                return lastTime;
             } else {
                 throw exceptionForHttpResponseError(response, "Unable to fetch last time data");
             }
         } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            resourceCircuitBreaker.recordFailure();
             throw exceptionForHttpClientException(e, format("Unable to fetch last time data for %s", resourceId));
         }
     }
 
+    @Override
+    public List<CircuitBreaker.Status> getCircuitBreakers() {
+        return circuitBreakers().map(CircuitBreaker::getStatus).collect(Collectors.toList());
+    }
+
+    @Override
+    public void resetCircuitBreakers() {
+        circuitBreakers().forEach(CircuitBreaker::reset);
+    }
+
+    private Stream<CircuitBreaker> circuitBreakers() {
+        return Stream.of(authCircuitBreaker, virtualEntityCircuitBreaker, resourceCircuitBreaker);
+    }
+
+    /**
+     * Server errors and rate limiting count as failures, other responses show that the API is available.
+     */
+    private static void recordResponse(CircuitBreaker circuitBreaker, ContentResponse response) {
+        if (response.getStatus() >= 500 || response.getStatus() == TOO_MANY_REQUESTS_429) {
+            circuitBreaker.recordFailure();
+        } else {
+            circuitBreaker.recordSuccess();
+        }
+    }
+
     private IOException exceptionForHttpResponseError(ContentResponse response, String message) throws IOException, AuthenticationFailedException {
         message += ", server responded with " + response.getStatus();
         logger.debug(message);
@@ -0,0 +1,88 @@
+package com.qubular.glowmarkt.impl;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The first and last reading times of each resource. The first time practically never changes so it is kept for as
+ * long as the session that fetched it, the last time moves forward as readings arrive so it is only kept for the TTL.
+ * Times fetched with one session token are never returned for another, so re-authenticating invalidates them.
+ */
+class ResourceTimesCache {
+    static final Duration DEFAULT_LAST_TIME_TTL = Duration.ofMinutes(5);
+
+    private static class Key {
+        final URI apiEndpoint;
+        final String resourceId;
+
+        Key(URI apiEndpoint, String resourceId) {
+            this.apiEndpoint = apiEndpoint;
+            this.resourceId = resourceId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return apiEndpoint.equals(key.apiEndpoint) && resourceId.equals(key.resourceId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(apiEndpoint, resourceId);
+        }
+    }
+
+    private static class Entry {
+        final String token;
+        final Instant time;
+        final Instant fetched;
+
+        Entry(String token, Instant time, Instant fetched) {
+            this.token = token;
+            this.time = time;
+            this.fetched = fetched;
+        }
+    }
+
+    private final Clock clock;
+    private final Duration lastTimeTtl;
+    private final Map<Key, Entry> firstTimes = new ConcurrentHashMap<>();
+    private final Map<Key, Entry> lastTimes = new ConcurrentHashMap<>();
+
+    ResourceTimesCache(Clock clock, Duration lastTimeTtl) {
+        this.clock = clock;
+        this.lastTimeTtl = lastTimeTtl;
+    }
+
+    /**
+     * @return The cached first time of the resource, or null if it needs to be fetched.
+     */
+    Instant getFirstTime(String token, URI apiEndpoint, String resourceId) {
+        Entry entry = firstTimes.get(new Key(apiEndpoint, resourceId));
+        return entry != null && entry.token.equals(token) ? entry.time : null;
+    }
+
+    void putFirstTime(String token, URI apiEndpoint, String resourceId, Instant firstTime) {
+        firstTimes.put(new Key(apiEndpoint, resourceId), new Entry(token, firstTime, clock.instant()));
+    }
+
+    /**
+     * @return The cached last time of the resource, or null if it needs to be fetched.
+     */
+    Instant getLastTime(String token, URI apiEndpoint, String resourceId) {
+        Entry entry = lastTimes.get(new Key(apiEndpoint, resourceId));
+        return entry != null && entry.token.equals(token) && clock.instant().isBefore(entry.fetched.plus(lastTimeTtl)) ?
+                entry.time : null;
+    }
+
+    void putLastTime(String token, URI apiEndpoint, String resourceId, Instant lastTime) {
+        lastTimes.put(new Key(apiEndpoint, resourceId), new Entry(token, lastTime, clock.instant()));
+    }
+}
@@ -23,17 +23,20 @@ import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.qubular.glowmarkt.GlowmarktSettings.DEFAULT_APPLICATION_ID;
 import static org.junit.jupiter.api.Assertions.*;
@@ -41,6 +44,7 @@ import static org.junit.jupiter.api.Assertions.*;
 public class GlowmarktServiceTest {
     private BundleContext bundleContext;
     private HttpService httpService;
+    private HttpClient httpClient;
 
     GlowmarktService glowmarktService;
 
@@ -51,10 +55,12 @@ public class GlowmarktServiceTest {
     }
 
     @BeforeEach
-    public void setUp() {
+    public void setUp() throws Exception {
         bundleContext = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
         httpService = getService(HttpService.class);
         glowmarktService = getService(GlowmarktService.class);
+        httpClient = new HttpClient();
+        httpClient.start();
     }
 
     private void registerServlet(String alias, HttpServlet servlet) throws ServletException, NamespaceException {
@@ -63,12 +69,17 @@ public class GlowmarktServiceTest {
     }
 
     @AfterEach
-    public void tearDown() {
+    public void tearDown() throws Exception {
         servlets.forEach(httpService::unregister);
         servlets.clear();
+        httpClient.stop();
     }
 
     private GlowmarktSettings glowmarktLocalTestServer() {
+        return glowmarktLocalTestServer(GlowmarktSettings.DEFAULT_CATCHUP_POLL_DELAY);
+    }
+
+    private GlowmarktSettings glowmarktLocalTestServer(Duration catchupPollDelay) {
         return new GlowmarktSettings() {
             @Override
             public String getApplicationId() {
@@ -82,14 +93,13 @@ public class GlowmarktServiceTest {
 
             @Override
             public HttpClient getHttpClient() {
-                HttpClient httpClient = new HttpClient();
-                try {
-                    httpClient.start();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
                 return httpClient;
             }
+
+            @Override
+            public Duration getCatchupPollDelay() {
+                return catchupPollDelay;
+            }
         };
     }
 
@@ -415,6 +425,147 @@ public class GlowmarktServiceTest {
         assertEquals(Instant.parse("2021-02-12T10:05:02Z"), serviceCall.get());
     }
 
+    @Test
+    public void firstAndLastTimesAreCachedPerSession() throws ServletException, NamespaceException, AuthenticationFailedException, IOException {
+        AtomicInteger firstTimeRequests = new AtomicInteger();
+        AtomicInteger lastTimeRequests = new AtomicInteger();
+        registerServlet("/resource/2d9e0c65-7c3a-4c53-9d6b-54d0e0c2b1a7/first-time", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                firstTimeRequests.incrementAndGet();
+                resp.setStatus(200);
+                try (var os = resp.getOutputStream();
+                     var is = GlowmarktServiceTest.class.getResourceAsStream("firstTimeResponse.json")) {
+                    os.write(is.readAllBytes());
+                }
+            }
+        });
+        registerServlet("/resource/2d9e0c65-7c3a-4c53-9d6b-54d0e0c2b1a7/last-time", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                lastTimeRequests.incrementAndGet();
+                resp.setStatus(200);
+                try (var os = resp.getOutputStream();
+                     var is = GlowmarktServiceTest.class.getResourceAsStream("lastTimeResponse.json")) {
+                    os.write(is.readAllBytes());
+                }
+            }
+        });
+
+        GlowmarktSettings settings = glowmarktLocalTestServer();
+        GlowmarktSession session = new GlowmarktSession(Instant.now().plus(1, ChronoUnit.DAYS), "cachingToken");
+        for (int i = 0; i < 2; ++i) {
+            assertEquals(Instant.parse("2011-06-18T12:43:00Z"), glowmarktService.getFirstTime(session, settings, "2d9e0c65-7c3a-4c53-9d6b-54d0e0c2b1a7"));
+            assertEquals(Instant.parse("2021-02-12T10:05:02Z"), glowmarktService.getLastTime(session, settings, "2d9e0c65-7c3a-4c53-9d6b-54d0e0c2b1a7"));
+        }
+        assertEquals(1, firstTimeRequests.get());
+        assertEquals(1, lastTimeRequests.get());
+
+        GlowmarktSession newSession = new GlowmarktSession(Instant.now().plus(1, ChronoUnit.DAYS), "renewedCachingToken");
+        glowmarktService.getFirstTime(newSession, settings, "2d9e0c65-7c3a-4c53-9d6b-54d0e0c2b1a7");
+        glowmarktService.getLastTime(newSession, settings, "2d9e0c65-7c3a-4c53-9d6b-54d0e0c2b1a7");
+
+        assertEquals(2, firstTimeRequests.get());
+        assertEquals(2, lastTimeRequests.get());
+    }
+
+    @Test
+    public void catchupPollsUntilNewReadingsArrive() throws ServletException, NamespaceException, ExecutionException, InterruptedException, TimeoutException {
+        AtomicInteger catchupRequests = new AtomicInteger();
+        AtomicInteger lastTimeRequests = new AtomicInteger();
+        CompletableFuture<String> readingsFrom = new CompletableFuture<>();
+        registerServlet("/resource/c6e2f5b4-1d3a-4c9e-8f7b-2a5d9e0c1b3f/catchup", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                catchupRequests.incrementAndGet();
+                resp.setStatus(200);
+                try (var os = resp.getOutputStream()) {
+                    os.write("{\"valid\": true, \"status\": \"OK\"}".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        registerServlet("/resource/c6e2f5b4-1d3a-4c9e-8f7b-2a5d9e0c1b3f/last-time", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                // the new readings arrive after the first poll
+                long lastTs = lastTimeRequests.incrementAndGet() <= 2 ? 1523318400L : 1523404800L;
+                resp.setStatus(200);
+                try (var os = resp.getOutputStream()) {
+                    os.write(("{\"data\": {\"lastTs\": " + lastTs + "}}").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        registerServlet("/resource/c6e2f5b4-1d3a-4c9e-8f7b-2a5d9e0c1b3f/readings", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                readingsFrom.complete(req.getParameter("from") + " - " + req.getParameter("to"));
+                resp.setStatus(200);
+                try (var os = resp.getOutputStream();
+                     var is = GlowmarktServiceTest.class.getResourceAsStream("resourceReadings.json")) {
+                    os.write(is.readAllBytes());
+                }
+            }
+        });
+
+        GlowmarktSession session = new GlowmarktSession(Instant.now().plus(1, ChronoUnit.DAYS), "catchupToken");
+        List<ResourceData> readings = glowmarktService.catchup(session, glowmarktLocalTestServer(Duration.ofMillis(10)),
+                                                               "c6e2f5b4-1d3a-4c9e-8f7b-2a5d9e0c1b3f",
+                                                               AggregationPeriod.PT30M, AggregationFunction.SUM)
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, catchupRequests.get());
+        assertEquals(3, lastTimeRequests.get());
+        assertEquals("2018-04-10T00:00:00 - 2018-04-11T00:00:00", readingsFrom.get());
+        assertEquals(2, readings.size());
+    }
+
+    @Test
+    public void catchupSplitsReadingsByRequestLimit() throws ServletException, NamespaceException, ExecutionException, InterruptedException, TimeoutException {
+        AtomicInteger lastTimeRequests = new AtomicInteger();
+        List<String> readingsRequests = Collections.synchronizedList(new ArrayList<>());
+        registerServlet("/resource/d7f3a6c5-2e4b-4d0f-9a8c-3b6e0f1d2c4a/catchup", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                resp.setStatus(200);
+                try (var os = resp.getOutputStream()) {
+                    os.write("{\"valid\": true, \"status\": \"OK\"}".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        registerServlet("/resource/d7f3a6c5-2e4b-4d0f-9a8c-3b6e0f1d2c4a/last-time", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                // fifteen days of half hour readings arrive, more than one request can fetch
+                long lastTs = lastTimeRequests.incrementAndGet() <= 1 ? 1523318400L : 1524614400L;
+                resp.setStatus(200);
+                try (var os = resp.getOutputStream()) {
+                    os.write(("{\"data\": {\"lastTs\": " + lastTs + "}}").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        registerServlet("/resource/d7f3a6c5-2e4b-4d0f-9a8c-3b6e0f1d2c4a/readings", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                readingsRequests.add(req.getParameter("from") + " - " + req.getParameter("to"));
+                resp.setStatus(200);
+                try (var os = resp.getOutputStream();
+                     var is = GlowmarktServiceTest.class.getResourceAsStream("resourceReadings.json")) {
+                    os.write(is.readAllBytes());
+                }
+            }
+        });
+
+        GlowmarktSession session = new GlowmarktSession(Instant.now().plus(1, ChronoUnit.DAYS), "splitCatchupToken");
+        List<ResourceData> readings = glowmarktService.catchup(session, glowmarktLocalTestServer(Duration.ofMillis(10)),
+                                                               "d7f3a6c5-2e4b-4d0f-9a8c-3b6e0f1d2c4a",
+                                                               AggregationPeriod.PT30M, AggregationFunction.SUM)
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("2018-04-10T00:00:00 - 2018-04-20T00:00:00",
+                             "2018-04-20T00:00:00 - 2018-04-25T00:00:00"), readingsRequests);
+        assertEquals(4, readings.size());
+    }
+
     @Test
     public void getResourceTariffFetchesTariffData() throws ServletException, NamespaceException, AuthenticationFailedException, IOException, ExecutionException, InterruptedException, TimeoutException {
         CompletableFuture<Integer> result = tariffEndpoint();
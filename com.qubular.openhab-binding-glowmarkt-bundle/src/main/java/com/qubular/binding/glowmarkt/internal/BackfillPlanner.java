@@ -0,0 +1,235 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import com.qubular.glowmarkt.AggregationPeriod;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.qubular.glowmarkt.AggregationPeriod.*;
+import static java.time.Duration.ofDays;
+
+/**
+ * Plans the readings requests needed to backfill a period of history, fetching older readings at coarser aggregation
+ * periods as set by a resolution policy. Each request covers as many days as the API allows for its aggregation
+ * period, and requests are aligned to the aggregation period in UTC. Coarser periods are only requested where the
+ * whole aggregation period is missing; the partly missing periods at either end are fetched at the finest period.
+ * <p>
+ * The policy is a comma separated list of aggregation periods from finest to coarsest, each but the last followed by
+ * the age up to which it is used, e.g. <code>PT30M/P31D,PT1H/P6M,P1D</code>.
+ */
+class BackfillPlanner {
+    static final String DEFAULT_RESOLUTION_POLICY = "PT30M/P31D,PT1H/P6M,P1D";
+
+    /** The longest time between two readings at each aggregation period. */
+    private static final Map<AggregationPeriod, Duration> RESOLUTIONS = Map.of(PT30M, Duration.ofMinutes(30),
+                                                                                PT1H, Duration.ofHours(1),
+                                                                                P1D, ofDays(1),
+                                                                                P1W, ofDays(7),
+                                                                                P1M, ofDays(31),
+                                                                                P1Y, ofDays(366));
+
+    private static class Tier {
+        final AggregationPeriod period;
+        /** The age up to which the period is used, or null for the oldest readings. */
+        final Period maxAge;
+
+        Tier(AggregationPeriod period, Period maxAge) {
+            this.period = period;
+            this.maxAge = maxAge;
+        }
+    }
+
+    static class Fetch {
+        final Instant from;
+        final Instant to;
+        final AggregationPeriod period;
+
+        Fetch(Instant from, Instant to, AggregationPeriod period) {
+            this.from = from;
+            this.to = to;
+            this.period = period;
+        }
+
+        @Override
+        public String toString() {
+            return period + " " + from + " - " + to;
+        }
+    }
+
+    private final List<Tier> tiers;
+
+    /**
+     * @throws IllegalArgumentException if the policy is invalid.
+     */
+    BackfillPlanner(String resolutionPolicy) {
+        this.tiers = parsePolicy(resolutionPolicy);
+    }
+
+    private static List<Tier> parsePolicy(String resolutionPolicy) {
+        List<Tier> tiers = new ArrayList<>();
+        String[] tierSpecs = resolutionPolicy.split(",");
+        for (int i = 0; i < tierSpecs.length; ++i) {
+            String[] parts = tierSpecs[i].trim().split("/");
+            boolean oldest = i == tierSpecs.length - 1;
+            if (parts.length != (oldest ? 1 : 2)) {
+                throw new IllegalArgumentException("Expected " + (oldest ? "period" : "period/age") + " but found " + tierSpecs[i]);
+            }
+            try {
+                AggregationPeriod period = AggregationPeriod.valueOf(parts[0].trim());
+                if (period.getMaxRequestDuration().isEmpty()) {
+                    throw new IllegalArgumentException("Aggregation period " + period + " is not supported for history");
+                }
+                Period maxAge = oldest ? null : Period.parse(parts[1].trim());
+                if (maxAge != null && !tiers.isEmpty() &&
+                        length(maxAge).compareTo(length(tiers.get(tiers.size() - 1).maxAge)) <= 0) {
+                    throw new IllegalArgumentException("Ages must increase, but found " + tierSpecs[i]);
+                }
+                tiers.add(new Tier(period, maxAge));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid age in " + tierSpecs[i], e);
+            }
+        }
+        return tiers;
+    }
+
+    private static Duration length(Period period) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        return Duration.between(now.minus(period), now);
+    }
+
+    /**
+     * @return The requests to fetch the readings from the start to the end time, oldest first.
+     */
+    List<Fetch> plan(Instant from, Instant to, Instant now) {
+        List<Fetch> fetches = new ArrayList<>();
+        AggregationPeriod finest = tiers.get(0).period;
+        for (int i = tiers.size() - 1; i >= 0; --i) {
+            AggregationPeriod period = tiers.get(i).period;
+            Instant tierStart = i == tiers.size() - 1 ? null : tierBoundary(i, now);
+            Instant tierEnd = i == 0 ? null : tierBoundary(i - 1, now);
+            Instant start = tierStart == null || from.isAfter(tierStart) ? from : tierStart;
+            Instant end = tierEnd == null || to.isBefore(tierEnd) ? to : tierEnd;
+            if (!start.isBefore(end)) {
+                continue;
+            }
+            if (period == finest) {
+                addFetches(fetches, start, end, period);
+                continue;
+            }
+            // a coarse reading sums its whole period, so a period that is only partly missing is fetched at the
+            // finest period instead, rather than overlapping readings that are already there
+            Instant wholeStart = alignUp(start, period);
+            Instant wholeEnd = align(end, period);
+            if (wholeStart.isBefore(wholeEnd)) {
+                addFetches(fetches, start, wholeStart, finest);
+                addFetches(fetches, wholeStart, wholeEnd, period);
+                addFetches(fetches, wholeEnd, end, finest);
+            } else {
+                addFetches(fetches, start, end, finest);
+            }
+        }
+        return fetches;
+    }
+
+    private static void addFetches(List<Fetch> fetches, Instant from, Instant to, AggregationPeriod period) {
+        Duration maxDuration = period.getMaxRequestDuration().orElseThrow();
+        for (Instant t = align(from, period); t.isBefore(to); ) {
+            Instant t2 = align(t.plus(maxDuration), period);
+            if (t2.isAfter(to)) {
+                t2 = to;
+            }
+            fetches.add(new Fetch(t, t2, period));
+            t = t2;
+        }
+    }
+
+    /**
+     * @return The aggregation period at which readings from the given time are fetched.
+     */
+    AggregationPeriod getPeriod(Instant t, Instant now) {
+        for (int i = 0; i < tiers.size() - 1; ++i) {
+            if (!t.isBefore(tierBoundary(i, now))) {
+                return tiers.get(i).period;
+            }
+        }
+        return tiers.get(tiers.size() - 1).period;
+    }
+
+    /**
+     * @return The longest time between readings from the given time.
+     */
+    Duration getResolution(Instant t, Instant now) {
+        return RESOLUTIONS.get(getPeriod(t, now));
+    }
+
+    /**
+     * @return The longest period that a single request for readings from the given time can cover.
+     */
+    Duration getMaxRequestDuration(Instant t, Instant now) {
+        return getPeriod(t, now).getMaxRequestDuration().orElseThrow();
+    }
+
+    /**
+     * @return The time before which the tier's period gives way to the next, coarser, tier's period.
+     */
+    private Instant tierBoundary(int tier, Instant now) {
+        ZonedDateTime boundary = now.atZone(ZoneOffset.UTC).minus(tiers.get(tier).maxAge);
+        return align(boundary.toInstant(), tiers.get(tier + 1).period);
+    }
+
+    /**
+     * @return The start of the first aggregation period that starts at or after the time, in UTC.
+     */
+    static Instant alignUp(Instant t, AggregationPeriod period) {
+        Instant aligned = align(t, period);
+        if (aligned.equals(t)) {
+            return t;
+        }
+        ZonedDateTime utc = aligned.atZone(ZoneOffset.UTC);
+        switch (period) {
+            case P1W:
+                return utc.plusWeeks(1).toInstant();
+            case P1M:
+                return utc.plusMonths(1).toInstant();
+            case P1Y:
+                return utc.plusYears(1).toInstant();
+            default:
+                return aligned.plus(RESOLUTIONS.get(period));
+        }
+    }
+
+    /**
+     * @return The start of the aggregation period containing the time, in UTC.
+     */
+    static Instant align(Instant t, AggregationPeriod period) {
+        ZonedDateTime utc = t.atZone(ZoneOffset.UTC);
+        switch (period) {
+            case PT1M:
+                return t.truncatedTo(ChronoUnit.MINUTES);
+            case PT30M:
+                return Instant.ofEpochSecond(t.getEpochSecond() - Math.floorMod(t.getEpochSecond(), 30 * 60));
+            case PT1H:
+                return t.truncatedTo(ChronoUnit.HOURS);
+            case P1D:
+                return t.truncatedTo(ChronoUnit.DAYS);
+            case P1W:
+                return utc.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toInstant();
+            case P1M:
+                return utc.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.firstDayOfMonth()).toInstant();
+            case P1Y:
+                return utc.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.firstDayOfYear()).toInstant();
+            default:
+                throw new IllegalArgumentException("Unsupported aggregation period " + period);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.qubular.binding.glowmarkt.internal;
 
+import org.openhab.core.i18n.TimeZoneProvider;
+import org.openhab.core.storage.StorageService;
 import org.openhab.core.thing.link.ItemChannelLinkRegistry;
 import org.openhab.core.thing.type.ChannelTypeRegistry;
 import org.osgi.framework.BundleContext;
@@ -14,6 +16,10 @@ public class BundleServiceProvider implements GlowmarktServiceProvider {
     private ChannelTypeRegistry channelTypeRegistry;
     @Reference
     private ItemChannelLinkRegistry itemChannelLinkRegistry;
+    @Reference
+    private StorageService storageService;
+    @Reference
+    private TimeZoneProvider timeZoneProvider;
     private BundleContext bundleContext;
 
     @Activate
@@ -31,6 +37,16 @@ public class BundleServiceProvider implements GlowmarktServiceProvider {
         return itemChannelLinkRegistry;
     }
 
+    @Override
+    public StorageService getStorageService() {
+        return storageService;
+    }
+
+    @Override
+    public TimeZoneProvider getTimeZoneProvider() {
+        return timeZoneProvider;
+    }
+
     @Override
     public String getBindingVersion() {
         return bundleContext.getBundle().getVersion().toString();
@@ -0,0 +1,167 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * The periods for which an item's readings have been fetched, kept as a set of disjoint intervals so that the gaps
+ * between them can be found and filled. Coverage is encoded compactly as a list of epoch second ranges, e.g.
+ * <code>1667260800-1667347200,1667433600-1667520000</code>.
+ */
+class CoverageTracker {
+    static class Interval {
+        final Instant start;
+        final Instant end;
+
+        Interval(Instant start, Instant end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return start + " - " + end;
+        }
+    }
+
+    /** The end of each interval, indexed by its start. */
+    private final NavigableMap<Instant, Instant> intervals = new TreeMap<>();
+
+    /**
+     * Record that the readings from the start to the end time have been fetched.
+     */
+    void add(Instant start, Instant end) {
+        if (end.isBefore(start)) {
+            return;
+        }
+        Instant mergedStart = start;
+        Instant mergedEnd = end;
+        Map.Entry<Instant, Instant> floor = intervals.floorEntry(start);
+        if (floor != null && !floor.getValue().isBefore(start)) {
+            mergedStart = floor.getKey();
+            mergedEnd = max(mergedEnd, floor.getValue());
+        }
+        NavigableMap<Instant, Instant> overlapping = intervals.subMap(mergedStart, true, mergedEnd, true);
+        for (Instant overlappingEnd : overlapping.values()) {
+            mergedEnd = max(mergedEnd, overlappingEnd);
+        }
+        overlapping.clear();
+        intervals.put(mergedStart, mergedEnd);
+    }
+
+    /**
+     * @return The periods between the start and end time that have not been fetched, oldest first.
+     */
+    List<Interval> findGaps(Instant from, Instant to) {
+        List<Interval> gaps = new ArrayList<>();
+        Instant t = from;
+        Map.Entry<Instant, Instant> floor = intervals.floorEntry(from);
+        if (floor != null) {
+            t = max(t, floor.getValue());
+        }
+        for (Map.Entry<Instant, Instant> interval : intervals.subMap(from, false, to, false).entrySet()) {
+            if (interval.getKey().isAfter(t)) {
+                gaps.add(new Interval(t, interval.getKey()));
+            }
+            t = max(t, interval.getValue());
+        }
+        if (t.isBefore(to)) {
+            gaps.add(new Interval(t, to));
+        }
+        return gaps;
+    }
+
+    /**
+     * Forget the coverage before the given time, which is no longer of interest.
+     */
+    void removeBefore(Instant t) {
+        Map.Entry<Instant, Instant> floor = intervals.floorEntry(t);
+        intervals.headMap(t, false).clear();
+        if (floor != null && floor.getValue().isAfter(t)) {
+            intervals.put(t, floor.getValue());
+        }
+    }
+
+    String encode() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Instant, Instant> interval : intervals.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(interval.getKey().getEpochSecond()).append('-').append(interval.getValue().getEpochSecond());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the coverage cannot be decoded.
+     */
+    static CoverageTracker decode(String encoded) {
+        CoverageTracker coverage = new CoverageTracker();
+        if (!encoded.isEmpty()) {
+            for (String interval : encoded.split(",")) {
+                String[] parts = interval.split("-");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid coverage interval " + interval);
+                }
+                coverage.add(Instant.ofEpochSecond(Long.parseLong(parts[0])), Instant.ofEpochSecond(Long.parseLong(parts[1])));
+            }
+        }
+        return coverage;
+    }
+
+    /**
+     * Estimate the coverage from the timestamps of the persisted readings, for items persisted before coverage was
+     * tracked. Consecutive readings are taken to be covered if they are no further apart than the maximum spacing for
+     * readings of that age.
+     */
+    static CoverageTracker fromTimestamps(Collection<Instant> timestamps, Function<Instant, Duration> maxSpacing) {
+        CoverageTracker coverage = new CoverageTracker();
+        Iterator<Instant> it = new TreeSet<>(timestamps).iterator();
+        if (it.hasNext()) {
+            Instant start = it.next();
+            Instant end = start;
+            while (it.hasNext()) {
+                Instant t = it.next();
+                if (t.isAfter(end.plus(maxSpacing.apply(end)))) {
+                    coverage.add(start, end);
+                    start = t;
+                }
+                end = t;
+            }
+            coverage.add(start, end);
+        }
+        return coverage;
+    }
+
+    /**
+     * Merge gaps that are close enough together to be fetched in a single request, refetching the readings between
+     * them.
+     * @param maxLength The maximum length of a single request for readings starting at the given time.
+     */
+    static List<Interval> mergeGaps(List<Interval> gaps, Function<Instant, Duration> maxLength) {
+        List<Interval> merged = new ArrayList<>();
+        for (Interval gap : gaps) {
+            Interval last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !gap.end.isAfter(last.start.plus(maxLength.apply(last.start)))) {
+                merged.set(merged.size() - 1, new Interval(last.start, gap.end));
+            } else {
+                merged.add(gap);
+            }
+        }
+        return merged;
+    }
+
+    private static Instant max(Instant t1, Instant t2) {
+        return t1.isAfter(t2) ? t1 : t2;
+    }
+}
@@ -1,9 +1,11 @@
 package com.qubular.binding.glowmarkt.internal;
 
+import com.qubular.circuitbreaker.CircuitBreaker;
 import com.qubular.glowmarkt.*;
 import org.eclipse.jetty.client.HttpClient;
 import org.openhab.core.config.core.Configuration;
 import org.openhab.core.io.net.http.HttpClientFactory;
+import org.openhab.core.library.types.StringType;
 import org.openhab.core.persistence.ModifiablePersistenceService;
 import org.openhab.core.persistence.PersistenceServiceRegistry;
 import org.openhab.core.scheduler.CronScheduler;
@@ -23,12 +25,17 @@ import java.io.IOException;
 import java.net.URI;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
+import static com.qubular.binding.glowmarkt.internal.GlowmarktConstants.CHANNEL_CIRCUIT_BREAKERS;
 import static com.qubular.binding.glowmarkt.internal.GlowmarktConstants.PROPERTY_BINDING_VERSION;
 import static java.util.Objects.requireNonNullElse;
 import static java.util.Objects.requireNonNullElseGet;
@@ -45,20 +52,70 @@ public class GlowmarktBridgeHandler extends BaseBridgeHandler {
     private static final String CONFIG_PARAM_SECURE_PASSWORD = "securePassword";
     public static final String CONFIG_PARAM_CRON_SCHEDULE = "cronSchedule";
     public static final String CONFIG_USE_LIMITED_ENCRYPTION = "useLimitedEncryption";
+    public static final String CONFIG_PARAM_RESOLUTION_POLICY = "resolutionPolicy";
 
     private static final Logger logger = LoggerFactory.getLogger(GlowmarktBridgeHandler.class);
+    /** How long before the session expires that it is renewed. */
+    private static final Duration SESSION_RENEWAL_MARGIN = Duration.ofHours(1);
 
     private final GlowmarktServiceProvider serviceProvider;
     private final GlowmarktService glowmarktService;
     private final HttpClientFactory httpClientFactory;
     private final PersistenceServiceRegistry persistenceServiceRegistry;
     private final CronScheduler cronScheduler;
-    private GlowmarktSession currentSession;
+    private volatile GlowmarktSettings glowmarktSettings;
+    private volatile Credentials credentials;
+    private volatile GlowmarktSession currentSession;
+    /** The authentication in progress or last completed, shared by everyone waiting for a session. */
+    private CompletableFuture<GlowmarktSession> sessionRenewal;
+    private ScheduledFuture<?> sessionRenewalJob;
+    /** Set once disposed, after which no session is stored and no renewal is scheduled. Guarded by this. */
+    private boolean disposed;
+    private final AtomicBoolean sessionRenewalQueued = new AtomicBoolean();
     private ScheduledFuture<?> oneTimeUpdateJob;
     private ScheduledCompletableFuture<Void> cronUpdateJob;
 
     private CryptUtil cryptUtil;
 
+    private static class Settings implements GlowmarktSettings {
+        private final String applicationId;
+        private final URI apiEndpoint;
+        private final HttpClient httpClient;
+        private final BackfillPlanner backfillPlanner;
+
+        Settings(String applicationId, URI apiEndpoint, HttpClient httpClient, BackfillPlanner backfillPlanner) {
+            this.applicationId = applicationId;
+            this.apiEndpoint = apiEndpoint;
+            this.httpClient = httpClient;
+            this.backfillPlanner = backfillPlanner;
+        }
+
+        @Override
+        public String getApplicationId() {
+            return applicationId;
+        }
+
+        @Override
+        public URI getApiEndpoint() {
+            return apiEndpoint;
+        }
+
+        @Override
+        public HttpClient getHttpClient() {
+            return httpClient;
+        }
+    }
+
+    private static class Credentials {
+        final String username;
+        final String password;
+
+        Credentials(String username, String password) {
+            this.username = username;
+            this.password = password;
+        }
+    }
+
     public GlowmarktBridgeHandler(GlowmarktServiceProvider serviceProvider, Bridge bridge,
                                   GlowmarktService glowmarktService,
                                   HttpClientFactory httpClientFactory,
@@ -92,12 +149,22 @@ public class GlowmarktBridgeHandler extends BaseBridgeHandler {
     @Override
     public void initialize() {
         logger.info("Initializing GlowmarktBridgeHandler");
+        // the configuration may have changed
+        glowmarktSettings = null;
+        credentials = null;
+        synchronized (this) {
+            disposed = false;
+        }
+        resetSession();
         if (migratePassword()) {
             updateStatus(ThingStatus.UNKNOWN);
         }
         updateProperty(PROPERTY_BINDING_VERSION, serviceProvider.getBindingVersion());
+        glowmarktService.resetCircuitBreakers();
         oneTimeUpdateJob = scheduler.schedule(resourceUpdateJob(),5, TimeUnit.SECONDS);
         cronUpdateJob = cronScheduler.schedule(() -> resourceUpdateJob().run(), getCronSchedule());
+        // authenticate ahead of the first request
+        queueSessionRenewal();
     }
 
     private boolean migratePassword() {
@@ -135,16 +202,31 @@ public class GlowmarktBridgeHandler extends BaseBridgeHandler {
             cronUpdateJob.cancel(false);
             cronUpdateJob = null;
         }
+        synchronized (this) {
+            disposed = true;
+        }
+        resetSession();
         super.dispose();
     }
 
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
+        if (command instanceof RefreshType) {
+            updateDiagnostics();
+        }
+    }
 
+    private void updateDiagnostics() {
+        if (isLinked(CHANNEL_CIRCUIT_BREAKERS)) {
+            updateState(CHANNEL_CIRCUIT_BREAKERS, new StringType(glowmarktService.getCircuitBreakers().stream()
+                                                                         .map(CircuitBreaker.Status::toString)
+                                                                         .collect(Collectors.joining("; "))));
+        }
     }
 
     private Runnable resourceUpdateJob() {
         return () -> {
+            updateDiagnostics();
             for (Thing thing : getThing().getThings()) {
                 ThingHandler handler = thing.getHandler();
                 for (Channel channel : thing.getChannels()) {
@@ -163,39 +245,163 @@ public class GlowmarktBridgeHandler extends BaseBridgeHandler {
         return glowmarktService;
     }
 
+    /**
+     * @return A snapshot of the settings, taken when first needed after the configuration changed.
+     */
     GlowmarktSettings getGlowmarktSettings() {
-        return new GlowmarktSettings() {
-            @Override
-            public String getApplicationId() {
-                return ofNullable((String) getConfig().get(CONFIG_PARAM_APPLICATION_ID)).orElse(DEFAULT_APPLICATION_ID);
+        GlowmarktSettings settings = glowmarktSettings;
+        if (settings == null) {
+            String serverUri = (String) getConfig().get(CONFIG_PARAM_SERVER_URI);
+            settings = new Settings(ofNullable((String) getConfig().get(CONFIG_PARAM_APPLICATION_ID)).orElse(GlowmarktSettings.DEFAULT_APPLICATION_ID),
+                                    serverUri == null ? GlowmarktSettings.DEFAULT_URI_ENDPOINT : URI.create(serverUri),
+                                    httpClientFactory.getCommonHttpClient(),
+                                    createBackfillPlanner());
+            glowmarktSettings = settings;
+        }
+        return settings;
+    }
+
+    /**
+     * @return The current session. The session is renewed in the background before it expires, so this only waits
+     * for authentication when there is no valid session, and then shares a single authentication with any other
+     * callers.
+     */
+    GlowmarktSession getGlowmarktSession() throws AuthenticationFailedException, IOException {
+        GlowmarktSession session = currentSession;
+        if (session != null && Instant.now().isBefore(session.getExpiry())) {
+            if (isRenewalDue(session)) {
+                queueSessionRenewal();
+            }
+            return session;
+        }
+        return authenticateOnce();
+    }
+
+    private static boolean isRenewalDue(GlowmarktSession session) {
+        return !Instant.now().plus(SESSION_RENEWAL_MARGIN).isBefore(session.getExpiry());
+    }
+
+    private synchronized void resetSession() {
+        currentSession = null;
+        sessionRenewal = null;
+        if (sessionRenewalJob != null) {
+            sessionRenewalJob.cancel(false);
+            sessionRenewalJob = null;
+        }
+    }
+
+    private synchronized void queueSessionRenewal() {
+        if (!disposed && sessionRenewalQueued.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                sessionRenewalQueued.set(false);
+                renewSessionIfDue();
+            });
+        }
+    }
+
+    private void renewSessionIfDue() {
+        synchronized (this) {
+            if (disposed) {
+                return;
+            }
+        }
+        GlowmarktSession session = currentSession;
+        if (session == null || isRenewalDue(session)) {
+            try {
+                authenticateOnce();
+            } catch (AuthenticationFailedException | IOException e) {
+                logger.debug("Unable to renew Glowmarkt session: {}", e.getMessage());
             }
+        }
+    }
 
-            @Override
-            public URI getApiEndpoint() {
-                String serverUri = (String) getConfig().get(CONFIG_PARAM_SERVER_URI);
-                return serverUri == null ? DEFAULT_URI_ENDPOINT : URI.create(serverUri);
+    /**
+     * Authenticate, unless another thread is already doing so in which case wait for its session.
+     */
+    private GlowmarktSession authenticateOnce() throws AuthenticationFailedException, IOException {
+        CompletableFuture<GlowmarktSession> renewal;
+        boolean authenticating = false;
+        synchronized (this) {
+            if (sessionRenewal == null || sessionRenewal.isDone()) {
+                sessionRenewal = new CompletableFuture<>();
+                authenticating = true;
+            }
+            renewal = sessionRenewal;
+        }
+        if (!authenticating) {
+            return awaitSession(renewal);
+        }
+        try {
+            GlowmarktSession session = authenticate();
+            boolean current;
+            synchronized (this) {
+                current = !disposed && sessionRenewal == renewal;
+                if (current) {
+                    currentSession = session;
+                }
             }
+            renewal.complete(session);
+            if (current) {
+                scheduleSessionRenewal(session);
+            }
+            return session;
+        } catch (AuthenticationFailedException | IOException | RuntimeException e) {
+            renewal.completeExceptionally(e);
+            throw e;
+        }
+    }
 
-            @Override
-            public HttpClient getHttpClient() {
-                return httpClientFactory.getCommonHttpClient();
+    private GlowmarktSession authenticate() throws AuthenticationFailedException, IOException {
+        Credentials login = getCredentials();
+        GlowmarktSession session = glowmarktService.authenticate(getGlowmarktSettings(), login.username, login.password);
+        if (session == null) {
+            throw new AuthenticationFailedException("No session returned by authentication");
+        }
+        return session;
+    }
+
+    private static GlowmarktSession awaitSession(CompletableFuture<GlowmarktSession> renewal) throws AuthenticationFailedException, IOException {
+        try {
+            return renewal.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AuthenticationFailedException) {
+                throw (AuthenticationFailedException) e.getCause();
+            } else if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
-        };
+            throw new IOException("Unable to authenticate: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to authenticate", e);
+        }
+    }
+
+    private synchronized void scheduleSessionRenewal(GlowmarktSession session) {
+        if (disposed) {
+            return;
+        }
+        if (sessionRenewalJob != null) {
+            sessionRenewalJob.cancel(false);
+        }
+        long delay = Math.max(0, Duration.between(Instant.now(), session.getExpiry().minus(SESSION_RENEWAL_MARGIN)).toMillis());
+        sessionRenewalJob = scheduler.schedule(this::renewSessionIfDue, delay, TimeUnit.MILLISECONDS);
     }
 
-    synchronized GlowmarktSession getGlowmarktSession() throws AuthenticationFailedException, IOException {
-        if (currentSession == null ||
-                Instant.now().plus(1, ChronoUnit.HOURS).isAfter(currentSession.getExpiry())) {
-            String username = (String) getConfig().get(CONFIG_PARAM_USERNAME);
-            String password = null;
+    /**
+     * @return The credentials, decrypting the password only once after the configuration changed.
+     */
+    private Credentials getCredentials() throws AuthenticationFailedException {
+        Credentials c = credentials;
+        if (c == null) {
             try {
-                password = cryptUtil.decrypt((String) getConfig().get(CONFIG_PARAM_SECURE_PASSWORD));
+                c = new Credentials((String) getConfig().get(CONFIG_PARAM_USERNAME),
+                                    cryptUtil.decrypt((String) getConfig().get(CONFIG_PARAM_SECURE_PASSWORD)));
             } catch (GeneralSecurityException e) {
                 throw new AuthenticationFailedException("Unable to decrypt password: " + e.getMessage(), e);
             }
-            currentSession = glowmarktService.authenticate(getGlowmarktSettings(), username, password);
+            credentials = c;
         }
-        return currentSession;
+        return c;
     }
 
     List<VirtualEntity> getVirtualEntities() throws IOException, AuthenticationFailedException {
@@ -216,6 +422,23 @@ public class GlowmarktBridgeHandler extends BaseBridgeHandler {
         return (ModifiablePersistenceService) persistenceServiceRegistry.get((String) getConfig().get(CONFIG_PARAM_PERSISTENCE_SERVICE));
     }
 
+    /**
+     * @return The planner for the configured resolution policy, which is parsed once per settings snapshot.
+     */
+    BackfillPlanner getBackfillPlanner() {
+        return ((Settings) getGlowmarktSettings()).backfillPlanner;
+    }
+
+    private BackfillPlanner createBackfillPlanner() {
+        String resolutionPolicy = (String) ofNullable(getConfig().get(CONFIG_PARAM_RESOLUTION_POLICY)).orElse(BackfillPlanner.DEFAULT_RESOLUTION_POLICY);
+        try {
+            return new BackfillPlanner(resolutionPolicy);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid resolution policy {}, using the default: {}", resolutionPolicy, e.getMessage());
+            return new BackfillPlanner(BackfillPlanner.DEFAULT_RESOLUTION_POLICY);
+        }
+    }
+
     private String getCronSchedule() {
         return (String) ofNullable(getConfig().get(CONFIG_PARAM_CRON_SCHEDULE)).orElse(GlowmarktConstants.DEFAULT_CRON_SCHEDULE);
     }
@@ -14,8 +14,10 @@ public class GlowmarktConstants {
     public static final String PROPERTY_PLAN_DETAIL_ID = "planDetailId";
     public static final String PROPERTY_RESOURCE_ID = "resourceId";
     public static final String PROPERTY_RESOURCE_NAME = "resourceName";
+    public static final String PROPERTY_ROLLUP_PERIOD = "rollupPeriod";
     public static final String PROPERTY_STRUCTURE_ID = "structureId";
     public static final String PROPERTY_TIER = "tier";
     public static final String PROPERTY_VIRTUAL_ENTITY_ID = "virtualEntityId";
+    public static final String CHANNEL_CIRCUIT_BREAKERS = "circuitBreakers";
     public static final String DEFAULT_CRON_SCHEDULE = "0 0 2 * * *";
 }
@@ -1,11 +1,15 @@
 package com.qubular.binding.glowmarkt.internal;
 
+import org.openhab.core.i18n.TimeZoneProvider;
+import org.openhab.core.storage.StorageService;
 import org.openhab.core.thing.link.ItemChannelLinkRegistry;
 import org.openhab.core.thing.type.ChannelTypeRegistry;
 
 public interface GlowmarktServiceProvider {
     ChannelTypeRegistry getChannelTypeRegistry();
     ItemChannelLinkRegistry getItemChannelLinkRegistry();
+    StorageService getStorageService();
+    TimeZoneProvider getTimeZoneProvider();
 
     String getBindingVersion();
 }
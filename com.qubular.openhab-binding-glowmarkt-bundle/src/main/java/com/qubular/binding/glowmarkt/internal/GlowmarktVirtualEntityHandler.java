@@ -1,11 +1,16 @@
 package com.qubular.binding.glowmarkt.internal;
 
 import com.qubular.glowmarkt.*;
+import org.openhab.core.common.NamedThreadFactory;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.unit.MetricPrefix;
+import org.openhab.core.library.unit.Units;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.ModifiablePersistenceService;
+import org.openhab.core.storage.Storage;
 import org.openhab.core.thing.*;
 import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.thing.binding.ThingHandlerService;
@@ -17,26 +22,81 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.temporal.TemporalAmount;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.qubular.binding.glowmarkt.internal.GlowmarktConstants.*;
-import static com.qubular.glowmarkt.AggregationPeriod.*;
-import static java.time.Duration.ofDays;
-import static java.util.Optional.of;
-import static java.util.stream.StreamSupport.stream;
 
 public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
+    public static final String CONFIG_PARAM_LIVE_INTERVAL = "liveInterval";
+    public static final String CONFIG_PARAM_LIVE_REQUESTS_PER_HOUR = "liveRequestsPerHour";
+    static final int DEFAULT_LIVE_REQUESTS_PER_HOUR = 60;
     private static final Logger logger = LoggerFactory.getLogger(GlowmarktVirtualEntityHandler.class);
+    private static final String COVERAGE_STORAGE_NAME = "com.qubular.binding.glowmarkt.coverage";
+    private static final String ROLLUP_STORAGE_NAME = "com.qubular.binding.glowmarkt.rollups";
+    /** How far behind the resource's readings can be before a catch-up is requested. */
+    private static final Duration CATCHUP_LAG = Duration.ofHours(2);
+    /**
+     * The shortest time between catch-ups for a resource, since the refresh after a catch-up that found too few new
+     * readings would otherwise start another straight away.
+     */
+    private static final Duration CATCHUP_MIN_INTERVAL = Duration.ofMinutes(30);
+    /** The furthest back live mode looks for readings, e.g. when it starts or after readings stop arriving. */
+    private static final Duration LIVE_MAX_WINDOW = Duration.ofMinutes(10);
+    private static final ChannelTypeUID CHANNEL_TYPE_CURRENT_POWER = new ChannelTypeUID(BINDING_ID, "current_power");
     private final GlowmarktService glowmarktService;
     private final ItemChannelLinkRegistry itemChannelLinkRegistry;
     private final GlowmarktServiceProvider serviceProvider;
     private TariffChannelTypeProvider tariffChannelTypeProvider;
+    private final TariffCache tariffCache = new TariffCache(Clock.systemDefaultZone(), TariffCache.DEFAULT_TTL);
+    private final ReadingsCache readingsCache = new ReadingsCache(Clock.systemDefaultZone(), ReadingsCache.DEFAULT_TTL,
+                                                                  ReadingsCache.DEFAULT_WINDOW);
+    /** Readings are stored on a thread of their own so that a slow persistence service can't starve the scheduler. */
+    private final ExecutorService persistenceExecutor = Executors.newSingleThreadExecutor(
+            new NamedThreadFactory("glowmarkt-persistence"));
+    private final PersistenceWriter persistenceWriter = new PersistenceWriter(persistenceExecutor,
+                                                                              PersistenceWriter.DEFAULT_CHUNK_SIZE,
+                                                                              PersistenceWriter.DEFAULT_MAX_PENDING_CHUNKS);
+    private final Map<String, RollupEngine> rollupEngines = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<List<ResourceData>>> catchups = new ConcurrentHashMap<>();
+    private final Map<String, Instant> catchupStarts = new ConcurrentHashMap<>();
+    /**
+     * Held while fetching a resource's history, so that the refresh after a catch-up and the scheduled refresh don't
+     * both find the same gaps and store the same readings twice.
+     */
+    private final Map<String, Object> fetchLocks = new ConcurrentHashMap<>();
+    /** The start of the next minute to fetch in live mode for each resource. */
+    private final Map<String, Instant> liveCursors = new ConcurrentHashMap<>();
+    private final Map<String, Double> livePower = new ConcurrentHashMap<>();
+    private RequestBudget liveBudget;
+    private ScheduledFuture<?> liveJob;
+
+    /** A period of readings for an item that is covered once its readings have been stored. */
+    private static class StoredPeriod {
+        final CoverageTracker coverage;
+        final Instant start;
+        final Instant end;
+        final CompletableFuture<Void> stored;
+
+        StoredPeriod(CoverageTracker coverage, Instant start, Instant end, CompletableFuture<Void> stored) {
+            this.coverage = coverage;
+            this.start = start;
+            this.end = end;
+            this.stored = stored;
+        }
+    }
 
     public GlowmarktVirtualEntityHandler(GlowmarktServiceProvider serviceProvider, Thing thing, GlowmarktService glowmarktService) {
         super(thing);
@@ -55,6 +115,9 @@ public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
                 GlowmarktSession glowmarktSession = bridgeHandler.getGlowmarktSession();
                 VirtualEntity virtualEntity = glowmarktService.getVirtualEntity(glowmarktSession, bridgeHandler.getGlowmarktSettings(), virtualEntityId);
                 List<Channel> channels = new ArrayList<>();
+                List<Channel> rollupChannels = new ArrayList<>();
+                List<Channel> liveChannels = new ArrayList<>();
+                int liveInterval = getLiveInterval();
                 for (Resource resource : virtualEntity.getResources()) {
                     ChannelTypeUID channelTypeUID = new ChannelTypeUID(BINDING_ID, channelType(resource));
                     Channel channel = getCallback().createChannelBuilder(new ChannelUID(getThing().getUID(), channelId(resource)), channelTypeUID)
@@ -63,14 +126,32 @@ public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
                                     GlowmarktConstants.PROPERTY_RESOURCE_ID, resource.getResourceId()))
                             .build();
                     channels.add(channel);
+                    for (RollupEngine.Period period : RollupEngine.Period.values()) {
+                        String rollupId = period.name().toLowerCase();
+                        ChannelTypeUID rollupChannelTypeUID = new ChannelTypeUID(BINDING_ID, "rollup_" + rollupId);
+                        rollupChannels.add(getCallback().createChannelBuilder(new ChannelUID(getThing().getUID(), channelId(resource) + "_" + rollupId),
+                                                                              rollupChannelTypeUID)
+                                                   .withType(rollupChannelTypeUID)
+                                                   .withProperties(Map.of(PROPERTY_RESOURCE_ID, resource.getResourceId(),
+                                                                          PROPERTY_ROLLUP_PERIOD, period.name()))
+                                                   .build());
+                    }
+
+                    if (liveInterval > 0 && resource.isConsumption() && resource.getClassifier().startsWith("electricity.")) {
+                        liveChannels.add(getCallback().createChannelBuilder(new ChannelUID(getThing().getUID(), channelId(resource) + "_current_power"),
+                                                                            CHANNEL_TYPE_CURRENT_POWER)
+                                                 .withType(CHANNEL_TYPE_CURRENT_POWER)
+                                                 .withProperties(Map.of(PROPERTY_RESOURCE_ID, resource.getResourceId()))
+                                                 .build());
+                    }
 
                     if (resource.isConsumption()) {
-                    TariffResponse tariffResponse = glowmarktService.getResourceTariff(glowmarktSession,
-                                                                                         getBridgeHandler().getGlowmarktSettings(),
-                                                                                         resource.getResourceId());
-                    List<TariffData> resourceTariff = tariffResponse.getData();
-                    var now = LocalDateTime.now();
-                    Optional<TariffData> currentTariff = getEffectiveTariff(resourceTariff, now);
+                    TariffCache.Tariffs tariffs = tariffCache.get(resource.getResourceId(),
+                                                                  resourceId -> glowmarktService.getResourceTariff(glowmarktSession,
+                                                                                                                   getBridgeHandler().getGlowmarktSettings(),
+                                                                                                                   resourceId));
+                    Optional<TariffData> currentTariff = tariffs.getEffectiveTariff(tariffCache.now())
+                            .map(TariffCache.Tariff::getData);
                     currentTariff.ifPresent(td -> td.getStructure().forEach(
                             ts -> {
                                 ts.getPlanDetails().forEach(pd -> {
@@ -83,7 +164,7 @@ public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
                                         Channel planChannel = getCallback().createChannelBuilder(new ChannelUID(getThing().getUID(), channelId),
                                                                                                  planChannelType)
                                                 .withProperties(Map.of(PROPERTY_RESOURCE_ID, resource.getResourceId(),
-                                                                       PROPERTY_RESOURCE_NAME, tariffResponse.getName(),
+                                                                       PROPERTY_RESOURCE_NAME, tariffs.getName(),
                                                                        PROPERTY_STRUCTURE_ID, ts.getId(),
                                                                        PROPERTY_PLAN_DETAIL_ID, pd.getId()))
                                                 .withType(planChannelType)
@@ -93,7 +174,7 @@ public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
                                         String channelId = TariffChannelTypeProvider.channelId(TariffChannelTypeProvider.PREFIX_TARIFF_PER_UNIT_RATE, resource, ts, pd);
                                         Map<String, String> propMap = new HashMap<>();
                                         propMap.put(PROPERTY_RESOURCE_ID, resource.getResourceId());
-                                        propMap.put(PROPERTY_RESOURCE_NAME, tariffResponse.getName());
+                                        propMap.put(PROPERTY_RESOURCE_NAME, tariffs.getName());
                                         propMap.put(PROPERTY_STRUCTURE_ID, ts.getId());
                                         propMap.put(PROPERTY_PLAN_DETAIL_ID, pd.getId());
                                         PerUnitTariffPlanDetail perUnitTariffPlanDetail = (PerUnitTariffPlanDetail) pd;
@@ -115,10 +196,15 @@ public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
                             }));
                     }
                 }
+                channels.addAll(rollupChannels);
+                channels.addAll(liveChannels);
                 if (!channels.isEmpty()) {
                     updateThing(editThing().withChannels(channels).build());
                 }
                 updateStatus(ThingStatus.ONLINE);
+                if (!liveChannels.isEmpty()) {
+                    startLiveMode(liveInterval);
+                }
             } catch (AuthenticationFailedException e) {
                 String msg = "Unable to authenticate with Glowmarkt API: " + e.getMessage();
                 updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, msg);
@@ -134,11 +220,91 @@ public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
         });
     }
 
-    private static Optional<TariffData> getEffectiveTariff(List<TariffData> resourceTariff, LocalDateTime now) {
-        return resourceTariff.stream()
-                .sorted(Comparator.comparing(TariffData::getFrom).reversed())
-                .filter(td -> td.getFrom().isBefore(now))
-                .findFirst();
+    @Override
+    public void dispose() {
+        stopLiveMode();
+        // readings already queued are still stored
+        persistenceExecutor.shutdown();
+        super.dispose();
+    }
+
+    private int getLiveInterval() {
+        Object liveInterval = getConfig().get(CONFIG_PARAM_LIVE_INTERVAL);
+        return liveInterval instanceof Number ? ((Number) liveInterval).intValue() : 0;
+    }
+
+    private synchronized void startLiveMode(int interval) {
+        stopLiveMode();
+        Object requestsPerHour = getConfig().get(CONFIG_PARAM_LIVE_REQUESTS_PER_HOUR);
+        liveBudget = new RequestBudget(Clock.systemUTC(),
+                                       requestsPerHour instanceof Number ? ((Number) requestsPerHour).intValue() : DEFAULT_LIVE_REQUESTS_PER_HOUR,
+                                       Duration.ofHours(1));
+        logger.info("Polling live readings for {} every {} seconds", getThing().getUID(), interval);
+        liveJob = scheduler.scheduleWithFixedDelay(this::pollLive, 0, interval, TimeUnit.SECONDS);
+    }
+
+    private synchronized void stopLiveMode() {
+        if (liveJob != null) {
+            liveJob.cancel(false);
+            liveJob = null;
+        }
+    }
+
+    /**
+     * Fetch the minutes since the last live reading of each resource and update its current power. This is kept
+     * apart from the history, it neither persists the readings nor caches them.
+     */
+    private void pollLive() {
+        for (Channel channel : getThing().getChannels()) {
+            if (CHANNEL_TYPE_CURRENT_POWER.equals(channel.getChannelTypeUID())) {
+                String resourceId = channel.getProperties().get(PROPERTY_RESOURCE_ID);
+                if (!liveBudget.tryAcquire()) {
+                    logger.debug("Live request budget used up, skipping {}", resourceId);
+                    continue;
+                }
+                try {
+                    pollLive(channel, resourceId);
+                } catch (AuthenticationFailedException | IOException e) {
+                    logger.debug("Unable to fetch live readings for {}: {}", resourceId, e.getMessage());
+                } catch (RuntimeException e) {
+                    logger.warn("Unexpected error fetching live readings for " + resourceId, e);
+                }
+            }
+        }
+    }
+
+    private void pollLive(Channel channel, String resourceId) throws AuthenticationFailedException, IOException {
+        // the current minute is still in progress
+        Instant to = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        Instant from = liveCursors.get(resourceId);
+        if (from == null || from.isBefore(to.minus(LIVE_MAX_WINDOW))) {
+            from = to.minus(LIVE_MAX_WINDOW);
+        }
+        if (!from.isBefore(to)) {
+            return;
+        }
+        List<ResourceData> readings = glowmarktService.getResourceReadings(getBridgeHandler().getGlowmarktSession(),
+                                                                           getBridgeHandler().getGlowmarktSettings(),
+                                                                           resourceId, from, to,
+                                                                           AggregationPeriod.PT1M,
+                                                                           AggregationFunction.SUM);
+        Instant cursor = from;
+        readings.stream()
+                .filter(r -> !r.getTimestamp().isBefore(cursor) && r.getTimestamp().isBefore(to))
+                .max(Comparator.comparing(ResourceData::getTimestamp))
+                .ifPresent(latest -> {
+                    liveCursors.put(resourceId, latest.getTimestamp().plus(1, ChronoUnit.MINUTES));
+                    // each reading is the energy used in that minute
+                    livePower.put(resourceId, latest.getReading() * 60);
+                    updateLiveChannel(channel, resourceId);
+                });
+    }
+
+    private void updateLiveChannel(Channel channel, String resourceId) {
+        Double power = livePower.get(resourceId);
+        if (power != null) {
+            updateState(channel.getUID(), new QuantityType<>(power, MetricPrefix.KILO(Units.WATT)));
+        }
     }
 
     private String channelType(Resource resource) {
@@ -157,25 +323,28 @@ public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
             Set<Item> linkedItems = itemChannelLinkRegistry.getLinkedItems(channelUID);
             try {
                 if (TariffChannelTypeProvider.isManagedChannelType(channel.getChannelTypeUID())) {
-                    TariffResponse resourceTariff = glowmarktService.getResourceTariff(
-                            getBridgeHandler().getGlowmarktSession(),
-                            getBridgeHandler().getGlowmarktSettings(),
-                            resourceId);
-                    String structureId = channel.getProperties().get(PROPERTY_STRUCTURE_ID);
-                    String planDetailId = channel.getProperties().get(PROPERTY_PLAN_DETAIL_ID);
-                    LocalDateTime now = LocalDateTime.now();
-                    Optional<TariffData> effectiveTariff = getEffectiveTariff(resourceTariff.getData(), now);
-                    effectiveTariff.get().getStructure().stream()
-                            .filter(ts -> ts.getId().equals(structureId))
-                            .flatMap(ts -> ts.getPlanDetails().stream())
-                            .filter(pd -> pd.getId().equals(planDetailId))
-                            .findFirst()
-                            .ifPresent(tpd -> {
-                                updateState(channelUID, new DecimalType((Number) tpd.getAmount()));
-                            });
+                    TariffCache.Tariffs tariffs = tariffCache.getIfFresh(resourceId);
+                    if (tariffs != null) {
+                        updateTariffChannel(channel, tariffs);
+                    } else {
+                        tariffs = tariffCache.fetch(resourceId, this::fetchTariff);
+                        // update all the resource's tariff channels from the one fetch
+                        for (Channel tariffChannel : getThing().getChannels()) {
+                            if (TariffChannelTypeProvider.isManagedChannelType(tariffChannel.getChannelTypeUID()) &&
+                                    resourceId.equals(tariffChannel.getProperties().get(PROPERTY_RESOURCE_ID))) {
+                                updateTariffChannel(tariffChannel, tariffs);
+                            }
+                        }
+                    }
+                } else if (channel.getProperties().containsKey(PROPERTY_ROLLUP_PERIOD)) {
+                    updateRollupChannel(channel, getRollupEngine(resourceId));
+                } else if (CHANNEL_TYPE_CURRENT_POWER.equals(channel.getChannelTypeUID())) {
+                    updateLiveChannel(channel, resourceId);
                 } else {
-                    for (var item : linkedItems) {
-                        fetchHistoricData(resourceId, item);
+                    if (!linkedItems.isEmpty()) {
+                        fetchHistoricData(resourceId, linkedItems);
+                    } else if (hasLinkedRollupChannel(resourceId)) {
+                        fetchRollupReadings(resourceId);
                     }
                 }
                 updateStatus(ThingStatus.ONLINE);
@@ -187,8 +356,122 @@ public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
                 String msg = "Problem fetching resource data: " + e.getMessage();
                 updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, msg);
                 logger.debug(msg, e);
+            } catch (InterruptedException e) {
+                logger.debug("Interrupted while storing resource data for {}", channelUID);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private TariffResponse fetchTariff(String resourceId) throws AuthenticationFailedException, IOException {
+        return glowmarktService.getResourceTariff(getBridgeHandler().getGlowmarktSession(),
+                                                  getBridgeHandler().getGlowmarktSettings(),
+                                                  resourceId);
+    }
+
+    private void updateTariffChannel(Channel channel, TariffCache.Tariffs tariffs) {
+        String structureId = channel.getProperties().get(PROPERTY_STRUCTURE_ID);
+        String planDetailId = channel.getProperties().get(PROPERTY_PLAN_DETAIL_ID);
+        tariffs.getEffectiveTariff(tariffCache.now())
+                .flatMap(tariff -> tariff.getPlanDetail(structureId, planDetailId))
+                .ifPresent(tpd -> updateState(channel.getUID(), new DecimalType((Number) tpd.getAmount())));
+    }
+
+    private void updateRollupChannel(Channel channel, RollupEngine rollupEngine) {
+        RollupEngine.Period period = RollupEngine.Period.valueOf(channel.getProperties().get(PROPERTY_ROLLUP_PERIOD));
+        updateState(channel.getUID(), new DecimalType(rollupEngine.getTotal(period, Instant.now())));
+    }
+
+    private RollupEngine getRollupEngine(String resourceId) {
+        RollupEngine rollupEngine = rollupEngines.get(resourceId);
+        if (rollupEngine == null) {
+            // loaded outside the map, since it may query a year of persisted readings
+            RollupEngine loaded = loadRollupEngine(resourceId);
+            rollupEngine = rollupEngines.putIfAbsent(resourceId, loaded);
+            if (rollupEngine == null) {
+                rollupEngine = loaded;
+            }
+        }
+        return rollupEngine;
+    }
+
+    private boolean hasLinkedRollupChannel(String resourceId) {
+        for (Channel channel : getThing().getChannels()) {
+            if (channel.getProperties().containsKey(PROPERTY_ROLLUP_PERIOD) &&
+                    resourceId.equals(channel.getProperties().get(PROPERTY_RESOURCE_ID)) &&
+                    !itemChannelLinkRegistry.getLinkedItems(channel.getUID()).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Feed the rollups with the readings since the latest one counted, for a resource whose rollups are linked but
+     * whose readings aren't, so there is no history being fetched to feed them.
+     */
+    private void fetchRollupReadings(String resourceId) throws AuthenticationFailedException, IOException {
+        synchronized (fetchLocks.computeIfAbsent(resourceId, id -> new Object())) {
+            RollupEngine rollupEngine = getRollupEngine(resourceId);
+            ZoneId zone = serviceProvider.getTimeZoneProvider().getTimeZone();
+            ZonedDateTime now = ZonedDateTime.now(zone).truncatedTo(ChronoUnit.SECONDS);
+            Instant latest = rollupEngine.getLatest();
+            Instant from = latest != null ? latest.plusSeconds(1) :
+                    now.with(TemporalAdjusters.firstDayOfYear()).truncatedTo(ChronoUnit.DAYS).toInstant();
+            if (!from.isBefore(now.toInstant())) {
+                return;
+            }
+            getReadings(resourceId, from, now.toInstant()).stream()
+                    .sorted(Comparator.comparing(ResourceData::getTimestamp))
+                    .forEach(rollupEngine::add);
+            updateRollups(resourceId, rollupEngine);
+        }
+    }
+
+    private RollupEngine loadRollupEngine(String resourceId) {
+        ZoneId zone = serviceProvider.getTimeZoneProvider().getTimeZone();
+        String encoded = getRollupStorage().get(resourceId);
+        if (encoded != null) {
+            try {
+                RollupEngine rollupEngine = RollupEngine.decode(encoded, zone);
+                if (rollupEngine != null) {
+                    return rollupEngine;
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unable to decode rollups for {}: {}", resourceId, e.getMessage());
+            }
+        }
+        // start from the readings already persisted this year
+        RollupEngine rollupEngine = new RollupEngine(zone);
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        ZonedDateTime startOfYear = now.with(TemporalAdjusters.firstDayOfYear()).truncatedTo(ChronoUnit.DAYS);
+        for (Channel channel : getThing().getChannels()) {
+            if (channel.getProperties().containsKey(PROPERTY_CLASSIFIER) &&
+                    resourceId.equals(channel.getProperties().get(PROPERTY_RESOURCE_ID))) {
+                Optional<Item> item = itemChannelLinkRegistry.getLinkedItems(channel.getUID()).stream().findFirst();
+                if (item.isPresent()) {
+                    findPersistedReadings(getBridgeHandler().getPersistenceService(), item.get(), startOfYear, now).stream()
+                            .sorted(Comparator.comparing(ResourceData::getTimestamp))
+                            .forEach(rollupEngine::add);
+                    break;
+                }
             }
         }
+        return rollupEngine;
+    }
+
+    private void updateRollups(String resourceId, RollupEngine rollupEngine) {
+        getRollupStorage().put(resourceId, rollupEngine.encode());
+        for (Channel channel : getThing().getChannels()) {
+            if (channel.getProperties().containsKey(PROPERTY_ROLLUP_PERIOD) &&
+                    resourceId.equals(channel.getProperties().get(PROPERTY_RESOURCE_ID))) {
+                updateRollupChannel(channel, rollupEngine);
+            }
+        }
+    }
+
+    private Storage<String> getRollupStorage() {
+        return serviceProvider.getStorageService().getStorage(ROLLUP_STORAGE_NAME, getClass().getClassLoader());
     }
 
     @Override
@@ -204,83 +487,198 @@ public class GlowmarktVirtualEntityHandler extends BaseThingHandler {
         this.tariffChannelTypeProvider = provider;
     }
 
-    private void fetchHistoricData(String resourceId, Item item) throws AuthenticationFailedException, IOException {
-        FilterCriteria filterCriteria = new FilterCriteria();
-        ZonedDateTime persistenceQueryStartDate = ZonedDateTime.now().minusYears(1);
-        filterCriteria.setBeginDate(persistenceQueryStartDate);
-        ZonedDateTime persistenceQueryEndDate = ZonedDateTime.now();
-        filterCriteria.setEndDate(persistenceQueryEndDate);
-        filterCriteria.setItemName(item.getName());
-        ModifiablePersistenceService persistenceService = getBridgeHandler().getPersistenceService();
-        Iterable<HistoricItem> dataSeries = persistenceService.query(filterCriteria);
-        var i = dataSeries.iterator();
-
-        Optional<ZonedDateTime> earliestPersistedTimestamp = stream(dataSeries.spliterator(), true)
-                .map(HistoricItem::getTimestamp)
-                .reduce((t1, t2) -> t1.isBefore(t2) ? t1 : t2);
-        Optional<ZonedDateTime> latestPersistedTimestamp = stream(dataSeries.spliterator(), true)
-                .map(HistoricItem::getTimestamp)
-                .reduce((t1, t2) -> t1.isAfter(t2) ? t1 : t2);
-
-        if (earliestPersistedTimestamp.map(persistenceQueryStartDate::isBefore).orElse(true)) {
-            fetchHistoricDataForMissingPeriod(resourceId, item, persistenceQueryStartDate, earliestPersistedTimestamp);
-        }
-        if (latestPersistedTimestamp.map(persistenceQueryEndDate::isAfter).orElse(false)) {
-            fetchHistoricDataForMissingPeriod(resourceId, item, latestPersistedTimestamp.get(), of(persistenceQueryEndDate));
+    private void fetchHistoricData(String resourceId, Collection<Item> items) throws AuthenticationFailedException, IOException, InterruptedException {
+        synchronized (fetchLocks.computeIfAbsent(resourceId, id -> new Object())) {
+            fetchHistoricDataLocked(resourceId, items);
         }
     }
 
-    private GlowmarktBridgeHandler getBridgeHandler() {
-        return (GlowmarktBridgeHandler) getBridge().getHandler();
-    }
+    private void fetchHistoricDataLocked(String resourceId, Collection<Item> items) throws AuthenticationFailedException, IOException, InterruptedException {
+        ZonedDateTime persistenceQueryStartDate = ZonedDateTime.now().minusYears(1).truncatedTo(ChronoUnit.SECONDS);
+        ZonedDateTime persistenceQueryEndDate = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Instant now = persistenceQueryEndDate.toInstant();
+        ModifiablePersistenceService persistenceService = getBridgeHandler().getPersistenceService();
+        BackfillPlanner planner = getBridgeHandler().getBackfillPlanner();
+        Storage<String> coverageStorage = serviceProvider.getStorageService().getStorage(COVERAGE_STORAGE_NAME,
+                                                                                          getClass().getClassLoader());
+        Map<Item, Set<Instant>> persistedTimestamps = new HashMap<>();
+        Map<Item, CoverageTracker> coverages = new HashMap<>();
+        Map<Item, List<CoverageTracker.Interval>> missingPeriods = new LinkedHashMap<>();
+        RollupEngine rollupEngine = getRollupEngine(resourceId);
+        for (Item item : items) {
+            Set<Instant> persisted = new HashSet<>();
+            findPersistedReadings(persistenceService, item, persistenceQueryStartDate, persistenceQueryEndDate)
+                    .forEach(r -> persisted.add(r.getTimestamp()));
+            CoverageTracker coverage = loadCoverage(coverageStorage, coverageKey(resourceId, item), persisted, planner, now);
+            List<CoverageTracker.Interval> gaps = CoverageTracker.mergeGaps(
+                    coverage.findGaps(persistenceQueryStartDate.toInstant(), now),
+                    t -> planner.getMaxRequestDuration(t, now));
+            if (!gaps.isEmpty()) {
+                persistedTimestamps.put(item, persisted);
+                coverages.put(item, coverage);
+                missingPeriods.put(item, gaps);
+            }
+        }
+        if (missingPeriods.isEmpty()) {
+            return;
+        }
 
-    private void fetchHistoricDataForMissingPeriod(String resourceId, Item item, ZonedDateTime startDate, Optional<ZonedDateTime> endDate) throws AuthenticationFailedException, IOException {
+        // the items linked to a resource usually have the same periods missing, so download each period only once
         Instant firstTime = glowmarktService.getFirstTime(getBridgeHandler().getGlowmarktSession(),
                 getBridgeHandler().getGlowmarktSettings(),
                 resourceId);
         Instant lastTime = glowmarktService.getLastTime(getBridgeHandler().getGlowmarktSession(),
                 getBridgeHandler().getGlowmarktSettings(),
                 resourceId);
-        Instant fetchStart = !firstTime.isBefore(startDate.toInstant()) ? firstTime : startDate.toInstant();
-        Instant fetchEnd;
-        if (endDate.isPresent()) {
-            fetchEnd = !lastTime.isAfter(endDate.get().toInstant()) ? lastTime : endDate.get().toInstant();
-        } else {
-            fetchEnd = lastTime;
+        Map<List<Instant>, List<ResourceData>> downloads = new HashMap<>();
+        List<StoredPeriod> storedPeriods = new ArrayList<>();
+        try {
+            for (Map.Entry<Item, List<CoverageTracker.Interval>> entry : missingPeriods.entrySet()) {
+                CoverageTracker coverage = coverages.get(entry.getKey());
+                for (CoverageTracker.Interval period : entry.getValue()) {
+                    Instant fetchStart = !firstTime.isBefore(period.start) ? firstTime : period.start;
+                    Instant fetchEnd = !lastTime.isAfter(period.end) ? lastTime : period.end;
+                    if (fetchStart.isAfter(period.start)) {
+                        // there are no readings before the first time to fetch
+                        coverage.add(period.start, fetchStart.isBefore(period.end) ? fetchStart : period.end);
+                    }
+                    if (fetchStart.isBefore(fetchEnd)) {
+                        List<Instant> key = List.of(fetchStart, fetchEnd);
+                        List<ResourceData> readings = downloads.get(key);
+                        if (readings == null) {
+                            readings = getReadings(resourceId, fetchStart, fetchEnd);
+                            downloads.put(key, readings);
+                            readings.forEach(rollupEngine::add);
+                        }
+                        // stored in the background while the next period downloads
+                        CompletableFuture<Void> stored = persistenceWriter.write(persistenceService, entry.getKey(),
+                                readings, persistedTimestamps.get(entry.getKey()));
+                        storedPeriods.add(new StoredPeriod(coverage, fetchStart, fetchEnd, stored));
+                    }
+                }
+            }
+        } finally {
+            persistenceWriter.flush();
+            // periods that failed to store stay as gaps, so that they are fetched again on the next refresh
+            for (StoredPeriod period : storedPeriods) {
+                if (!period.stored.isCompletedExceptionally()) {
+                    period.coverage.add(period.start, period.end);
+                }
+            }
+            for (Map.Entry<Item, CoverageTracker> entry : coverages.entrySet()) {
+                entry.getValue().removeBefore(persistenceQueryStartDate.toInstant());
+                coverageStorage.put(coverageKey(resourceId, entry.getKey()), entry.getValue().encode());
+            }
+            updateRollups(resourceId, rollupEngine);
         }
+        if (lastTime.isBefore(now.minus(CATCHUP_LAG))) {
+            startCatchup(resourceId, lastTime, planner.getPeriod(lastTime, now));
+        }
+    }
 
-        if (fetchStart.isBefore(fetchEnd)) {
-            batchFetchHistoricData(resourceId, item, fetchStart, fetchEnd);
+    /**
+     * Ask Glowmarkt to catch up with the meter in the background, unless it is already doing so or did so recently.
+     * Once the new readings arrive they are cached and the resource refreshed, which persists just the new readings.
+     */
+    private void startCatchup(String resourceId, Instant lastTime, AggregationPeriod period) throws AuthenticationFailedException, IOException {
+        GlowmarktSession session = getBridgeHandler().getGlowmarktSession();
+        GlowmarktSettings settings = getBridgeHandler().getGlowmarktSettings();
+        catchups.compute(resourceId, (id, existing) -> {
+            if (existing != null && !existing.isDone()) {
+                return existing;
+            }
+            Instant now = Instant.now();
+            Instant lastStart = catchupStarts.get(id);
+            if (lastStart != null && now.isBefore(lastStart.plus(CATCHUP_MIN_INTERVAL))) {
+                logger.debug("Readings for {} are behind at {}, but a catch-up was requested at {}", id, lastTime, lastStart);
+                return existing;
+            }
+            catchupStarts.put(id, now);
+            logger.debug("Readings for {} are behind at {}, requesting catch-up", id, lastTime);
+            CompletableFuture<List<ResourceData>> catchup = glowmarktService.catchup(session, settings, id, period,
+                                                                                      AggregationFunction.SUM);
+            catchup.whenCompleteAsync((readings, e) -> catchupCompleted(id, session, settings, lastTime, readings, e),
+                                      scheduler);
+            return catchup;
+        });
+    }
+
+    private void catchupCompleted(String resourceId, GlowmarktSession session, GlowmarktSettings settings,
+                                  Instant lastTime, List<ResourceData> readings, Throwable error) {
+        if (error != null) {
+            logger.debug("Unable to catch up readings for {}: {}", resourceId, error.getMessage());
+            return;
+        }
+        if (readings.isEmpty()) {
+            logger.debug("No new readings for {} after catch-up", resourceId);
+            return;
+        }
+        try {
+            Instant newLastTime = glowmarktService.getLastTime(session, settings, resourceId);
+            readingsCache.put(resourceId, lastTime, newLastTime, readings);
+        } catch (AuthenticationFailedException | IOException e) {
+            logger.debug("Unable to fetch last time after catch-up for {}: {}", resourceId, e.getMessage());
+            return;
+        }
+        for (Channel channel : getThing().getChannels()) {
+            if (channel.getProperties().containsKey(PROPERTY_CLASSIFIER) &&
+                    resourceId.equals(channel.getProperties().get(PROPERTY_RESOURCE_ID))) {
+                handleCommand(channel.getUID(), RefreshType.REFRESH);
+            }
         }
     }
 
-    private void batchFetchHistoricData(String resourceId, Item item, Instant fetchStart, Instant fetchEnd) throws AuthenticationFailedException, IOException {
-        AggregationPeriod aggregationPeriod = PT30M;
-        TemporalAmount timeStep = getMaxDuration(aggregationPeriod);
-        for (Instant t = fetchStart; t.isBefore(fetchEnd); t = t.plus(timeStep)) {
-            Instant t2 = t.plus(timeStep);
-            if (t2.isAfter(fetchEnd)) {
-                t2 = fetchEnd;
+    private static String coverageKey(String resourceId, Item item) {
+        return resourceId + "/" + item.getName();
+    }
+
+    private CoverageTracker loadCoverage(Storage<String> coverageStorage, String key, Set<Instant> persistedTimestamps,
+                                         BackfillPlanner planner, Instant now) {
+        String encoded = coverageStorage.get(key);
+        if (encoded != null) {
+            try {
+                return CoverageTracker.decode(encoded);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unable to decode coverage for {}, estimating it from persisted readings: {}", key, e.getMessage());
             }
-            List<ResourceData> resourceReadings = glowmarktService.getResourceReadings(getBridgeHandler().getGlowmarktSession(),
-                    getBridgeHandler().getGlowmarktSettings(),
-                    resourceId,
-                    t,
-                    t2,
-                    aggregationPeriod,
-                    AggregationFunction.SUM);
-            resourceReadings.forEach(r -> {
-                        getBridgeHandler().getPersistenceService().store(item, ZonedDateTime.ofInstant(r.getTimestamp(), ZoneId.systemDefault()), new DecimalType(r.getReading()));
-                    });
         }
+        return CoverageTracker.fromTimestamps(persistedTimestamps, t -> planner.getResolution(t, now));
+    }
+
+    private List<ResourceData> findPersistedReadings(ModifiablePersistenceService persistenceService, Item item,
+                                                     ZonedDateTime persistenceQueryStartDate, ZonedDateTime persistenceQueryEndDate) {
+        FilterCriteria filterCriteria = new FilterCriteria();
+        filterCriteria.setBeginDate(persistenceQueryStartDate);
+        filterCriteria.setEndDate(persistenceQueryEndDate);
+        filterCriteria.setItemName(item.getName());
+        List<ResourceData> readings = new ArrayList<>();
+        for (HistoricItem historicItem : persistenceService.query(filterCriteria)) {
+            DecimalType value = historicItem.getState().as(DecimalType.class);
+            readings.add(new ResourceData(value != null ? value.doubleValue() : 0.0, historicItem.getTimestamp().toInstant()));
+        }
+        return readings;
+    }
+
+    private GlowmarktBridgeHandler getBridgeHandler() {
+        return (GlowmarktBridgeHandler) getBridge().getHandler();
     }
 
-    private TemporalAmount getMaxDuration(AggregationPeriod period) {
-        return Map.of(PT30M, ofDays(10),
-                PT1H, ofDays(31),
-                P1D, ofDays(31),
-                P1W, ofDays(6 * 7),
-                P1M, ofDays(366),
-                P1Y, ofDays(366)).get(period);
+    private List<ResourceData> getReadings(String resourceId, Instant fetchStart, Instant fetchEnd) throws AuthenticationFailedException, IOException {
+        List<ResourceData> cached = readingsCache.get(resourceId, fetchStart, fetchEnd);
+        if (cached != null) {
+            return cached;
+        }
+        List<ResourceData> readings = new ArrayList<>();
+        for (BackfillPlanner.Fetch fetch : getBridgeHandler().getBackfillPlanner().plan(fetchStart, fetchEnd, Instant.now())) {
+            readings.addAll(glowmarktService.getResourceReadings(getBridgeHandler().getGlowmarktSession(),
+                    getBridgeHandler().getGlowmarktSettings(),
+                    resourceId,
+                    fetch.from,
+                    fetch.to,
+                    fetch.period,
+                    AggregationFunction.SUM));
+        }
+        readingsCache.put(resourceId, fetchStart, fetchEnd, readings);
+        return readings;
     }
 }
@@ -0,0 +1,107 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import com.qubular.glowmarkt.ResourceData;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.ModifiablePersistenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Stores readings in the background in chunks, skipping readings whose timestamps have already been persisted. Only a
+ * limited number of chunks may be waiting to be stored, after which writing blocks until the persistence service has
+ * caught up. Since readings are stored after the write returns, each write returns a future that reports whether all
+ * of its readings were stored.
+ */
+class PersistenceWriter {
+    private static final Logger logger = LoggerFactory.getLogger(PersistenceWriter.class);
+    static final int DEFAULT_CHUNK_SIZE = 500;
+    static final int DEFAULT_MAX_PENDING_CHUNKS = 4;
+
+    private final Executor executor;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+    private final Semaphore pendingChunks;
+
+    PersistenceWriter(Executor executor, int chunkSize, int maxPendingChunks) {
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = maxPendingChunks;
+        this.pendingChunks = new Semaphore(maxPendingChunks);
+    }
+
+    /**
+     * Queue the readings to be stored for the item.
+     * @param persisted The timestamps already persisted for the item, to which the timestamps of the queued readings
+     *                  are added.
+     * @return A future that completes once all the queued readings have been stored, or completes exceptionally if
+     * any of them couldn't be stored.
+     */
+    CompletableFuture<Void> write(ModifiablePersistenceService persistenceService, Item item, List<ResourceData> readings,
+                                  Set<Instant> persisted) throws InterruptedException {
+        ZoneId zone = ZoneId.systemDefault();
+        List<CompletableFuture<Void>> stored = new ArrayList<>();
+        List<ResourceData> chunk = new ArrayList<>(chunkSize);
+        for (ResourceData reading : readings) {
+            if (persisted.add(reading.getTimestamp())) {
+                chunk.add(reading);
+                if (chunk.size() == chunkSize) {
+                    stored.add(submit(persistenceService, item, chunk, zone));
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            stored.add(submit(persistenceService, item, chunk, zone));
+        }
+        return CompletableFuture.allOf(stored.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Wait until all the readings queued so far have been stored, after which the futures returned by
+     * {@link #write} are complete.
+     */
+    void flush() throws InterruptedException {
+        pendingChunks.acquire(maxPendingChunks);
+        pendingChunks.release(maxPendingChunks);
+    }
+
+    private CompletableFuture<Void> submit(ModifiablePersistenceService persistenceService, Item item,
+                                           List<ResourceData> chunk, ZoneId zone) throws InterruptedException {
+        CompletableFuture<Void> stored = new CompletableFuture<>();
+        pendingChunks.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    for (ResourceData reading : chunk) {
+                        persistenceService.store(item, ZonedDateTime.ofInstant(reading.getTimestamp(), zone),
+                                                 new DecimalType(reading.getReading()));
+                    }
+                    logger.trace("Stored {} readings for {}", chunk.size(), item.getName());
+                    stored.complete(null);
+                } catch (RuntimeException e) {
+                    logger.warn("Unable to store readings for {}: {}", item.getName(), e.getMessage());
+                    logger.debug("Unable to store readings", e);
+                    stored.completeExceptionally(e);
+                } finally {
+                    pendingChunks.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingChunks.release();
+            throw e;
+        }
+        return stored;
+    }
+}
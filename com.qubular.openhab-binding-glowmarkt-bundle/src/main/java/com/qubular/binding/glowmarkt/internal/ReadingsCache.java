@@ -0,0 +1,89 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import com.qubular.glowmarkt.ResourceData;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The most recently downloaded readings of each resource, so that refreshing a resource several times in quick
+ * succession downloads its readings only once. Each resource keeps a single contiguous window of readings no longer
+ * than the window size, which is discarded once it is older than the TTL.
+ */
+class ReadingsCache {
+    static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    static final Duration DEFAULT_WINDOW = Duration.ofDays(10);
+
+    private static class Window {
+        final Instant from;
+        final Instant to;
+        final Instant fetched;
+        final NavigableMap<Instant, ResourceData> readings;
+
+        Window(Instant from, Instant to, Instant fetched, NavigableMap<Instant, ResourceData> readings) {
+            this.from = from;
+            this.to = to;
+            this.fetched = fetched;
+            this.readings = readings;
+        }
+    }
+
+    private final Clock clock;
+    private final Duration ttl;
+    private final Duration windowSize;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    ReadingsCache(Clock clock, Duration ttl, Duration windowSize) {
+        this.clock = clock;
+        this.ttl = ttl;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * @return The cached readings from the start to the end time inclusive, or null if they are not all cached.
+     */
+    List<ResourceData> get(String resourceId, Instant from, Instant to) {
+        Window window = windows.get(resourceId);
+        if (window == null || !isFresh(window) || from.isBefore(window.from) || to.isAfter(window.to)) {
+            return null;
+        }
+        return new ArrayList<>(window.readings.subMap(from, true, to, true).values());
+    }
+
+    /**
+     * Cache the readings downloaded from the start to the end time, merging them with the cached window if they
+     * overlap it.
+     */
+    void put(String resourceId, Instant from, Instant to, List<ResourceData> readings) {
+        windows.compute(resourceId, (id, window) -> {
+            NavigableMap<Instant, ResourceData> merged = new TreeMap<>();
+            Instant mergedFrom = from;
+            Instant mergedTo = to;
+            Instant fetched = clock.instant();
+            if (window != null && isFresh(window) && !from.isAfter(window.to) && !to.isBefore(window.from)) {
+                merged.putAll(window.readings);
+                mergedFrom = from.isBefore(window.from) ? from : window.from;
+                mergedTo = to.isAfter(window.to) ? to : window.to;
+                fetched = window.fetched;
+            }
+            readings.forEach(r -> merged.put(r.getTimestamp(), r));
+            Instant windowStart = mergedTo.minus(windowSize);
+            if (mergedFrom.isBefore(windowStart)) {
+                mergedFrom = windowStart;
+                merged.headMap(windowStart, false).clear();
+            }
+            return new Window(mergedFrom, mergedTo, fetched, merged);
+        });
+    }
+
+    private boolean isFresh(Window window) {
+        return clock.instant().isBefore(window.fetched.plus(ttl));
+    }
+}
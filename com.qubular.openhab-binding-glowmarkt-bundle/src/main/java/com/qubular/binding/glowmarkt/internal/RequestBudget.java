@@ -0,0 +1,39 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A fixed number of requests allowed in each period, so that frequent polling cannot use up the API rate limit that
+ * the scheduled history updates also rely on. The budget is renewed in full at the start of each period.
+ */
+class RequestBudget {
+    private final Clock clock;
+    private final int maxRequests;
+    private final Duration period;
+    private Instant periodStart;
+    private int used;
+
+    RequestBudget(Clock clock, int maxRequests, Duration period) {
+        this.clock = clock;
+        this.maxRequests = maxRequests;
+        this.period = period;
+    }
+
+    /**
+     * @return true if the request may be sent, having been counted against the budget.
+     */
+    synchronized boolean tryAcquire() {
+        Instant now = clock.instant();
+        if (periodStart == null || !now.isBefore(periodStart.plus(period))) {
+            periodStart = now;
+            used = 0;
+        }
+        if (used >= maxRequests) {
+            return false;
+        }
+        ++used;
+        return true;
+    }
+}
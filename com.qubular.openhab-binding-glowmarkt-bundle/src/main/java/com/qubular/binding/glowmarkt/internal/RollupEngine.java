@@ -0,0 +1,131 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import com.qubular.glowmarkt.ResourceData;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Running totals of a resource's readings for the current day, week, month and year, with calendar boundaries in the
+ * given time zone and weeks starting on Monday. Each reading updates the totals in constant time. Readings are
+ * expected in order: a reading no later than the latest reading already counted is ignored, and a reading in a later
+ * period starts a new total for that period.
+ */
+class RollupEngine {
+    enum Period {
+        DAY,
+        WEEK,
+        MONTH,
+        YEAR;
+
+        LocalDate start(LocalDate date) {
+            switch (this) {
+                case DAY:
+                    return date;
+                case WEEK:
+                    return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH:
+                    return date.withDayOfMonth(1);
+                default:
+                    return date.withDayOfYear(1);
+            }
+        }
+    }
+
+    private static class Rollup {
+        final LocalDate start;
+        double total;
+
+        Rollup(LocalDate start, double total) {
+            this.start = start;
+            this.total = total;
+        }
+    }
+
+    private final ZoneId zone;
+    private final Map<Period, Rollup> rollups = new EnumMap<>(Period.class);
+    private Instant latest;
+
+    RollupEngine(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    synchronized void add(ResourceData reading) {
+        if (latest != null && !reading.getTimestamp().isAfter(latest)) {
+            return;
+        }
+        latest = reading.getTimestamp();
+        LocalDate date = LocalDate.ofInstant(reading.getTimestamp(), zone);
+        for (Period period : Period.values()) {
+            LocalDate start = period.start(date);
+            Rollup rollup = rollups.get(period);
+            if (rollup == null || start.isAfter(rollup.start)) {
+                rollups.put(period, new Rollup(start, reading.getReading()));
+            } else {
+                rollup.total += reading.getReading();
+            }
+        }
+    }
+
+    /**
+     * @return The total of the readings so far in the period containing the given time.
+     */
+    synchronized double getTotal(Period period, Instant now) {
+        Rollup rollup = rollups.get(period);
+        return rollup != null && rollup.start.equals(period.start(LocalDate.ofInstant(now, zone))) ? rollup.total : 0.0;
+    }
+
+    /**
+     * @return The time of the latest reading counted, or null if there are none.
+     */
+    synchronized Instant getLatest() {
+        return latest;
+    }
+
+    /**
+     * @return The state as <code>zone|latest|period=start:total|...</code>, with the latest reading in epoch seconds.
+     */
+    synchronized String encode() {
+        StringBuilder sb = new StringBuilder(zone.getId()).append('|');
+        if (latest != null) {
+            sb.append(latest.getEpochSecond());
+        }
+        for (Map.Entry<Period, Rollup> entry : rollups.entrySet()) {
+            sb.append('|').append(entry.getKey()).append('=')
+                    .append(entry.getValue().start).append(':').append(entry.getValue().total);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The decoded state, or null if it was encoded for a different time zone.
+     * @throws IllegalArgumentException if the state cannot be decoded.
+     */
+    static RollupEngine decode(String encoded, ZoneId zone) {
+        try {
+            String[] parts = encoded.split("\\|", -1);
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Invalid rollup state " + encoded);
+            }
+            if (!zone.getId().equals(parts[0])) {
+                return null;
+            }
+            RollupEngine engine = new RollupEngine(zone);
+            engine.latest = parts[1].isEmpty() ? null : Instant.ofEpochSecond(Long.parseLong(parts[1]));
+            for (int i = 2; i < parts.length; ++i) {
+                String[] periodAndRollup = parts[i].split("=");
+                String[] startAndTotal = periodAndRollup[1].split(":");
+                engine.rollups.put(Period.valueOf(periodAndRollup[0]),
+                                   new Rollup(LocalDate.parse(startAndTotal[0]), Double.parseDouble(startAndTotal[1])));
+            }
+            return engine;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid rollup state " + encoded, e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import com.qubular.glowmarkt.AuthenticationFailedException;
+import com.qubular.glowmarkt.TariffData;
+import com.qubular.glowmarkt.TariffPlanDetail;
+import com.qubular.glowmarkt.TariffResponse;
+import com.qubular.glowmarkt.TariffStructure;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The tariffs of each resource, indexed by the time from which they take effect. A resource's tariffs are fetched
+ * again once the next tariff known at the time of fetching takes effect, or after the TTL in case the tariff has been
+ * changed.
+ */
+class TariffCache {
+    static final Duration DEFAULT_TTL = Duration.ofHours(12);
+
+    interface TariffFetcher {
+        TariffResponse fetch(String resourceId) throws AuthenticationFailedException, IOException;
+    }
+
+    static class Tariff {
+        private final TariffData data;
+        private final Map<String, TariffPlanDetail> planDetails = new HashMap<>();
+
+        private Tariff(TariffData data) {
+            this.data = data;
+            for (TariffStructure structure : data.getStructure()) {
+                for (TariffPlanDetail planDetail : structure.getPlanDetails()) {
+                    planDetails.putIfAbsent(key(structure.getId(), planDetail.getId()), planDetail);
+                }
+            }
+        }
+
+        TariffData getData() {
+            return data;
+        }
+
+        Optional<TariffPlanDetail> getPlanDetail(String structureId, String planDetailId) {
+            return Optional.ofNullable(planDetails.get(key(structureId, planDetailId)));
+        }
+
+        private static String key(String structureId, String planDetailId) {
+            return structureId + "/" + planDetailId;
+        }
+    }
+
+    static class Tariffs {
+        private final String name;
+        private final NavigableMap<LocalDateTime, Tariff> tariffsByFrom = new TreeMap<>();
+        private final LocalDateTime expiry;
+
+        private Tariffs(TariffResponse response, LocalDateTime fetched, Duration ttl) {
+            this.name = response.getName();
+            for (TariffData data : response.getData()) {
+                if (data.getFrom() != null) {
+                    tariffsByFrom.putIfAbsent(data.getFrom(), new Tariff(data));
+                }
+            }
+            LocalDateTime nextBoundary = tariffsByFrom.higherKey(fetched);
+            LocalDateTime ttlExpiry = fetched.plus(ttl);
+            this.expiry = nextBoundary != null && nextBoundary.isBefore(ttlExpiry) ? nextBoundary : ttlExpiry;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return The tariff that took effect most recently before the given time.
+         */
+        Optional<Tariff> getEffectiveTariff(LocalDateTime now) {
+            return Optional.ofNullable(tariffsByFrom.lowerEntry(now)).map(Map.Entry::getValue);
+        }
+    }
+
+    private final Clock clock;
+    private final Duration ttl;
+    private final Map<String, Tariffs> tariffs = new ConcurrentHashMap<>();
+
+    TariffCache(Clock clock, Duration ttl) {
+        this.clock = clock;
+        this.ttl = ttl;
+    }
+
+    /**
+     * @return The tariffs for the resource, fetched if they are not cached or are due to be refreshed.
+     */
+    Tariffs get(String resourceId, TariffFetcher fetcher) throws AuthenticationFailedException, IOException {
+        Tariffs cached = getIfFresh(resourceId);
+        return cached != null ? cached : fetch(resourceId, fetcher);
+    }
+
+    /**
+     * @return The cached tariffs for the resource, or null if they need to be fetched.
+     */
+    Tariffs getIfFresh(String resourceId) {
+        Tariffs cached = tariffs.get(resourceId);
+        return cached != null && now().isBefore(cached.expiry) ? cached : null;
+    }
+
+    Tariffs fetch(String resourceId, TariffFetcher fetcher) throws AuthenticationFailedException, IOException {
+        Tariffs fetched = new Tariffs(fetcher.fetch(resourceId), now(), ttl);
+        tariffs.put(resourceId, fetched);
+        return fetched;
+    }
+
+    LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+}
@@ -0,0 +1,110 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static com.qubular.glowmarkt.AggregationPeriod.*;
+import static java.time.Instant.parse;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackfillPlannerTest {
+    private static final Instant NOW = parse("2022-11-15T12:10:00Z");
+
+    private static void assertFetch(String from, String to, Object period, BackfillPlanner.Fetch fetch) {
+        assertEquals(parse(from), fetch.from);
+        assertEquals(parse(to), fetch.to);
+        assertEquals(period, fetch.period);
+    }
+
+    @Test
+    public void recentHistoryIsFetchedAtHalfHourResolution() {
+        BackfillPlanner planner = new BackfillPlanner(BackfillPlanner.DEFAULT_RESOLUTION_POLICY);
+
+        List<BackfillPlanner.Fetch> fetches = planner.plan(parse("2022-11-01T00:00:00Z"), NOW, NOW);
+
+        assertEquals(2, fetches.size());
+        assertFetch("2022-11-01T00:00:00Z", "2022-11-11T00:00:00Z", PT30M, fetches.get(0));
+        assertFetch("2022-11-11T00:00:00Z", "2022-11-15T12:10:00Z", PT30M, fetches.get(1));
+    }
+
+    @Test
+    public void olderHistoryIsFetchedAtCoarserResolution() {
+        BackfillPlanner planner = new BackfillPlanner(BackfillPlanner.DEFAULT_RESOLUTION_POLICY);
+
+        List<BackfillPlanner.Fetch> fetches = planner.plan(parse("2021-11-15T12:10:00Z"), NOW, NOW);
+
+        // half hours up to the first whole day, 6 months of days, 5 months of hours, 31 days of half hours
+        assertFetch("2021-11-15T12:00:00Z", "2021-11-16T00:00:00Z", PT30M, fetches.get(0));
+        assertFetch("2021-11-16T00:00:00Z", "2021-12-17T00:00:00Z", P1D, fetches.get(1));
+        assertFetch("2022-04-20T00:00:00Z", "2022-05-15T00:00:00Z", P1D, fetches.get(6));
+        assertFetch("2022-05-15T00:00:00Z", "2022-06-15T00:00:00Z", PT1H, fetches.get(7));
+        assertFetch("2022-09-16T00:00:00Z", "2022-10-15T12:00:00Z", PT1H, fetches.get(11));
+        assertFetch("2022-10-15T12:00:00Z", "2022-10-25T12:00:00Z", PT30M, fetches.get(12));
+        assertFetch("2022-11-14T12:00:00Z", "2022-11-15T12:10:00Z", PT30M, fetches.get(15));
+        assertEquals(16, fetches.size());
+    }
+
+    @Test
+    public void olderGapsFetchPartialPeriodsAtFinestResolution() {
+        BackfillPlanner planner = new BackfillPlanner(BackfillPlanner.DEFAULT_RESOLUTION_POLICY);
+
+        List<BackfillPlanner.Fetch> days = planner.plan(parse("2022-03-03T08:00:00Z"), parse("2022-03-20T17:30:00Z"), NOW);
+        assertEquals(3, days.size());
+        assertFetch("2022-03-03T08:00:00Z", "2022-03-04T00:00:00Z", PT30M, days.get(0));
+        assertFetch("2022-03-04T00:00:00Z", "2022-03-20T00:00:00Z", P1D, days.get(1));
+        assertFetch("2022-03-20T00:00:00Z", "2022-03-20T17:30:00Z", PT30M, days.get(2));
+
+        List<BackfillPlanner.Fetch> hours = planner.plan(parse("2022-06-03T13:10:00Z"), parse("2022-06-03T15:40:00Z"), NOW);
+        assertEquals(3, hours.size());
+        assertFetch("2022-06-03T13:00:00Z", "2022-06-03T14:00:00Z", PT30M, hours.get(0));
+        assertFetch("2022-06-03T14:00:00Z", "2022-06-03T15:00:00Z", PT1H, hours.get(1));
+        assertFetch("2022-06-03T15:00:00Z", "2022-06-03T15:40:00Z", PT30M, hours.get(2));
+
+        List<BackfillPlanner.Fetch> partOfDay = planner.plan(parse("2022-03-03T08:00:00Z"), parse("2022-03-03T10:00:00Z"), NOW);
+        assertEquals(1, partOfDay.size());
+        assertFetch("2022-03-03T08:00:00Z", "2022-03-03T10:00:00Z", PT30M, partOfDay.get(0));
+    }
+
+    @Test
+    public void weeklyAndMonthlyRequestsCoverWholePeriods() {
+        List<BackfillPlanner.Fetch> weekly = new BackfillPlanner("PT30M/P1D,P1W")
+                .plan(parse("2022-08-03T08:00:00Z"), parse("2022-11-01T00:00:00Z"), NOW);
+        assertEquals(4, weekly.size());
+        assertFetch("2022-08-03T08:00:00Z", "2022-08-08T00:00:00Z", PT30M, weekly.get(0));
+        assertFetch("2022-08-08T00:00:00Z", "2022-09-19T00:00:00Z", P1W, weekly.get(1));
+        assertFetch("2022-09-19T00:00:00Z", "2022-10-31T00:00:00Z", P1W, weekly.get(2));
+        assertFetch("2022-10-31T00:00:00Z", "2022-11-01T00:00:00Z", PT30M, weekly.get(3));
+
+        List<BackfillPlanner.Fetch> monthly = new BackfillPlanner("PT30M/P1D,P1M")
+                .plan(parse("2020-03-03T08:00:00Z"), parse("2022-11-01T00:00:00Z"), NOW);
+        assertEquals(6, monthly.size());
+        assertFetch("2020-03-23T08:00:00Z", "2020-04-01T00:00:00Z", PT30M, monthly.get(2));
+        assertFetch("2020-04-01T00:00:00Z", "2021-04-01T00:00:00Z", P1M, monthly.get(3));
+        assertFetch("2021-04-01T00:00:00Z", "2022-04-01T00:00:00Z", P1M, monthly.get(4));
+        assertFetch("2022-04-01T00:00:00Z", "2022-11-01T00:00:00Z", P1M, monthly.get(5));
+    }
+
+    @Test
+    public void findsPeriodForAge() {
+        BackfillPlanner planner = new BackfillPlanner(BackfillPlanner.DEFAULT_RESOLUTION_POLICY);
+
+        assertEquals(PT30M, planner.getPeriod(parse("2022-10-15T12:00:00Z"), NOW));
+        assertEquals(PT1H, planner.getPeriod(parse("2022-10-15T11:59:59Z"), NOW));
+        assertEquals(PT1H, planner.getPeriod(parse("2022-05-15T00:00:00Z"), NOW));
+        assertEquals(P1D, planner.getPeriod(parse("2022-05-14T23:59:59Z"), NOW));
+        assertEquals(Duration.ofMinutes(30), planner.getResolution(NOW, NOW));
+        assertEquals(Duration.ofDays(31), planner.getMaxRequestDuration(parse("2022-01-01T00:00:00Z"), NOW));
+    }
+
+    @Test
+    public void rejectsInvalidPolicies() {
+        assertThrows(IllegalArgumentException.class, () -> new BackfillPlanner("PT30M/P31D,PT1H/P6M"));
+        assertThrows(IllegalArgumentException.class, () -> new BackfillPlanner("PT30M/P6M,PT1H/P31D,P1D"));
+        assertThrows(IllegalArgumentException.class, () -> new BackfillPlanner("PT1M/P1D,P1D"));
+        assertThrows(IllegalArgumentException.class, () -> new BackfillPlanner("PT30M/31 days,P1D"));
+        assertThrows(IllegalArgumentException.class, () -> new BackfillPlanner("PT15M/P1D,P1D"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static java.time.Instant.parse;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoverageTrackerTest {
+    private static void assertInterval(String start, String end, CoverageTracker.Interval interval) {
+        assertEquals(parse(start), interval.start);
+        assertEquals(parse(end), interval.end);
+    }
+
+    @Test
+    public void findsGapsBetweenFetchedPeriods() {
+        CoverageTracker coverage = new CoverageTracker();
+        coverage.add(parse("2022-11-02T00:00:00Z"), parse("2022-11-03T00:00:00Z"));
+        coverage.add(parse("2022-11-05T00:00:00Z"), parse("2022-11-06T00:00:00Z"));
+        coverage.add(parse("2022-11-02T12:00:00Z"), parse("2022-11-04T00:00:00Z"));
+
+        List<CoverageTracker.Interval> gaps = coverage.findGaps(parse("2022-11-01T00:00:00Z"), parse("2022-11-07T00:00:00Z"));
+
+        assertEquals(3, gaps.size());
+        assertInterval("2022-11-01T00:00:00Z", "2022-11-02T00:00:00Z", gaps.get(0));
+        assertInterval("2022-11-04T00:00:00Z", "2022-11-05T00:00:00Z", gaps.get(1));
+        assertInterval("2022-11-06T00:00:00Z", "2022-11-07T00:00:00Z", gaps.get(2));
+        assertTrue(coverage.findGaps(parse("2022-11-02T06:00:00Z"), parse("2022-11-03T18:00:00Z")).isEmpty());
+    }
+
+    @Test
+    public void mergesAdjacentAndOverlappingPeriods() {
+        CoverageTracker coverage = new CoverageTracker();
+        coverage.add(parse("2022-11-01T00:00:00Z"), parse("2022-11-02T00:00:00Z"));
+        coverage.add(parse("2022-11-03T00:00:00Z"), parse("2022-11-04T00:00:00Z"));
+        coverage.add(parse("2022-11-02T00:00:00Z"), parse("2022-11-03T00:00:00Z"));
+        coverage.add(parse("2022-10-31T00:00:00Z"), parse("2022-11-05T00:00:00Z"));
+
+        assertEquals("1667174400-1667606400", coverage.encode());
+    }
+
+    @Test
+    public void encodesAndDecodesCoverage() {
+        CoverageTracker coverage = new CoverageTracker();
+        coverage.add(parse("2022-11-01T00:00:00Z"), parse("2022-11-02T00:00:00Z"));
+        coverage.add(parse("2022-11-03T00:00:00Z"), parse("2022-11-04T00:00:00Z"));
+        coverage.removeBefore(parse("2022-11-01T12:00:00Z"));
+
+        CoverageTracker decoded = CoverageTracker.decode(coverage.encode());
+
+        assertEquals("1667304000-1667347200,1667433600-1667520000", decoded.encode());
+        assertEquals("", CoverageTracker.decode("").encode());
+        assertThrows(IllegalArgumentException.class, () -> CoverageTracker.decode("1667304000"));
+    }
+
+    @Test
+    public void estimatesCoverageFromPersistedTimestamps() {
+        CoverageTracker coverage = CoverageTracker.fromTimestamps(
+                List.of(parse("2022-11-01T01:00:00Z"), parse("2022-11-01T00:00:00Z"), parse("2022-11-01T00:30:00Z"),
+                        parse("2022-11-01T03:00:00Z"), parse("2022-11-01T03:30:00Z")),
+                t -> Duration.ofMinutes(30));
+
+        List<CoverageTracker.Interval> gaps = coverage.findGaps(parse("2022-11-01T00:00:00Z"), parse("2022-11-01T03:30:00Z"));
+
+        assertEquals(1, gaps.size());
+        assertInterval("2022-11-01T01:00:00Z", "2022-11-01T03:00:00Z", gaps.get(0));
+    }
+
+    @Test
+    public void mergesGapsThatFitInOneRequest() {
+        List<CoverageTracker.Interval> gaps = List.of(
+                new CoverageTracker.Interval(parse("2022-11-01T00:00:00Z"), parse("2022-11-02T00:00:00Z")),
+                new CoverageTracker.Interval(parse("2022-11-05T00:00:00Z"), parse("2022-11-06T00:00:00Z")),
+                new CoverageTracker.Interval(parse("2022-11-10T00:00:00Z"), parse("2022-11-12T00:00:00Z")));
+
+        List<CoverageTracker.Interval> merged = CoverageTracker.mergeGaps(gaps, t -> Duration.ofDays(10));
+
+        assertEquals(2, merged.size());
+        assertInterval("2022-11-01T00:00:00Z", "2022-11-06T00:00:00Z", merged.get(0));
+        assertInterval("2022-11-10T00:00:00Z", "2022-11-12T00:00:00Z", merged.get(1));
+    }
+}
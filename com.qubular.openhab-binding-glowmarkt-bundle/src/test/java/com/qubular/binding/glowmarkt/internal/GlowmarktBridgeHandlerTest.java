@@ -28,13 +28,17 @@ import org.osgi.service.cm.ConfigurationAdmin;
 import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.qubular.binding.glowmarkt.internal.GlowmarktConstants.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -225,6 +229,80 @@ class GlowmarktBridgeHandlerTest {
         verify(cronScheduler).schedule(any(SchedulerRunnable.class), eq("30 4 * * *"));
     }
 
+    @Test
+    public void concurrentRequestsShareOneAuthentication() throws Exception {
+        when(glowmarktService.authenticate(any(GlowmarktSettings.class), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(200);
+                    return new GlowmarktSession(Instant.now().plus(1, ChronoUnit.DAYS), "mytoken");
+                });
+        GlowmarktBridgeHandler handler = (GlowmarktBridgeHandler) new GlowmarktHandlerFactory(glowmarktService, serviceProvider, httpClientFactory,
+                                                                                             persistenceServiceRegistry,
+                                                                                             cronScheduler, configurationAdmin).createHandler(bridge);
+        bridgeHandler = handler;
+        handler.setCallback(mock(ThingHandlerCallback.class));
+        handler.initialize();
+
+        List<CompletableFuture<GlowmarktSession>> sessions = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            sessions.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return handler.getGlowmarktSession();
+                } catch (AuthenticationFailedException | IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+
+        for (CompletableFuture<GlowmarktSession> session : sessions) {
+            assertEquals("mytoken", session.get(3, TimeUnit.SECONDS).getToken());
+        }
+        verify(glowmarktService, times(1)).authenticate(any(GlowmarktSettings.class), eq("testuser"), eq("testpassword"));
+        assertSame(handler.getGlowmarktSettings(), handler.getGlowmarktSettings());
+        assertSame(handler.getBackfillPlanner(), handler.getBackfillPlanner());
+    }
+
+    @Test
+    public void renewsSessionBeforeItExpires() throws Exception {
+        when(glowmarktService.authenticate(any(GlowmarktSettings.class), anyString(), anyString()))
+                .thenReturn(new GlowmarktSession(Instant.now().plus(30, ChronoUnit.MINUTES), "expiringToken"),
+                            new GlowmarktSession(Instant.now().plus(1, ChronoUnit.DAYS), "renewedToken"));
+        GlowmarktBridgeHandler handler = (GlowmarktBridgeHandler) new GlowmarktHandlerFactory(glowmarktService, serviceProvider, httpClientFactory,
+                                                                                             persistenceServiceRegistry,
+                                                                                             cronScheduler, configurationAdmin).createHandler(bridge);
+        bridgeHandler = handler;
+        handler.setCallback(mock(ThingHandlerCallback.class));
+        handler.initialize();
+
+        verify(glowmarktService, timeout(3000).times(2)).authenticate(any(GlowmarktSettings.class), eq("testuser"), eq("testpassword"));
+        Instant deadline = Instant.now().plusSeconds(3);
+        String token = handler.getGlowmarktSession().getToken();
+        while (!"renewedToken".equals(token) && Instant.now().isBefore(deadline)) {
+            Thread.sleep(10);
+            token = handler.getGlowmarktSession().getToken();
+        }
+        assertEquals("renewedToken", token);
+    }
+
+    @Test
+    public void doesNotRenewSessionAfterDispose() throws Exception {
+        when(glowmarktService.authenticate(any(GlowmarktSettings.class), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(200);
+                    return new GlowmarktSession(Instant.now().plus(30, ChronoUnit.MINUTES), "expiringToken");
+                });
+        GlowmarktBridgeHandler handler = (GlowmarktBridgeHandler) new GlowmarktHandlerFactory(glowmarktService, serviceProvider, httpClientFactory,
+                                                                                             persistenceServiceRegistry,
+                                                                                             cronScheduler, configurationAdmin).createHandler(bridge);
+        handler.setCallback(mock(ThingHandlerCallback.class));
+        handler.initialize();
+        verify(glowmarktService, timeout(3000)).authenticate(any(GlowmarktSettings.class), eq("testuser"), eq("testpassword"));
+
+        handler.dispose();
+
+        verify(glowmarktService, after(1000).times(1)).authenticate(any(GlowmarktSettings.class), anyString(), anyString());
+    }
+
     private ThingHandler childVirtualEntityThingHandler() {
         Thing childThing = mock(Thing.class);
         ThingHandler childHandler = mock(ThingHandler.class);
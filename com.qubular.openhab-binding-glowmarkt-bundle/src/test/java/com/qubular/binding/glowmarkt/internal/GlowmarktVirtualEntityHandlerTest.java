@@ -11,9 +11,15 @@ import org.openhab.core.config.core.Configuration;
 import org.openhab.core.io.net.http.HttpClientFactory;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.unit.MetricPrefix;
+import org.openhab.core.library.unit.Units;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.ModifiablePersistenceService;
 import org.openhab.core.persistence.PersistenceServiceRegistry;
 import org.openhab.core.scheduler.CronScheduler;
+import org.openhab.core.test.storage.VolatileStorageService;
 import org.openhab.core.thing.*;
 import org.openhab.core.thing.binding.ThingHandler;
 import org.openhab.core.thing.binding.ThingHandlerCallback;
@@ -22,16 +28,21 @@ import org.openhab.core.thing.link.ItemChannelLinkRegistry;
 import org.openhab.core.thing.type.ChannelTypeRegistry;
 import org.openhab.core.thing.type.ChannelTypeUID;
 import org.openhab.core.types.RefreshType;
+import org.openhab.core.types.State;
 import org.osgi.service.cm.ConfigurationAdmin;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.qubular.binding.glowmarkt.internal.GlowmarktConstants.*;
@@ -88,6 +99,7 @@ class GlowmarktVirtualEntityHandlerTest {
         when(virtualEntity.getUID()).thenReturn(new ThingUID(THING_TYPE_VIRTUAL_ENTITY, VIRTUAL_ENTITY_ID));
         when(thingHandlerCallback.getBridge(bridgeUid)).thenReturn(bridge);
         when(virtualEntity.getProperties()).thenReturn(Map.of(PROPERTY_VIRTUAL_ENTITY_ID, VIRTUAL_ENTITY_ID));
+        when(virtualEntity.getConfiguration()).thenReturn(new Configuration());
         AtomicReference<Configuration> configuration = new AtomicReference<>(new Configuration(Map.of("username", "testuser",
                                                                                "password", "testpassword",
                                                                                "persistenceService", "mysql")));
@@ -99,6 +111,11 @@ class GlowmarktVirtualEntityHandlerTest {
         Hashtable<Object, Object> osgiConfigProps = new Hashtable<>();
         doReturn(osgiConfigProps).when(osgiConfig).getProperties();
         when(serviceProvider.getItemChannelLinkRegistry()).thenReturn(itemChannelLinkRegistry);
+        when(serviceProvider.getStorageService()).thenReturn(new VolatileStorageService());
+        when(serviceProvider.getTimeZoneProvider()).thenReturn(ZoneId::systemDefault);
+        when(glowmarktService.catchup(any(GlowmarktSession.class), any(GlowmarktSettings.class), anyString(),
+                                      any(AggregationPeriod.class), any(AggregationFunction.class)))
+                .thenReturn(new CompletableFuture<>());
         ChannelTypeRegistry channelTypeRegistry = new ChannelTypeRegistry();
         when(serviceProvider.getChannelTypeRegistry()).thenReturn(channelTypeRegistry);
 
@@ -198,7 +215,7 @@ class GlowmarktVirtualEntityHandlerTest {
         ArgumentCaptor<Thing> thingArgumentCaptor = ArgumentCaptor.forClass(Thing.class);
         verify(thingHandlerCallback).thingUpdated(thingArgumentCaptor.capture());
         List<Channel> channels = thingArgumentCaptor.getValue().getChannels();
-        assertEquals(6, channels.size());
+        assertEquals(22, channels.size());
         assertEquals("gas_consumption", channels.get(0).getChannelTypeUID().getId());
         assertEquals("gas.consumption", channels.get(0).getProperties().get("classifier"));
         assertEquals(GAS_CONSUMPTION_RESOURCE_ID, channels.get(0).getProperties().get("resourceId"));
@@ -218,6 +235,12 @@ class GlowmarktVirtualEntityHandlerTest {
         assertEquals("electricity consumption", channels.get(5).getProperties().get(PROPERTY_RESOURCE_NAME));
         assertEquals("1", channels.get(5).getProperties().get(PROPERTY_TIER));
         assertEquals(ELECTRICITY_CONSUMPTION_RESOURCE_ID, channels.get(5).getProperties().get("resourceId"));
+        assertEquals("gas_consumption_day", channels.get(6).getUID().getId());
+        assertEquals("rollup_day", channels.get(6).getChannelTypeUID().getId());
+        assertEquals("DAY", channels.get(6).getProperties().get(PROPERTY_ROLLUP_PERIOD));
+        assertEquals(GAS_CONSUMPTION_RESOURCE_ID, channels.get(6).getProperties().get("resourceId"));
+        assertEquals("electricity_consumption_year", channels.get(21).getUID().getId());
+        assertEquals("rollup_year", channels.get(21).getChannelTypeUID().getId());
     }
 
     private ThingHandler createThingHandler() {
@@ -331,6 +354,322 @@ class GlowmarktVirtualEntityHandlerTest {
                                          eq(new DecimalType("20.3")));
     }
 
+    @Test
+    public void refreshCommandDownloadsReadingsOnceForAllLinkedItems() throws AuthenticationFailedException, IOException {
+        successfullyAuthenticate();
+        gasAndElectricityDccMeter();
+
+        ThingHandler thingHandler = createThingHandler();
+        thingHandler.initialize();
+        verify(thingHandlerCallback, timeout(3000)).statusUpdated(any(Thing.class), any(ThingStatusInfo.class));
+
+        Item item1 = mock(Item.class);
+        when(item1.getName()).thenReturn("gasConsumption1");
+        Item item2 = mock(Item.class);
+        when(item2.getName()).thenReturn("gasConsumption2");
+        ChannelUID channelUID = new ChannelUID(virtualEntity.getUID(), "gas_consumption");
+        when(itemChannelLinkRegistry.getLinkedItems(channelUID)).thenReturn(Set.of(item1, item2));
+        Instant lastTime = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        Instant firstTime = lastTime.minus(15, ChronoUnit.DAYS);
+        when(glowmarktService.getFirstTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                           eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(firstTime);
+        when(glowmarktService.getLastTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                          eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(lastTime);
+        when(glowmarktService.getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                  eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                  any(Instant.class), eq(PT30M), eq(SUM)))
+                .thenAnswer(invocation -> List.of(new ResourceData(1.0, invocation.getArgument(3))));
+
+        thingHandler.handleCommand(channelUID, RefreshType.REFRESH);
+
+        verify(glowmarktService, times(1)).getFirstTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                        eq(GAS_CONSUMPTION_RESOURCE_ID));
+        verify(glowmarktService, times(1)).getLastTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                       eq(GAS_CONSUMPTION_RESOURCE_ID));
+        verify(glowmarktService, times(2)).getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                               eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                               any(Instant.class), eq(PT30M), eq(SUM));
+        for (Item item : List.of(item1, item2)) {
+            verify(persistenceService).store(same(item), eq(ZonedDateTime.ofInstant(firstTime, ZoneId.systemDefault())),
+                                             eq(new DecimalType("1.0")));
+            verify(persistenceService).store(same(item), eq(ZonedDateTime.ofInstant(firstTime.plus(10, ChronoUnit.DAYS),
+                                                                                    ZoneId.systemDefault())),
+                                             eq(new DecimalType("1.0")));
+        }
+    }
+
+    @Test
+    public void refreshCommandFillsGapsInPersistedReadings() throws AuthenticationFailedException, IOException {
+        successfullyAuthenticate();
+        gasAndElectricityDccMeter();
+
+        ThingHandler thingHandler = createThingHandler();
+        thingHandler.initialize();
+        verify(thingHandlerCallback, timeout(3000)).statusUpdated(any(Thing.class), any(ThingStatusInfo.class));
+
+        Item item = mock(Item.class);
+        when(item.getName()).thenReturn("gasConsumption");
+        ChannelUID channelUID = new ChannelUID(virtualEntity.getUID(), "gas_consumption");
+        when(itemChannelLinkRegistry.getLinkedItems(channelUID)).thenReturn(Set.of(item));
+        Instant lastTime = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        Instant firstTime = lastTime.minus(20, ChronoUnit.DAYS);
+        Instant holeStart = lastTime.minus(12, ChronoUnit.DAYS);
+        Instant holeEnd = lastTime.minus(11, ChronoUnit.DAYS);
+        List<HistoricItem> persisted = new ArrayList<>();
+        for (Instant t = firstTime; !t.isAfter(lastTime); t = t.plus(30, ChronoUnit.MINUTES)) {
+            if (t.isBefore(holeStart) || !t.isBefore(holeEnd)) {
+                persisted.add(historicItem(t));
+            }
+        }
+        when(persistenceService.query(any(FilterCriteria.class))).thenReturn(persisted);
+        when(glowmarktService.getFirstTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                           eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(firstTime);
+        when(glowmarktService.getLastTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                          eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(lastTime);
+        when(glowmarktService.getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                  eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                  any(Instant.class), eq(PT30M), eq(SUM)))
+                .thenAnswer(invocation -> {
+                    List<ResourceData> readings = new ArrayList<>();
+                    for (Instant t = invocation.getArgument(3); !t.isAfter(invocation.getArgument(4)); t = t.plus(30, ChronoUnit.MINUTES)) {
+                        readings.add(new ResourceData(1.0, t));
+                    }
+                    return readings;
+                });
+
+        thingHandler.handleCommand(channelUID, RefreshType.REFRESH);
+
+        verify(glowmarktService, times(1)).getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                               eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                               any(Instant.class), eq(PT30M), eq(SUM));
+        verify(glowmarktService).getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                     eq(GAS_CONSUMPTION_RESOURCE_ID),
+                                                     eq(holeStart.minus(30, ChronoUnit.MINUTES)), eq(holeEnd),
+                                                     eq(PT30M), eq(SUM));
+        verify(persistenceService, times(48)).store(same(item), any(ZonedDateTime.class), any(DecimalType.class));
+        verify(persistenceService).store(same(item), eq(ZonedDateTime.ofInstant(holeStart, ZoneId.systemDefault())),
+                                         eq(new DecimalType("1.0")));
+    }
+
+    @Test
+    public void periodsThatFailToStoreAreFetchedAgain() throws AuthenticationFailedException, IOException {
+        successfullyAuthenticate();
+        gasAndElectricityDccMeter();
+
+        ThingHandler thingHandler = createThingHandler();
+        thingHandler.initialize();
+        verify(thingHandlerCallback, timeout(3000)).statusUpdated(any(Thing.class), any(ThingStatusInfo.class));
+
+        Item item = mock(Item.class);
+        when(item.getName()).thenReturn("gasConsumption");
+        ChannelUID channelUID = new ChannelUID(virtualEntity.getUID(), "gas_consumption");
+        when(itemChannelLinkRegistry.getLinkedItems(channelUID)).thenReturn(Set.of(item));
+        Instant lastTime = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        Instant firstTime = lastTime.minus(5, ChronoUnit.DAYS);
+        when(glowmarktService.getFirstTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                           eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(firstTime);
+        when(glowmarktService.getLastTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                          eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(lastTime);
+        when(glowmarktService.getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                  eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                  any(Instant.class), eq(PT30M), eq(SUM)))
+                .thenAnswer(invocation -> List.of(new ResourceData(1.0, invocation.getArgument(3))));
+        doThrow(new IllegalStateException("database unavailable"))
+                .doNothing()
+                .when(persistenceService).store(same(item), any(ZonedDateTime.class), any(DecimalType.class));
+
+        thingHandler.handleCommand(channelUID, RefreshType.REFRESH);
+        thingHandler.handleCommand(channelUID, RefreshType.REFRESH);
+
+        verify(persistenceService, times(2)).store(same(item), eq(ZonedDateTime.ofInstant(firstTime, ZoneId.systemDefault())),
+                                                   eq(new DecimalType("1.0")));
+    }
+
+    private static HistoricItem historicItem(Instant timestamp) {
+        return new HistoricItem() {
+            @Override
+            public ZonedDateTime getTimestamp() {
+                return ZonedDateTime.ofInstant(timestamp, ZoneId.systemDefault());
+            }
+
+            @Override
+            public State getState() {
+                return new DecimalType("1.0");
+            }
+
+            @Override
+            public String getName() {
+                return "gasConsumption";
+            }
+        };
+    }
+
+    @Test
+    public void refreshCommandUpdatesRollupsFromDownloadedReadings() throws AuthenticationFailedException, IOException {
+        successfullyAuthenticate();
+        gasAndElectricityDccMeter();
+
+        ThingHandler thingHandler = createThingHandler();
+        thingHandler.initialize();
+        verify(thingHandlerCallback, timeout(3000)).statusUpdated(any(Thing.class), any(ThingStatusInfo.class));
+
+        Item item = mock(Item.class);
+        when(item.getName()).thenReturn("gasConsumption");
+        ChannelUID channelUID = new ChannelUID(virtualEntity.getUID(), "gas_consumption");
+        when(itemChannelLinkRegistry.getLinkedItems(channelUID)).thenReturn(Set.of(item));
+        Instant lastTime = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        Instant firstTime = lastTime.minus(15, ChronoUnit.DAYS);
+        when(glowmarktService.getFirstTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                           eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(firstTime);
+        when(glowmarktService.getLastTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                          eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(lastTime);
+        when(glowmarktService.getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                  eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                  any(Instant.class), eq(PT30M), eq(SUM)))
+                .thenAnswer(invocation -> List.of(new ResourceData(1.5, ((Instant) invocation.getArgument(4)).minus(30, ChronoUnit.MINUTES))));
+
+        thingHandler.handleCommand(channelUID, RefreshType.REFRESH);
+
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate today = LocalDate.now(zone);
+        double expectedToday = 0.0;
+        double expectedThisYear = 0.0;
+        for (Instant t : List.of(firstTime.plus(10, ChronoUnit.DAYS).minus(30, ChronoUnit.MINUTES),
+                                 lastTime.minus(30, ChronoUnit.MINUTES))) {
+            LocalDate date = LocalDate.ofInstant(t, zone);
+            expectedToday += date.equals(today) ? 1.5 : 0.0;
+            expectedThisYear += date.getYear() == today.getYear() ? 1.5 : 0.0;
+        }
+        verify(thingHandlerCallback).stateUpdated(new ChannelUID(virtualEntity.getUID(), "gas_consumption_day"),
+                                                  new DecimalType(expectedToday));
+        verify(thingHandlerCallback).stateUpdated(new ChannelUID(virtualEntity.getUID(), "gas_consumption_year"),
+                                                  new DecimalType(expectedThisYear));
+
+        thingHandler.handleCommand(new ChannelUID(virtualEntity.getUID(), "gas_consumption_year"), RefreshType.REFRESH);
+
+        verify(thingHandlerCallback, times(2)).stateUpdated(new ChannelUID(virtualEntity.getUID(), "gas_consumption_year"),
+                                                            new DecimalType(expectedThisYear));
+        verify(glowmarktService, times(2)).getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                               eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                               any(Instant.class), any(AggregationPeriod.class), eq(SUM));
+    }
+
+    @Test
+    public void refreshCommandUpdatesLinkedRollupsWhenReadingsAreNotLinked() throws AuthenticationFailedException, IOException {
+        successfullyAuthenticate();
+        gasAndElectricityDccMeter();
+
+        ThingHandler thingHandler = createThingHandler();
+        thingHandler.initialize();
+        verify(thingHandlerCallback, timeout(3000)).statusUpdated(any(Thing.class), any(ThingStatusInfo.class));
+
+        ChannelUID yearUID = new ChannelUID(virtualEntity.getUID(), "gas_consumption_year");
+        when(itemChannelLinkRegistry.getLinkedItems(yearUID)).thenReturn(Set.of(mock(Item.class)));
+        when(glowmarktService.getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                  eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                  any(Instant.class), any(AggregationPeriod.class), eq(SUM)))
+                .thenAnswer(invocation -> List.of(new ResourceData(1.5, invocation.getArgument(3))));
+
+        thingHandler.handleCommand(new ChannelUID(virtualEntity.getUID(), "gas_consumption"), RefreshType.REFRESH);
+
+        ZonedDateTime startOfYear = ZonedDateTime.now().with(TemporalAdjusters.firstDayOfYear()).truncatedTo(ChronoUnit.DAYS);
+        verify(glowmarktService).getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                     eq(GAS_CONSUMPTION_RESOURCE_ID),
+                                                     argThat((Instant from) -> !from.isAfter(startOfYear.toInstant())),
+                                                     any(Instant.class), any(AggregationPeriod.class), eq(SUM));
+        verify(thingHandlerCallback).stateUpdated(eq(yearUID), argThat(state -> ((DecimalType) state).doubleValue() >= 1.5));
+        verify(persistenceService, never()).store(any(Item.class), any(ZonedDateTime.class), any(State.class));
+    }
+
+    @Test
+    public void refreshCommandCatchesUpLaggingReadings() throws AuthenticationFailedException, IOException {
+        successfullyAuthenticate();
+        gasAndElectricityDccMeter();
+
+        ThingHandler thingHandler = createThingHandler();
+        thingHandler.initialize();
+        verify(thingHandlerCallback, timeout(3000)).statusUpdated(any(Thing.class), any(ThingStatusInfo.class));
+
+        Item item = mock(Item.class);
+        when(item.getName()).thenReturn("gasConsumption");
+        ChannelUID channelUID = new ChannelUID(virtualEntity.getUID(), "gas_consumption");
+        when(itemChannelLinkRegistry.getLinkedItems(channelUID)).thenReturn(Set.of(item));
+        Instant lastTime = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(6, ChronoUnit.HOURS);
+        Instant newLastTime = lastTime.plus(1, ChronoUnit.HOURS);
+        when(glowmarktService.getFirstTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                           eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(lastTime.minus(5, ChronoUnit.DAYS));
+        when(glowmarktService.getLastTime(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                          eq(GAS_CONSUMPTION_RESOURCE_ID)))
+                .thenReturn(lastTime, newLastTime);
+        when(glowmarktService.getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                  eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                  any(Instant.class), eq(PT30M), eq(SUM)))
+                .thenAnswer(invocation -> List.of(new ResourceData(1.0, invocation.getArgument(3))));
+        when(glowmarktService.catchup(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                      eq(GAS_CONSUMPTION_RESOURCE_ID), eq(PT30M), eq(SUM)))
+                .thenReturn(CompletableFuture.completedFuture(List.of(new ResourceData(2.0, lastTime),
+                                                                      new ResourceData(3.0, lastTime.plus(30, ChronoUnit.MINUTES)))),
+                            new CompletableFuture<>());
+
+        thingHandler.handleCommand(channelUID, RefreshType.REFRESH);
+
+        verify(persistenceService, timeout(3000)).store(same(item),
+                                                        eq(ZonedDateTime.ofInstant(lastTime.plus(30, ChronoUnit.MINUTES),
+                                                                                   ZoneId.systemDefault())),
+                                                        eq(new DecimalType("3.0")));
+        // the new readings come from the catch-up rather than another download
+        verify(glowmarktService, times(1)).getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                               eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                               any(Instant.class), any(AggregationPeriod.class), eq(SUM));
+        // the readings are still behind after the refresh, but another catch-up waits for the minimum interval
+        verify(glowmarktService, after(500).times(1)).catchup(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                              eq(GAS_CONSUMPTION_RESOURCE_ID), eq(PT30M), eq(SUM));
+    }
+
+    @Test
+    public void liveModeUpdatesCurrentPowerFromLatestMinute() throws AuthenticationFailedException, IOException {
+        successfullyAuthenticate();
+        gasAndElectricityDccMeter();
+        when(virtualEntity.getConfiguration()).thenReturn(new Configuration(Map.of("liveInterval", 60)));
+        when(glowmarktService.getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                  eq(ELECTRICITY_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                  any(Instant.class), eq(AggregationPeriod.PT1M), eq(SUM)))
+                .thenAnswer(invocation -> {
+                    Instant to = invocation.getArgument(4);
+                    return List.of(new ResourceData(0.01, to.minus(2, ChronoUnit.MINUTES)),
+                                   new ResourceData(0.0625, to.minus(1, ChronoUnit.MINUTES)));
+                });
+
+        ThingHandler thingHandler = createThingHandler();
+        thingHandler.initialize();
+
+        ChannelUID currentPower = new ChannelUID(virtualEntity.getUID(), "electricity_consumption_current_power");
+        verify(thingHandlerCallback, timeout(3000)).stateUpdated(currentPower, new QuantityType<>(3.75, MetricPrefix.KILO(Units.WATT)));
+        ArgumentCaptor<Instant> from = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> to = ArgumentCaptor.forClass(Instant.class);
+        verify(glowmarktService).getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                     eq(ELECTRICITY_CONSUMPTION_RESOURCE_ID), from.capture(),
+                                                     to.capture(), eq(AggregationPeriod.PT1M), eq(SUM));
+        assertEquals(Duration.ofMinutes(10), Duration.between(from.getValue(), to.getValue()));
+        verify(glowmarktService, never()).getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class),
+                                                              eq(GAS_CONSUMPTION_RESOURCE_ID), any(Instant.class),
+                                                              any(Instant.class), any(AggregationPeriod.class), eq(SUM));
+        verify(persistenceService, never()).store(any(Item.class), any(ZonedDateTime.class), any(DecimalType.class));
+
+        thingHandler.handleCommand(currentPower, RefreshType.REFRESH);
+        verify(thingHandlerCallback, times(2)).stateUpdated(currentPower, new QuantityType<>(3.75, MetricPrefix.KILO(Units.WATT)));
+        thingHandler.dispose();
+    }
+
     @Test
     public void refreshCommandFetchesRates() throws AuthenticationFailedException, IOException {
         successfullyAuthenticate();
@@ -352,6 +691,30 @@ class GlowmarktVirtualEntityHandlerTest {
         verify(thingHandlerCallback, timeout(1000)).stateUpdated(perUnitRateChannelId, DecimalType.valueOf("34.22"));
     }
 
+    @Test
+    public void refreshCommandReusesCachedTariff() throws AuthenticationFailedException, IOException {
+        successfullyAuthenticate();
+        gasAndElectricityDccMeter();
+
+        ThingHandler thingHandler = createThingHandler();
+        thingHandler.initialize();
+        verify(thingHandlerCallback, timeout(3000)).statusUpdated(any(Thing.class), any(ThingStatusInfo.class));
+
+        ThingUID virtualEntityUID = virtualEntity.getUID();
+        ChannelUID standingChargeChannelId = new ChannelUID(virtualEntityUID, "tariff_standing_charge_" + ELECTRICITY_CONSUMPTION_RESOURCE_ID + "_week_1_standing_charge");
+        ChannelUID perUnitRateChannelId = new ChannelUID(virtualEntityUID, "tariff_per_unit_rate_" + ELECTRICITY_CONSUMPTION_RESOURCE_ID + "_week_1_rate_1");
+        for (int i = 0; i < 3; ++i) {
+            thingHandler.handleCommand(standingChargeChannelId, RefreshType.REFRESH);
+            thingHandler.handleCommand(perUnitRateChannelId, RefreshType.REFRESH);
+        }
+
+        verify(thingHandlerCallback, times(3)).stateUpdated(standingChargeChannelId, DecimalType.valueOf("44.4"));
+        verify(thingHandlerCallback, times(3)).stateUpdated(perUnitRateChannelId, DecimalType.valueOf("34.22"));
+        verify(glowmarktService, times(1)).getResourceTariff(any(GlowmarktSession.class),
+                                                             any(GlowmarktSettings.class),
+                                                             eq(ELECTRICITY_CONSUMPTION_RESOURCE_ID));
+    }
+
     private void verifyReadingForTimes(String from, String to) throws IOException, AuthenticationFailedException {
         verify(glowmarktService).getResourceReadings(any(GlowmarktSession.class), any(GlowmarktSettings.class), eq(GAS_CONSUMPTION_RESOURCE_ID), eq(parse(from)), eq(parse(to)), eq(PT30M), eq(AggregationFunction.SUM));
     }
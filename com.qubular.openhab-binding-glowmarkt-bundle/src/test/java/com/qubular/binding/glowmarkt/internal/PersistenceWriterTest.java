@@ -0,0 +1,116 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import com.qubular.glowmarkt.ResourceData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.ModifiablePersistenceService;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.Instant.parse;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PersistenceWriterTest {
+    private BlockingQueue<Runnable> tasks;
+    private ModifiablePersistenceService persistenceService;
+    private Item item;
+
+    @BeforeEach
+    public void setUp() {
+        tasks = new LinkedBlockingQueue<>();
+        persistenceService = mock(ModifiablePersistenceService.class);
+        item = mock(Item.class);
+        when(item.getName()).thenReturn("gasConsumption");
+    }
+
+    private static List<ResourceData> readings(String... timestamps) {
+        List<ResourceData> readings = new ArrayList<>();
+        for (String timestamp : timestamps) {
+            readings.add(new ResourceData(1.0, parse(timestamp)));
+        }
+        return readings;
+    }
+
+    @Test
+    public void storesReadingsInChunksSkippingPersistedTimestamps() throws InterruptedException {
+        PersistenceWriter writer = new PersistenceWriter(tasks::add, 2, 4);
+        Set<Instant> persisted = new HashSet<>(Set.of(parse("2022-11-01T00:30:00Z")));
+
+        writer.write(persistenceService, item, readings("2022-11-01T00:00:00Z", "2022-11-01T00:30:00Z",
+                                                        "2022-11-01T01:00:00Z", "2022-11-01T01:30:00Z",
+                                                        "2022-11-01T02:00:00Z"), persisted);
+        writer.write(persistenceService, item, readings("2022-11-01T02:00:00Z"), persisted);
+
+        assertEquals(2, tasks.size());
+        verifyNoInteractions(persistenceService);
+        tasks.forEach(Runnable::run);
+        writer.flush();
+
+        verify(persistenceService, times(4)).store(same(item), any(ZonedDateTime.class), any(DecimalType.class));
+        verify(persistenceService, never()).store(same(item),
+                                                  eq(ZonedDateTime.ofInstant(parse("2022-11-01T00:30:00Z"), ZoneId.systemDefault())),
+                                                  any(DecimalType.class));
+        assertEquals(5, persisted.size());
+    }
+
+    @Test
+    public void blocksWhenTooManyChunksArePending() throws InterruptedException {
+        PersistenceWriter writer = new PersistenceWriter(tasks::add, 1, 1);
+        writer.write(persistenceService, item, readings("2022-11-01T00:00:00Z"), new HashSet<>());
+
+        Thread producer = new Thread(() -> {
+            try {
+                writer.write(persistenceService, item, readings("2022-11-01T00:30:00Z"), new HashSet<>());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive());
+        assertEquals(1, tasks.size());
+
+        tasks.take().run();
+        producer.join(3000);
+
+        assertFalse(producer.isAlive());
+        tasks.poll(3, TimeUnit.SECONDS).run();
+        writer.flush();
+        verify(persistenceService, times(2)).store(same(item), any(ZonedDateTime.class), any(DecimalType.class));
+    }
+
+    @Test
+    public void reportsReadingsThatCouldNotBeStored() throws InterruptedException {
+        PersistenceWriter writer = new PersistenceWriter(Runnable::run, 2, 4);
+        doThrow(new IllegalStateException("database unavailable"))
+                .when(persistenceService).store(same(item),
+                                                eq(ZonedDateTime.ofInstant(parse("2022-11-01T01:00:00Z"), ZoneId.systemDefault())),
+                                                any(DecimalType.class));
+
+        CompletableFuture<Void> failed = writer.write(persistenceService, item,
+                                                      readings("2022-11-01T00:00:00Z", "2022-11-01T00:30:00Z",
+                                                               "2022-11-01T01:00:00Z"), new HashSet<>());
+        CompletableFuture<Void> stored = writer.write(persistenceService, item, readings("2022-11-01T02:00:00Z"),
+                                                      new HashSet<>());
+        writer.flush();
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertTrue(stored.isDone());
+        assertFalse(stored.isCompletedExceptionally());
+        assertTrue(writer.write(persistenceService, item, List.of(), new HashSet<>()).isDone());
+    }
+}
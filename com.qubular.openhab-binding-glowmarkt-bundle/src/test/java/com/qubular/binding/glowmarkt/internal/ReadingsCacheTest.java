@@ -0,0 +1,77 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import com.qubular.glowmarkt.ResourceData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.time.Instant.parse;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingsCacheTest {
+    private static final String RESOURCE_ID = "resource";
+    private MutableClock clock;
+    private ReadingsCache readingsCache;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock(parse("2022-11-01T12:00:00Z"));
+        readingsCache = new ReadingsCache(clock, Duration.ofMinutes(10), Duration.ofDays(2));
+    }
+
+    private static List<ResourceData> readings(String from, String to) {
+        List<ResourceData> readings = new ArrayList<>();
+        for (Instant t = parse(from); !t.isAfter(parse(to)); t = t.plus(Duration.ofMinutes(30))) {
+            readings.add(new ResourceData(1.0, t));
+        }
+        return readings;
+    }
+
+    @Test
+    public void returnsCachedReadingsWithinWindow() {
+        readingsCache.put(RESOURCE_ID, parse("2022-11-01T00:00:00Z"), parse("2022-11-01T12:00:00Z"),
+                          readings("2022-11-01T00:00:00Z", "2022-11-01T12:00:00Z"));
+
+        List<ResourceData> cached = readingsCache.get(RESOURCE_ID, parse("2022-11-01T06:00:00Z"), parse("2022-11-01T12:00:00Z"));
+
+        assertEquals(13, cached.size());
+        assertEquals(parse("2022-11-01T06:00:00Z"), cached.get(0).getTimestamp());
+        assertNull(readingsCache.get(RESOURCE_ID, parse("2022-10-31T23:30:00Z"), parse("2022-11-01T12:00:00Z")));
+        assertNull(readingsCache.get(RESOURCE_ID, parse("2022-11-01T06:00:00Z"), parse("2022-11-01T12:30:00Z")));
+        assertNull(readingsCache.get("other", parse("2022-11-01T06:00:00Z"), parse("2022-11-01T12:00:00Z")));
+    }
+
+    @Test
+    public void mergesOverlappingReadings() {
+        readingsCache.put(RESOURCE_ID, parse("2022-11-01T00:00:00Z"), parse("2022-11-01T06:00:00Z"),
+                          readings("2022-11-01T00:00:00Z", "2022-11-01T06:00:00Z"));
+        readingsCache.put(RESOURCE_ID, parse("2022-11-01T06:00:00Z"), parse("2022-11-01T12:00:00Z"),
+                          readings("2022-11-01T06:00:00Z", "2022-11-01T12:00:00Z"));
+
+        assertEquals(25, readingsCache.get(RESOURCE_ID, parse("2022-11-01T00:00:00Z"), parse("2022-11-01T12:00:00Z")).size());
+    }
+
+    @Test
+    public void keepsOnlyMostRecentWindow() {
+        readingsCache.put(RESOURCE_ID, parse("2022-10-28T00:00:00Z"), parse("2022-11-01T00:00:00Z"),
+                          readings("2022-10-28T00:00:00Z", "2022-11-01T00:00:00Z"));
+
+        assertNull(readingsCache.get(RESOURCE_ID, parse("2022-10-28T00:00:00Z"), parse("2022-11-01T00:00:00Z")));
+        assertEquals(97, readingsCache.get(RESOURCE_ID, parse("2022-10-30T00:00:00Z"), parse("2022-11-01T00:00:00Z")).size());
+    }
+
+    @Test
+    public void expiresAfterTtl() {
+        readingsCache.put(RESOURCE_ID, parse("2022-11-01T00:00:00Z"), parse("2022-11-01T12:00:00Z"),
+                          readings("2022-11-01T00:00:00Z", "2022-11-01T12:00:00Z"));
+        clock.instant = clock.instant.plus(Duration.ofMinutes(9));
+        assertNotNull(readingsCache.get(RESOURCE_ID, parse("2022-11-01T00:00:00Z"), parse("2022-11-01T12:00:00Z")));
+
+        clock.instant = clock.instant.plus(Duration.ofMinutes(1));
+
+        assertNull(readingsCache.get(RESOURCE_ID, parse("2022-11-01T00:00:00Z"), parse("2022-11-01T12:00:00Z")));
+    }
+}
@@ -0,0 +1,40 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+
+import static java.time.Instant.parse;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestBudgetTest {
+    private MutableClock clock;
+    private RequestBudget budget;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock(parse("2022-11-01T12:00:00Z"));
+        budget = new RequestBudget(clock, 2, Duration.ofHours(1));
+    }
+
+    @Test
+    public void refusesRequestsOverBudget() {
+        assertTrue(budget.tryAcquire());
+        clock.instant = clock.instant.plus(Duration.ofMinutes(30));
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    public void renewsBudgetEachPeriod() {
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        clock.instant = clock.instant.plus(Duration.ofMinutes(59));
+        assertFalse(budget.tryAcquire());
+        clock.instant = clock.instant.plus(Duration.ofMinutes(1));
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+}
@@ -0,0 +1,70 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import com.qubular.glowmarkt.ResourceData;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+
+import static com.qubular.binding.glowmarkt.internal.RollupEngine.Period.*;
+import static java.time.Instant.parse;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupEngineTest {
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+    @Test
+    public void totalsReadingsForCurrentPeriods() {
+        RollupEngine engine = new RollupEngine(LONDON);
+        // Monday 31st October
+        engine.add(new ResourceData(1.0, parse("2022-10-30T23:30:00Z")));
+        engine.add(new ResourceData(2.0, parse("2022-10-31T00:00:00Z")));
+        engine.add(new ResourceData(3.0, parse("2022-11-01T00:00:00Z")));
+        engine.add(new ResourceData(4.0, parse("2022-11-01T00:30:00Z")));
+
+        assertEquals(7.0, engine.getTotal(DAY, parse("2022-11-01T12:00:00Z")));
+        assertEquals(9.0, engine.getTotal(WEEK, parse("2022-11-01T12:00:00Z")));
+        assertEquals(7.0, engine.getTotal(MONTH, parse("2022-11-01T12:00:00Z")));
+        assertEquals(10.0, engine.getTotal(YEAR, parse("2022-11-01T12:00:00Z")));
+        assertEquals(0.0, engine.getTotal(DAY, parse("2022-11-02T00:00:00Z")));
+        assertEquals(9.0, engine.getTotal(WEEK, parse("2022-11-02T00:00:00Z")));
+    }
+
+    @Test
+    public void usesCalendarBoundariesInZone() {
+        RollupEngine engine = new RollupEngine(LONDON);
+        // 23:30 UTC is the next day in BST
+        engine.add(new ResourceData(1.0, parse("2022-06-30T22:30:00Z")));
+        engine.add(new ResourceData(2.0, parse("2022-06-30T23:00:00Z")));
+
+        assertEquals(2.0, engine.getTotal(DAY, parse("2022-07-01T00:00:00Z")));
+        assertEquals(2.0, engine.getTotal(MONTH, parse("2022-07-01T00:00:00Z")));
+        assertEquals(3.0, engine.getTotal(YEAR, parse("2022-07-01T00:00:00Z")));
+    }
+
+    @Test
+    public void ignoresReadingsAlreadyCounted() {
+        RollupEngine engine = new RollupEngine(LONDON);
+        engine.add(new ResourceData(1.0, parse("2022-11-01T00:00:00Z")));
+        engine.add(new ResourceData(2.0, parse("2022-11-01T00:30:00Z")));
+        engine.add(new ResourceData(2.0, parse("2022-11-01T00:30:00Z")));
+        engine.add(new ResourceData(5.0, parse("2022-11-01T00:00:00Z")));
+
+        assertEquals(3.0, engine.getTotal(DAY, parse("2022-11-01T12:00:00Z")));
+    }
+
+    @Test
+    public void encodesAndDecodesState() {
+        RollupEngine engine = new RollupEngine(LONDON);
+        engine.add(new ResourceData(1.5, parse("2022-11-01T00:00:00Z")));
+
+        RollupEngine decoded = RollupEngine.decode(engine.encode(), LONDON);
+        decoded.add(new ResourceData(1.5, parse("2022-11-01T00:00:00Z")));
+        decoded.add(new ResourceData(2.0, parse("2022-11-01T00:30:00Z")));
+
+        assertEquals(3.5, decoded.getTotal(DAY, parse("2022-11-01T12:00:00Z")));
+        assertEquals(3.5, decoded.getTotal(YEAR, parse("2022-11-01T12:00:00Z")));
+        assertNull(RollupEngine.decode(engine.encode(), ZoneId.of("UTC")));
+        assertEquals(0.0, RollupEngine.decode(new RollupEngine(LONDON).encode(), LONDON).getTotal(DAY, parse("2022-11-01T12:00:00Z")));
+        assertThrows(IllegalArgumentException.class, () -> RollupEngine.decode("Europe/London|x", LONDON));
+    }
+}
@@ -0,0 +1,96 @@
+package com.qubular.binding.glowmarkt.internal;
+
+import com.qubular.glowmarkt.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffCacheTest {
+    private static final String RESOURCE_ID = "resource";
+    private MutableClock clock;
+    private TariffCache tariffCache;
+    private AtomicInteger fetches;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock(LocalDateTime.parse("2022-11-01T12:00:00").toInstant(ZoneOffset.UTC));
+        tariffCache = new TariffCache(clock, Duration.ofHours(12));
+        fetches = new AtomicInteger();
+    }
+
+    private TariffResponse fetch(String resourceId) {
+        fetches.incrementAndGet();
+        return new TariffResponse.Builder()
+                .withName("electricity consumption")
+                .withData(List.of(tariff("2022-12-01T00:00:00", "30.5"),
+                                  tariff("2022-10-01T00:00:00", "28.1"),
+                                  tariff("2022-11-01T18:00:00", "29.9")))
+                .build();
+    }
+
+    private static TariffData tariff(String from, String rate) {
+        return new TariffData.Builder()
+                .withFrom(LocalDateTime.parse(from))
+                .withStructure(List.of(new TariffStructure.Builder()
+                                               .withWeekName("1")
+                                               .withPlanDetail(List.of(new StandingChargeTariffPlanDetail(new BigDecimal("44.4")),
+                                                                       new PerUnitTariffPlanDetail(1, new BigDecimal(rate))))
+                                               .build()))
+                .build();
+    }
+
+    private BigDecimal rate(TariffCache.Tariffs tariffs) {
+        return tariffs.getEffectiveTariff(tariffCache.now())
+                .flatMap(t -> t.getPlanDetail("week_1", "rate_1"))
+                .map(TariffPlanDetail::getAmount)
+                .orElseThrow();
+    }
+
+    @Test
+    public void findsEffectiveTariff() throws Exception {
+        TariffCache.Tariffs tariffs = tariffCache.get(RESOURCE_ID, this::fetch);
+
+        assertEquals("electricity consumption", tariffs.getName());
+        assertEquals(new BigDecimal("28.1"), rate(tariffs));
+        assertEquals(new BigDecimal("44.4"), tariffs.getEffectiveTariff(tariffCache.now())
+                .flatMap(t -> t.getPlanDetail("week_1", "standing_charge"))
+                .map(TariffPlanDetail::getAmount)
+                .orElseThrow());
+        assertTrue(tariffs.getEffectiveTariff(LocalDateTime.parse("2022-09-01T00:00:00")).isEmpty());
+    }
+
+    @Test
+    public void refetchesAtNextTariffBoundary() throws Exception {
+        tariffCache.get(RESOURCE_ID, this::fetch);
+        clock.instant = clock.instant.plus(Duration.ofHours(5));
+        assertNotNull(tariffCache.getIfFresh(RESOURCE_ID));
+        assertEquals(1, fetches.get());
+
+        clock.instant = clock.instant.plus(Duration.ofMinutes(61));
+        assertNull(tariffCache.getIfFresh(RESOURCE_ID));
+        TariffCache.Tariffs tariffs = tariffCache.get(RESOURCE_ID, this::fetch);
+
+        assertEquals(2, fetches.get());
+        assertEquals(new BigDecimal("29.9"), rate(tariffs));
+    }
+
+    @Test
+    public void refetchesAfterTtl() throws Exception {
+        clock.instant = LocalDateTime.parse("2022-11-01T19:00:00").toInstant(ZoneOffset.UTC);
+        tariffCache.get(RESOURCE_ID, this::fetch);
+        clock.instant = clock.instant.plus(Duration.ofHours(11));
+        tariffCache.get(RESOURCE_ID, this::fetch);
+        assertEquals(1, fetches.get());
+
+        clock.instant = clock.instant.plus(Duration.ofHours(1));
+        tariffCache.get(RESOURCE_ID, this::fetch);
+
+        assertEquals(2, fetches.get());
+    }
+}
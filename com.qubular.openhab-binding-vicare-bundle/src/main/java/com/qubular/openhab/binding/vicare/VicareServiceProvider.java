@@ -1,6 +1,8 @@
 package com.qubular.openhab.binding.vicare;
 
+import com.qubular.vicare.HttpClientProvider;
 import com.qubular.vicare.VicareConfiguration;
+import com.qubular.vicare.VicareMetrics;
 import com.qubular.vicare.VicareService;
 import org.openhab.core.thing.ThingRegistry;
 import org.openhab.core.thing.type.ChannelTypeRegistry;
@@ -22,4 +24,8 @@ public interface VicareServiceProvider {
     ConfigurationAdmin getConfigurationAdmin();
 
     ChannelTypeRegistry getChannelTypeRegistry();
+
+    VicareMetrics getVicareMetrics();
+
+    HttpClientProvider getHttpClientProvider();
 }
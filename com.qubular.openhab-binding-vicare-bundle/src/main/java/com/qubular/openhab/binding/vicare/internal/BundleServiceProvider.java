@@ -1,7 +1,9 @@
 package com.qubular.openhab.binding.vicare.internal;
 
 import com.qubular.openhab.binding.vicare.VicareServiceProvider;
+import com.qubular.vicare.HttpClientProvider;
 import com.qubular.vicare.VicareConfiguration;
+import com.qubular.vicare.VicareMetrics;
 import com.qubular.vicare.VicareService;
 import org.openhab.core.thing.ThingRegistry;
 import org.openhab.core.thing.type.ChannelTypeRegistry;
@@ -24,6 +26,10 @@ public class BundleServiceProvider implements VicareServiceProvider {
     private ConfigurationAdmin configurationAdmin;
     @Reference
     private ChannelTypeRegistry channelTypeRegistry;
+    @Reference
+    private VicareMetrics vicareMetrics;
+    @Reference
+    private HttpClientProvider httpClientProvider;
 
     private BundleContext bundleContext;
 
@@ -66,4 +72,14 @@ public class BundleServiceProvider implements VicareServiceProvider {
     public ChannelTypeRegistry getChannelTypeRegistry() {
         return channelTypeRegistry;
     }
+
+    @Override
+    public VicareMetrics getVicareMetrics() {
+        return vicareMetrics;
+    }
+
+    @Override
+    public HttpClientProvider getHttpClientProvider() {
+        return httpClientProvider;
+    }
 }
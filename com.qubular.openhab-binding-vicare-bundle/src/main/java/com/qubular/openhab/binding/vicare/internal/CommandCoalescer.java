@@ -0,0 +1,154 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.qubular.vicare.AuthenticationException;
+import com.qubular.vicare.CommandFailureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses bursts of commands to the same command URI (e.g. from dragging a slider) into the last value sent
+ * within the coalescing window. A command is sent straight away if nothing has been sent to its URI within the window
+ * and nothing else is waiting, otherwise it is queued. Queued commands are sent in the order of their latest value,
+ * so commands to different URIs keep their relative order. The future returned for a command completes when it is
+ * sent, or when the command that replaced it is sent, and carries the failure if the send failed.
+ */
+class CommandCoalescer {
+    private static final Logger logger = LoggerFactory.getLogger(CommandCoalescer.class);
+
+    interface CommandSender {
+        void sendCommand(URI uri, Map<String, Object> params) throws AuthenticationException, IOException, CommandFailureException;
+    }
+
+    private static class PendingCommand {
+        final Map<String, Object> params;
+        final Instant due;
+        final CompletableFuture<Void> result;
+
+        PendingCommand(Map<String, Object> params, Instant due, CompletableFuture<Void> result) {
+            this.params = params;
+            this.due = due;
+            this.result = result;
+        }
+    }
+
+    private final CommandSender sender;
+    private final ScheduledExecutorService scheduler;
+    private final Supplier<Duration> window;
+    private final Map<URI, Instant> lastSent = new HashMap<>();
+    private final LinkedHashMap<URI, PendingCommand> pending = new LinkedHashMap<>();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private ScheduledFuture<?> flushJob;
+    private boolean flushing;
+
+    CommandCoalescer(CommandSender sender, ScheduledExecutorService scheduler, Supplier<Duration> window) {
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.window = window;
+    }
+
+    public CompletableFuture<Void> submit(URI uri, Map<String, Object> params) {
+        Duration window = this.window.get();
+        synchronized (this) {
+            Instant now = Instant.now();
+            Instant readyAt = lastSent.getOrDefault(uri, Instant.MIN).plus(window);
+            if (!pending.isEmpty() || now.isBefore(readyAt)) {
+                PendingCommand previous = pending.remove(uri);
+                CompletableFuture<Void> result;
+                if (previous != null) {
+                    coalescedCount.incrementAndGet();
+                    logger.trace("Coalesced command {} ({} -> {})", uri, previous.params, params);
+                    result = previous.result;
+                } else {
+                    result = new CompletableFuture<>();
+                }
+                pending.put(uri, new PendingCommand(params, now.isBefore(readyAt) ? readyAt : now, result));
+                scheduleFlush(now);
+                return result;
+            }
+            lastSent.put(uri, now);
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        send(uri, params, result);
+        return result;
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public synchronized void dispose() {
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            flushJob = null;
+        }
+        pending.values().forEach(command -> command.result.cancel(false));
+        pending.clear();
+    }
+
+    private void send(URI uri, Map<String, Object> params, CompletableFuture<Void> result) {
+        sentCount.incrementAndGet();
+        try {
+            sender.sendCommand(uri, params);
+            result.complete(null);
+        } catch (AuthenticationException | IOException | CommandFailureException | RuntimeException e) {
+            logger.debug("Unable to send command {}", uri, e);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void scheduleFlush(Instant now) {
+        if (flushJob == null && !flushing && !pending.isEmpty()) {
+            Instant due = pending.values().iterator().next().due;
+            long delayMillis = Math.max(0, Duration.between(now, due).toMillis());
+            flushJob = scheduler.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        while (true) {
+            URI uri;
+            PendingCommand command;
+            synchronized (this) {
+                flushJob = null;
+                flushing = false;
+                Instant now = Instant.now();
+                Iterator<Map.Entry<URI, PendingCommand>> it = pending.entrySet().iterator();
+                if (!it.hasNext()) {
+                    return;
+                }
+                Map.Entry<URI, PendingCommand> head = it.next();
+                if (now.isBefore(head.getValue().due)) {
+                    scheduleFlush(now);
+                    return;
+                }
+                flushing = true;
+                it.remove();
+                uri = head.getKey();
+                command = head.getValue();
+                lastSent.put(uri, now);
+            }
+            logger.debug("Sending coalesced command {} ({})", uri, command.params);
+            send(uri, command.params, command.result);
+        }
+    }
+}
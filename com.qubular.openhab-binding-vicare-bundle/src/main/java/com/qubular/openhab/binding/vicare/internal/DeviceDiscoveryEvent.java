@@ -4,6 +4,9 @@ import org.openhab.core.thing.ThingUID;
 
 public class DeviceDiscoveryEvent {
     public static final String TYPE = DeviceDiscoveryEvent.class.getName();
+    // Must be a compile-time constant for use in the dispatcher's component properties
+    public static final String TOPIC_ALL_DEVICES = "com/qubular/openhab/binding/vicare/internal/DeviceDiscoveryEvent/*";
+    public static final String PROPERTY_THING_UID = "thingUID";
 
     private static final String TOPIC_DEVICE_DISCOVERED = TYPE.replaceAll("\\.", "/") + "/%s/deviceDiscovered";
 
@@ -0,0 +1,42 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.openhab.core.thing.ThingUID;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single subscriber for all device discovery events, which routes each event to the handler registered for its thing.
+ */
+@Component(service = {DeviceDiscoveryEventDispatcher.class, EventHandler.class},
+        property = EventConstants.EVENT_TOPIC + "=" + DeviceDiscoveryEvent.TOPIC_ALL_DEVICES)
+public class DeviceDiscoveryEventDispatcher implements EventHandler {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceDiscoveryEventDispatcher.class);
+
+    private final Map<ThingUID, EventHandler> handlers = new ConcurrentHashMap<>();
+
+    public void register(ThingUID thingUID, EventHandler handler) {
+        handlers.put(thingUID, handler);
+    }
+
+    public void unregister(ThingUID thingUID, EventHandler handler) {
+        handlers.remove(thingUID, handler);
+    }
+
+    @Override
+    public void handleEvent(Event event) {
+        Object thingUID = event.getProperty(DeviceDiscoveryEvent.PROPERTY_THING_UID);
+        EventHandler handler = thingUID instanceof ThingUID ? handlers.get(thingUID) : null;
+        if (handler != null) {
+            handler.handleEvent(event);
+        } else {
+            logger.trace("No handler registered for discovery event {}", event.getTopic());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fetches the features of all the devices of a bridge concurrently, with a limit on the number of requests in
+ * flight for the whole bridge and for each installation. Each device is published as soon as its own fetch
+ * completes rather than waiting for the whole cycle.
+ */
+class FeaturePollPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(FeaturePollPipeline.class);
+
+    private final IntSupplier maxInFlight;
+    private final IntSupplier maxInFlightPerInstallation;
+    private final Deque<Runnable> pending = new ArrayDeque<>();
+    private final Map<Long, Integer> inFlightByInstallation = new HashMap<>();
+    private final Map<Runnable, Long> installationByTask = new HashMap<>();
+    private int inFlight;
+    private CompletableFuture<Duration> currentCycle;
+    private volatile Duration lastCycleTime;
+
+    FeaturePollPipeline(IntSupplier maxInFlight, IntSupplier maxInFlightPerInstallation) {
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightPerInstallation = maxInFlightPerInstallation;
+    }
+
+    /**
+     * Start a poll cycle. If the previous cycle is still running then no new cycle is started and the running one is
+     * returned.
+     * @param devices The devices to poll
+     * @param installationId Extracts the installation id of a device
+     * @param fetcher Starts the fetch for a device
+     * @param publisher Called once the fetch for a device has completed, successfully or not
+     * @return A future that completes with the duration of the cycle once every device has been published.
+     */
+    <T> CompletableFuture<Duration> poll(Collection<T> devices,
+                                         ToLongFunction<T> installationId,
+                                         Function<T, CompletableFuture<?>> fetcher,
+                                         Consumer<T> publisher) {
+        Instant start = Instant.now();
+        CompletableFuture<Duration> cycle;
+        synchronized (this) {
+            if (currentCycle != null && !currentCycle.isDone()) {
+                logger.debug("Previous poll cycle still running, skipping");
+                return currentCycle;
+            }
+            cycle = new CompletableFuture<>();
+            currentCycle = cycle;
+        }
+
+        try {
+            // resolve the installations up front so that a bad device can't leave a half registered cycle behind
+            Map<T, Long> installations = new LinkedHashMap<>();
+            for (T device : devices) {
+                try {
+                    installations.put(device, installationId.applyAsLong(device));
+                } catch (RuntimeException e) {
+                    logger.warn("Unable to determine the installation of device {}, skipping: {}", device, e.getMessage());
+                }
+            }
+
+            CompletableFuture<?>[] published = new CompletableFuture<?>[installations.size()];
+            synchronized (this) {
+                int i = 0;
+                for (Map.Entry<T, Long> entry : installations.entrySet()) {
+                    T device = entry.getKey();
+                    CompletableFuture<Void> devicePublished = new CompletableFuture<>();
+                    published[i++] = devicePublished;
+                    Runnable task = new Runnable() {
+                        @Override
+                        public void run() {
+                            CompletableFuture<?> fetched;
+                            try {
+                                fetched = fetcher.apply(device);
+                            } catch (RuntimeException e) {
+                                fetched = CompletableFuture.failedFuture(e);
+                            }
+                            fetched.whenComplete((r, t) -> {
+                                completed(this);
+                                try {
+                                    publisher.accept(device);
+                                } finally {
+                                    devicePublished.complete(null);
+                                }
+                            });
+                        }
+                    };
+                    installationByTask.put(task, entry.getValue());
+                    pending.add(task);
+                }
+            }
+            dispatch();
+
+            CompletableFuture.allOf(published).whenComplete((r, t) -> {
+                Duration cycleTime = Duration.between(start, Instant.now());
+                lastCycleTime = cycleTime;
+                logger.debug("Poll cycle of {} devices took {}ms", published.length, cycleTime.toMillis());
+                cycle.complete(cycleTime);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Unable to start poll cycle: {}", e.getMessage(), e);
+            synchronized (this) {
+                pending.forEach(installationByTask::remove);
+                pending.clear();
+            }
+            cycle.completeExceptionally(e);
+        }
+        return cycle;
+    }
+
+    Duration getLastCycleTime() {
+        return lastCycleTime;
+    }
+
+    private synchronized void completed(Runnable task) {
+        Long installation = installationByTask.remove(task);
+        inFlight--;
+        inFlightByInstallation.computeIfPresent(installation, (k, v) -> v > 1 ? v - 1 : null);
+        dispatch();
+    }
+
+    private void dispatch() {
+        Deque<Runnable> ready = new ArrayDeque<>();
+        synchronized (this) {
+            int maxPerInstallation = Math.max(1, maxInFlightPerInstallation.getAsInt());
+            int max = Math.max(1, maxInFlight.getAsInt());
+            Iterator<Runnable> it = pending.iterator();
+            while (it.hasNext() && inFlight < max) {
+                Runnable task = it.next();
+                Long installation = installationByTask.get(task);
+                int installationInFlight = inFlightByInstallation.getOrDefault(installation, 0);
+                if (installationInFlight < maxPerInstallation) {
+                    it.remove();
+                    inFlight++;
+                    inFlightByInstallation.put(installation, installationInFlight + 1);
+                    ready.add(task);
+                }
+            }
+        }
+        ready.forEach(Runnable::run);
+    }
+}
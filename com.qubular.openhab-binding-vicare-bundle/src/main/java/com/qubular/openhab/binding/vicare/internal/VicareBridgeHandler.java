@@ -1,19 +1,26 @@
 package com.qubular.openhab.binding.vicare.internal;
 
+import com.qubular.circuitbreaker.CircuitBreaker;
+import com.qubular.circuitbreaker.CircuitBreakerOpenException;
 import com.qubular.openhab.binding.vicare.VicareServiceProvider;
 import com.qubular.openhab.binding.vicare.internal.configuration.SimpleConfiguration;
+import com.qubular.openhab.binding.vicare.internal.httpclientprovider.CommonHttpClientProvider;
 import com.qubular.openhab.binding.vicare.internal.tokenstore.PersistedTokenStore;
 import com.qubular.vicare.AuthenticationException;
-import com.qubular.vicare.CommandFailureException;
+import com.qubular.vicare.HttpClientProvider;
 import com.qubular.vicare.VicareConfiguration;
+import com.qubular.vicare.VicareMetrics;
 import com.qubular.vicare.VicareService;
 import com.qubular.vicare.model.CommandDescriptor;
 import com.qubular.vicare.model.Feature;
 import com.qubular.vicare.model.Value;
+import org.openhab.core.common.ThreadPoolManager;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.QuantityType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.unit.MetricPrefix;
+import org.openhab.core.library.unit.Units;
 import org.openhab.core.thing.*;
 import org.openhab.core.thing.binding.BaseBridgeHandler;
 import org.openhab.core.thing.binding.ThingHandlerService;
@@ -26,10 +33,12 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.security.InvalidKeyException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.qubular.openhab.binding.vicare.internal.VicareConstants.*;
 import static com.qubular.openhab.binding.vicare.internal.VicareUtil.decodeThingUniqueId;
@@ -40,12 +49,16 @@ import static java.util.Optional.empty;
 
 public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThingHandler {
     public static final String CONFIG_USE_LIMITED_ENCRYPTION = "useLimitedEncryption";
+    public static final String CONFIG_COMMAND_COALESCING_WINDOW = "commandCoalescingWindow";
+    public static final String CONFIG_MAX_CONCURRENT_REQUESTS = "maxConcurrentRequests";
+    public static final String CONFIG_MAX_CONCURRENT_REQUESTS_PER_INSTALLATION = "maxConcurrentRequestsPerInstallation";
     private static final Logger logger = LoggerFactory.getLogger(VicareBridgeHandler.class);
     public static final int POLLING_STARTUP_DELAY_SECS = 10;
     private final ThingRegistry thingRegistry;
     private final VicareConfiguration config;
 
     private final VicareService vicareService;
+    private final VicareMetrics vicareMetrics;
     private final Map<String, CachedResponse> cachedResponses = new HashMap<>();
     private String bindingVersion;
     private final VicareServiceProvider vicareServiceProvider;
@@ -61,8 +74,30 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
     }
 
     private static final int REQUEST_INTERVAL_SECS = 90;
+    private static final int COMMAND_COALESCING_WINDOW_MILLIS = 1000;
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+    private static final int MAX_CONCURRENT_REQUESTS_PER_INSTALLATION = 2;
+
+    private final CommandCoalescer commandCoalescer;
+    private final FeaturePollPipeline pollPipeline;
+    private final ExecutorService pollWorkers = ThreadPoolManager.getPool("vicare-poll");
 
     private volatile ScheduledFuture<?> featurePollingJob;
+    private volatile DiscoveryStatistics discoveryStatistics;
+
+    private static class DiscoveryStatistics {
+        final Duration scanDuration;
+        final int added;
+        final int changed;
+        final int removed;
+
+        DiscoveryStatistics(Duration scanDuration, int added, int changed, int removed) {
+            this.scanDuration = scanDuration;
+            this.added = added;
+            this.changed = changed;
+            this.removed = removed;
+        }
+    }
 
     /**
      * @param thingRegistry
@@ -73,10 +108,16 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
                                Bridge bridge) {
         super(bridge);
         this.vicareService = vicareServiceProvider.getVicareService();
+        this.vicareMetrics = vicareServiceProvider.getVicareMetrics();
         this.thingRegistry = vicareServiceProvider.getThingRegistry();
         this.config = vicareServiceProvider.getVicareConfiguration();
         this.bindingVersion = vicareServiceProvider.getBindingVersion();
         this.vicareServiceProvider = vicareServiceProvider;
+        this.commandCoalescer = new CommandCoalescer(vicareService::sendCommand, scheduler,
+                                                     () -> Duration.ofMillis(getCommandCoalescingWindow()));
+        this.pollPipeline = new FeaturePollPipeline(
+                () -> getIntConfig(CONFIG_MAX_CONCURRENT_REQUESTS, MAX_CONCURRENT_REQUESTS),
+                () -> getIntConfig(CONFIG_MAX_CONCURRENT_REQUESTS_PER_INSTALLATION, MAX_CONCURRENT_REQUESTS_PER_INSTALLATION));
         applyConfiguration(getConfig().getProperties());
     }
 
@@ -94,14 +135,32 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
         if (featurePollingJob != null) {
             featurePollingJob.cancel(false);
         }
+        commandCoalescer.dispose();
+        stopDedicatedHttpClient();
         super.dispose();
     }
 
+    private void stopDedicatedHttpClient() {
+        HttpClientProvider httpClientProvider = vicareServiceProvider.getHttpClientProvider();
+        if (httpClientProvider instanceof CommonHttpClientProvider) {
+            ((CommonHttpClientProvider) httpClientProvider).stopDedicatedHttpClient();
+        }
+    }
+
     private int getPollingInterval() {
         BigDecimal pollingInterval = (BigDecimal) getConfig().getProperties().get("pollingInterval");
         return pollingInterval == null ? REQUEST_INTERVAL_SECS : pollingInterval.intValue();
     }
 
+    private int getCommandCoalescingWindow() {
+        return getIntConfig(CONFIG_COMMAND_COALESCING_WINDOW, COMMAND_COALESCING_WINDOW_MILLIS);
+    }
+
+    private int getIntConfig(String name, int defaultValue) {
+        BigDecimal value = (BigDecimal) getConfig().getProperties().get(name);
+        return value == null ? defaultValue : value.intValue();
+    }
+
     @Override
     public void updateStatus(ThingStatus status) {
         super.updateStatus(status);
@@ -109,27 +168,115 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
 
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
+        if (command instanceof RefreshType) {
+            updateDiagnostics();
+        }
+    }
 
+    private void updateDiagnostics() {
+        if (isLinked(CHANNEL_COMMANDS_SENT)) {
+            updateState(CHANNEL_COMMANDS_SENT, new DecimalType(commandCoalescer.getSentCount()));
+        }
+        if (isLinked(CHANNEL_COMMANDS_COALESCED)) {
+            updateState(CHANNEL_COMMANDS_COALESCED, new DecimalType(commandCoalescer.getCoalescedCount()));
+        }
+        updateDiscoveryChannels();
+        Duration cycleTime = pollPipeline.getLastCycleTime();
+        if (cycleTime != null && isLinked(CHANNEL_POLL_CYCLE_TIME)) {
+            updateState(CHANNEL_POLL_CYCLE_TIME, new QuantityType<>(cycleTime.toMillis(), MetricPrefix.MILLI(Units.SECOND)));
+        }
+        if (vicareMetrics == null) {
+            return;
+        }
+        if (isLinked(CHANNEL_API_CALLS_TODAY)) {
+            updateState(CHANNEL_API_CALLS_TODAY, new DecimalType(vicareMetrics.getCallsToday()));
+        }
+        if (isLinked(CHANNEL_API_LAST_LATENCY)) {
+            updateState(CHANNEL_API_LAST_LATENCY,
+                        new QuantityType<>(vicareMetrics.getLastLatency().toMillis(), MetricPrefix.MILLI(Units.SECOND)));
+        }
+        if (isLinked(CHANNEL_API_REMAINING_BUDGET)) {
+            updateState(CHANNEL_API_REMAINING_BUDGET, new DecimalType(vicareMetrics.getRemainingDailyBudget()));
+        }
+        if (isLinked(CHANNEL_RESPONSE_BYTES) || isLinked(CHANNEL_WIRE_BYTES)) {
+            long responseBytes = 0;
+            long wireBytes = 0;
+            for (VicareMetrics.Endpoint endpoint : VicareMetrics.Endpoint.values()) {
+                VicareMetrics.EndpointStatistics statistics = vicareMetrics.getStatistics(endpoint);
+                responseBytes += statistics.responseBytes;
+                wireBytes += statistics.wireBytes;
+            }
+            updateState(CHANNEL_RESPONSE_BYTES, new QuantityType<>(responseBytes, Units.BYTE));
+            updateState(CHANNEL_WIRE_BYTES, new QuantityType<>(wireBytes, Units.BYTE));
+        }
+        if (isLinked(CHANNEL_CIRCUIT_BREAKERS)) {
+            updateState(CHANNEL_CIRCUIT_BREAKERS, new StringType(vicareMetrics.getCircuitBreakers().stream()
+                                                                         .map(CircuitBreaker.Status::toString)
+                                                                         .collect(Collectors.joining("; "))));
+        }
+    }
+
+    void updateDiscoveryStatistics(Duration scanDuration, int added, int changed, int removed) {
+        discoveryStatistics = new DiscoveryStatistics(scanDuration, added, changed, removed);
+        updateDiscoveryChannels();
+    }
+
+    private void updateDiscoveryChannels() {
+        DiscoveryStatistics statistics = discoveryStatistics;
+        if (statistics == null) {
+            return;
+        }
+        if (isLinked(CHANNEL_DISCOVERY_SCAN_TIME)) {
+            updateState(CHANNEL_DISCOVERY_SCAN_TIME,
+                        new QuantityType<>(statistics.scanDuration.toMillis(), MetricPrefix.MILLI(Units.SECOND)));
+        }
+        if (isLinked(CHANNEL_DISCOVERY_ADDED)) {
+            updateState(CHANNEL_DISCOVERY_ADDED, new DecimalType(statistics.added));
+        }
+        if (isLinked(CHANNEL_DISCOVERY_CHANGED)) {
+            updateState(CHANNEL_DISCOVERY_CHANGED, new DecimalType(statistics.changed));
+        }
+        if (isLinked(CHANNEL_DISCOVERY_REMOVED)) {
+            updateState(CHANNEL_DISCOVERY_REMOVED, new DecimalType(statistics.removed));
+        }
     }
 
     private Runnable featurePoller() {
         return () -> {
-            for (Thing thing : getThing().getThings()) {
-                VicareDeviceThingHandler handler = (VicareDeviceThingHandler) thing.getHandler();
-                if (handler != null) {
-                    for (Channel channel : thing.getChannels()) {
-                        handler.handleCommand(channel.getUID(), RefreshType.REFRESH);
-                    }
-                }
-            }
+            List<Thing> things = getThing().getThings().stream()
+                    .filter(thing -> thing.getHandler() instanceof VicareDeviceThingHandler)
+                    .collect(Collectors.toList());
+            pollPipeline.poll(things,
+                              thing -> decodeThingUniqueId(VicareDeviceThingHandler.getDeviceUniqueId(thing)).installationId,
+                              this::getFeatures,
+                              this::refreshChannels)
+                    .thenAccept(cycleTime -> {
+                        logger.debug("Poll cycle took {}ms, {} commands sent, {} coalesced", cycleTime.toMillis(),
+                                     commandCoalescer.getSentCount(), commandCoalescer.getCoalescedCount());
+                        updateDiagnostics();
+                    });
         };
     }
 
+    private void refreshChannels(Thing thing) {
+        VicareDeviceThingHandler handler = (VicareDeviceThingHandler) thing.getHandler();
+        if (handler != null) {
+            for (Channel channel : thing.getChannels()) {
+                handler.handleCommand(channel.getUID(), RefreshType.REFRESH);
+            }
+        }
+    }
+
     @Override
     public void handleConfigurationUpdate(Map<String, Object> configurationParameters) {
         super.handleConfigurationUpdate(configurationParameters);
         applyConfiguration(configurationParameters);
+        if (!config.isDedicatedHttpClientEnabled()) {
+            stopDedicatedHttpClient();
+        }
         cachedResponses.clear();
+        vicareService.resetCircuitBreakers();
+        vicareService.invalidateCaches();
     }
 
     private void applyConfiguration(Map<String, Object> configurationParameters) {
@@ -146,7 +293,7 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
         }
     }
 
-    public Optional<Feature> handleBridgedDeviceCommand(ChannelUID channelUID, Command command) throws AuthenticationException, IOException, CommandFailureException {
+    public Optional<Feature> handleBridgedDeviceCommand(ChannelUID channelUID, Command command) {
         logger.trace("Handling command {} for channel {} from thing {}", command, channelUID, channelUID.getThingUID());
         Thing targetThing = thingRegistry.get(channelUID.getThingUID());
         Channel channel = targetThing.getChannel(channelUID);
@@ -166,7 +313,10 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
                                 .findAny();
                                })
                     .exceptionally(e -> {
-                        if (e instanceof AuthenticationException) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof CircuitBreakerOpenException) {
+                            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, cause.getMessage());
+                        } else if (e instanceof AuthenticationException) {
                           updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, "Unable to authenticate with Viessmann API: " + e.getMessage());
                         } else {
                             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, "Unable to communicate with Viessmann API: " + e.getMessage());
@@ -175,23 +325,33 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
                         return empty();
                     })
                     .join();
-        } else if (command instanceof StringType) {
-            sendCommand(channelUID, targetThing, channel, () -> ((StringType) command).toString());
+        }
+        return empty();
+    }
+
+    /**
+     * Sends a command for a bridged device channel. The returned future completes once the command has been sent,
+     * which may be after the command coalescing window, and completes exceptionally if the send fails.
+     */
+    public CompletableFuture<Void> sendBridgedDeviceCommand(ChannelUID channelUID, Command command) {
+        logger.trace("Sending command {} for channel {} from thing {}", command, channelUID, channelUID.getThingUID());
+        Thing targetThing = thingRegistry.get(channelUID.getThingUID());
+        Channel channel = targetThing.getChannel(channelUID);
+        if (command instanceof StringType) {
+            return sendCommand(channelUID, targetThing, channel, () -> ((StringType) command).toString());
         } else if (command instanceof DecimalType) {
-            sendCommand(channelUID, targetThing, channel, () -> ((DecimalType) command).doubleValue());
+            return sendCommand(channelUID, targetThing, channel, () -> ((DecimalType) command).doubleValue());
         } else if (command instanceof QuantityType) {
-            sendCommand(channelUID, targetThing, channel, () -> ((QuantityType<?>) command).doubleValue());
+            return sendCommand(channelUID, targetThing, channel, () -> ((QuantityType<?>) command).doubleValue());
         } else if (command instanceof OnOffType) {
-            sendCommand(channelUID, targetThing, channel, () -> OnOffType.ON.equals(command));
+            return sendCommand(channelUID, targetThing, channel, () -> OnOffType.ON.equals(command));
         } else {
-            {
-                logger.trace("Ignored unsupported command type {}", command);
-            }
+            logger.trace("Ignored unsupported command type {}", command);
         }
-        return empty();
+        return CompletableFuture.completedFuture(null);
     }
 
-    private void sendCommand(ChannelUID channelUID, Thing targetThing, Channel channel, Supplier<Object> valueSupplier) throws AuthenticationException, IOException, CommandFailureException {
+    private CompletableFuture<Void> sendCommand(ChannelUID channelUID, Thing targetThing, Channel channel, Supplier<Object> valueSupplier) {
         CommandDescriptor commandDescriptor = getCommandDescriptor(targetThing.getChannel(channelUID)).orElse(null);
         if (commandDescriptor != null) {
             Object value = valueSupplier.get();
@@ -200,11 +360,12 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
             String paramName = channel.getProperties().get(PROPERTY_PARAM_NAME);
             if (paramName != null) {
                 values.put(paramName, value);
-                vicareService.sendCommand(commandDescriptor.getUri(), values);
+                return commandCoalescer.submit(commandDescriptor.getUri(), values);
             } else if (Boolean.TRUE.equals(value)) {
-                vicareService.sendCommand(commandDescriptor.getUri(), emptyMap());
+                return commandCoalescer.submit(commandDescriptor.getUri(), emptyMap());
             }
         }
+        return CompletableFuture.completedFuture(null);
     }
 
     private synchronized CompletableFuture<List<Feature>> getFeatures(Thing thing) {
@@ -230,7 +391,7 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
                 }
                 return null;
             }
-        });
+        }, pollWorkers);
         return features;
     }
 
@@ -16,4 +16,17 @@ public class VicareConstants {
     public static final String PROPERTY_DEVICE_TYPE = "deviceType";
     public static final String PROPERTY_PARAM_NAME = "paramName";
     public static final String PROPERTY_BINDING_VERSION = "bindingVersion";
+    public static final String CHANNEL_API_CALLS_TODAY = "apiCallsToday";
+    public static final String CHANNEL_API_LAST_LATENCY = "apiLastLatency";
+    public static final String CHANNEL_API_REMAINING_BUDGET = "apiRemainingBudget";
+    public static final String CHANNEL_CIRCUIT_BREAKERS = "circuitBreakers";
+    public static final String CHANNEL_RESPONSE_BYTES = "responseBytes";
+    public static final String CHANNEL_WIRE_BYTES = "wireBytes";
+    public static final String CHANNEL_COMMANDS_SENT = "commandsSent";
+    public static final String CHANNEL_COMMANDS_COALESCED = "commandsCoalesced";
+    public static final String CHANNEL_POLL_CYCLE_TIME = "pollCycleTime";
+    public static final String CHANNEL_DISCOVERY_SCAN_TIME = "discoveryScanTime";
+    public static final String CHANNEL_DISCOVERY_ADDED = "discoveryAdded";
+    public static final String CHANNEL_DISCOVERY_CHANGED = "discoveryChanged";
+    public static final String CHANNEL_DISCOVERY_REMOVED = "discoveryRemoved";
 }
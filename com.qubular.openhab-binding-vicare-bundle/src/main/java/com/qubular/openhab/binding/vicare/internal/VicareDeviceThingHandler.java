@@ -22,7 +22,6 @@ import org.openhab.core.thing.binding.builder.ChannelBuilder;
 import org.openhab.core.thing.binding.builder.ThingBuilder;
 import org.openhab.core.thing.type.*;
 import org.openhab.core.types.*;
-import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -33,12 +32,13 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import static com.qubular.openhab.binding.vicare.internal.DeviceDiscoveryEvent.generateTopic;
 import static com.qubular.openhab.binding.vicare.internal.VicareConstants.*;
 import static com.qubular.openhab.binding.vicare.internal.VicareUtil.decodeThingUniqueId;
 import static com.qubular.openhab.binding.vicare.internal.VicareUtil.escapeUIDSegment;
@@ -70,7 +70,8 @@ public class VicareDeviceThingHandler extends BaseThingHandler implements Channe
     private static final Logger logger = LoggerFactory.getLogger(VicareDeviceThingHandler.class);
     private final VicareService vicareService;
     private final VicareServiceProvider vicareServiceProvider;
-    private ServiceRegistration<EventHandler> discoveryListenerRegistration;
+    private final DeviceDiscoveryEventDispatcher deviceDiscoveryEventDispatcher;
+    private final EventHandler discoveryEventHandler = new DiscoveryEventHandler();
 
     private static final Map<String, ConsumptionFeature.Stat> CONSUMPTION_STATS_BY_CHANNEL_NAME =
             CONSUMPTION_CHANNEL_NAMES_BY_STAT.entrySet().stream()
@@ -80,19 +81,18 @@ public class VicareDeviceThingHandler extends BaseThingHandler implements Channe
 
     public VicareDeviceThingHandler(VicareServiceProvider vicareServiceProvider,
                                     Thing thing,
-                                    VicareService vicareService) {
+                                    VicareService vicareService,
+                                    DeviceDiscoveryEventDispatcher deviceDiscoveryEventDispatcher) {
         super(thing);
         this.vicareServiceProvider = vicareServiceProvider;
+        this.deviceDiscoveryEventDispatcher = deviceDiscoveryEventDispatcher;
         logger.info("Creating handler for {}", thing.getUID());
         this.vicareService = vicareService;
     }
 
     @Override
     public void dispose() {
-        if (discoveryListenerRegistration != null) {
-            discoveryListenerRegistration.unregister();
-            discoveryListenerRegistration = null;
-        }
+        deviceDiscoveryEventDispatcher.unregister(thing.getUID(), discoveryEventHandler);
         super.dispose();
     }
 
@@ -103,10 +103,7 @@ public class VicareDeviceThingHandler extends BaseThingHandler implements Channe
     public void initialize() {
         String deviceUniqueId = getDeviceUniqueId(thing);
         VicareUtil.IGD igd = decodeThingUniqueId(deviceUniqueId);
-        Hashtable<String, Object> subscriptionProps = new Hashtable<>();
-        subscriptionProps.put(EVENT_TOPIC, generateTopic(thing.getUID()));
-        discoveryListenerRegistration = vicareServiceProvider.getBundleContext().registerService(
-                EventHandler.class, new DiscoveryEventHandler(), subscriptionProps);
+        deviceDiscoveryEventDispatcher.register(thing.getUID(), discoveryEventHandler);
         CompletableFuture.runAsync(() -> {
             try {
                 List<Feature> features = vicareService.getFeatures(igd.installationId, igd.gatewaySerial, igd.deviceId);
@@ -404,8 +401,9 @@ public class VicareDeviceThingHandler extends BaseThingHandler implements Channe
     }
 
     public void syncHandleCommand(ChannelUID channelUID, Command command) {
-        try {
-            Optional<Feature> feature = ((VicareBridgeHandler) getBridge().getHandler()).handleBridgedDeviceCommand(channelUID, command);
+        VicareBridgeHandler bridgeHandler = (VicareBridgeHandler) getBridge().getHandler();
+        if (command instanceof RefreshType) {
+            Optional<Feature> feature = bridgeHandler.handleBridgedDeviceCommand(channelUID, command);
             feature.ifPresent(f -> {
                 f.accept(new Feature.Visitor() {
                     @Override
@@ -539,12 +537,28 @@ public class VicareDeviceThingHandler extends BaseThingHandler implements Channe
             if (thing.getStatus() != ThingStatus.ONLINE) {
                 updateStatus(ThingStatus.ONLINE);
             }
-        } catch (AuthenticationException e) {
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE, "Unable to authenticate with Viessmann API: " + e.getMessage());
-        } catch (IOException e) {
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE, "Unable to communicate with Viessmann API: " + e.getMessage());
-        } catch (CommandFailureException e) {
-            logger.warn("Unable to perform command {} for channel {} {}: {}", command, channelUID, e.getReason(), e.getMessage());
+        } else {
+            bridgeHandler.sendBridgedDeviceCommand(channelUID, command)
+                    .whenComplete((result, t) -> {
+                        if (t != null) {
+                            commandFailed(channelUID, command, t);
+                        } else if (thing.getStatus() != ThingStatus.ONLINE) {
+                            updateStatus(ThingStatus.ONLINE);
+                        }
+                    });
+        }
+    }
+
+    private void commandFailed(ChannelUID channelUID, Command command, Throwable t) {
+        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if (cause instanceof CommandFailureException) {
+            logger.warn("Unable to perform command {} for channel {} {}: {}", command, channelUID, ((CommandFailureException) cause).getReason(), cause.getMessage());
+        } else if (cause instanceof CancellationException) {
+            logger.debug("Command {} for channel {} was cancelled", command, channelUID);
+        } else if (cause instanceof AuthenticationException) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, "Unable to authenticate with Viessmann API: " + cause.getMessage());
+        } else {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, "Unable to communicate with Viessmann API: " + cause.getMessage());
         }
     }
 
@@ -577,7 +591,7 @@ public class VicareDeviceThingHandler extends BaseThingHandler implements Channe
             propsToWipe.forEach(key -> oldProps.put(key, null));
 
             Arrays.stream(event.getPropertyNames()).forEach(name -> {
-                if (!EVENT_TOPIC.equals(name)) {
+                if (!EVENT_TOPIC.equals(name) && !DeviceDiscoveryEvent.PROPERTY_THING_UID.equals(name)) {
                     Object value = event.getProperty(name);
                     if (value instanceof String) {
                         oldProps.put(name, (String) value);
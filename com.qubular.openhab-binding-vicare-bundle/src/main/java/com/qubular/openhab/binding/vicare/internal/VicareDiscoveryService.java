@@ -26,6 +26,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
@@ -47,6 +49,7 @@ public class VicareDiscoveryService extends AbstractDiscoveryService
     private ScheduledFuture<?> backgroundJob;
     private ServiceRegistration<EventHandler> eventHandlerRegistration;
     private EventAdmin eventAdmin;
+    private final Map<ThingUID, String> fingerprints = new HashMap<>();
 
     /** Invoked by the bridge handler factory */
     public VicareDiscoveryService() {
@@ -70,7 +73,7 @@ public class VicareDiscoveryService extends AbstractDiscoveryService
     protected synchronized void startBackgroundDiscovery() {
         logger.info("Starting background discovery");
         if (backgroundJob == null) {
-            backgroundJob = scheduler.scheduleAtFixedRate(scanJob(), 0, 1, TimeUnit.HOURS);
+            backgroundJob = scheduler.scheduleAtFixedRate(scanJob(false), 0, 1, TimeUnit.HOURS);
         }
     }
 
@@ -85,20 +88,26 @@ public class VicareDiscoveryService extends AbstractDiscoveryService
 
     @Override
     protected void startScan() {
-        scheduler.submit(scanJob());
+        scheduler.submit(scanJob(true));
     }
 
-    private Runnable scanJob() {
+    /**
+     * @param republishAll true to publish every device found, false to publish only devices that are new or
+     *                     whose properties have changed since the last scan.
+     */
+    private Runnable scanJob(boolean republishAll) {
         return () -> {
             logger.info("Starting Viessmann bridge scan");
+            Instant scanStart = Instant.now();
             try {
                 List<Installation> installations = getVicareService().getInstallations();
+                List<DiscoveryResult> results = new ArrayList<>();
                 for (Installation installation : installations) {
                     for (Gateway gateway : installation.getGateways()) {
                         for (Device device : gateway.getDevices()) {
                             switch (device.getDeviceType()) {
                                 case DEVICE_TYPE_HEATING:
-                                    discoverHeating(installation, gateway, device, bridgeHandler.join().getThing().getUID());
+                                    results.add(discoverHeating(installation, gateway, device, bridgeHandler.join().getThing().getUID()));
                                     break;
                                 default:
                                     logger.info("Ignoring unsupported device type " + device.getDeviceType());
@@ -106,6 +115,7 @@ public class VicareDiscoveryService extends AbstractDiscoveryService
                         }
                     }
                 }
+                publishChanges(results, republishAll, scanStart);
                 getBridgeHandler().updateStatus(ThingStatus.ONLINE);
             } catch (AuthenticationException e) {
                 logger.warn("Authentication problem scanning Viessmann API:" + e.getMessage());
@@ -130,7 +140,41 @@ public class VicareDiscoveryService extends AbstractDiscoveryService
         };
     }
 
-    private void discoverHeating(Installation installation, Gateway gateway, Device device, ThingUID bridgeId) {
+    private synchronized void publishChanges(List<DiscoveryResult> results, boolean republishAll, Instant scanStart) {
+        int added = 0;
+        int changed = 0;
+        Set<ThingUID> removed = new HashSet<>(fingerprints.keySet());
+        for (DiscoveryResult result : results) {
+            ThingUID thingUID = result.getThingUID();
+            removed.remove(thingUID);
+            String fingerprint = new TreeMap<>(result.getProperties()).toString();
+            String previous = fingerprints.put(thingUID, fingerprint);
+            if (previous == null) {
+                ++added;
+            } else if (!previous.equals(fingerprint)) {
+                ++changed;
+            } else if (!republishAll) {
+                continue;
+            }
+            logger.info("Discovered {}", result.getProperties().get(PROPERTY_DEVICE_UNIQUE_ID));
+            if (eventAdmin != null) {
+                Map<String, Object> eventProps = new HashMap<>(result.getProperties());
+                eventProps.put(DeviceDiscoveryEvent.PROPERTY_THING_UID, thingUID);
+                eventAdmin.postEvent(new Event(DeviceDiscoveryEvent.generateTopic(thingUID), eventProps));
+            }
+            thingDiscovered(result);
+        }
+        for (ThingUID thingUID : removed) {
+            logger.info("Device {} no longer present", thingUID);
+            fingerprints.remove(thingUID);
+            thingRemoved(thingUID);
+        }
+        Duration scanDuration = Duration.between(scanStart, Instant.now());
+        logger.debug("Scan took {}ms, {} added, {} changed, {} removed", scanDuration.toMillis(), added, changed, removed.size());
+        getBridgeHandler().updateDiscoveryStatistics(scanDuration, added, changed, removed.size());
+    }
+
+    private DiscoveryResult discoverHeating(Installation installation, Gateway gateway, Device device, ThingUID bridgeId) {
         String uniqueId = VicareUtil.encodeThingUniqueId(installation.getId(),
                 gateway.getSerial(),
                 device.getId());
@@ -151,16 +195,11 @@ public class VicareDiscoveryService extends AbstractDiscoveryService
         if (device.getModelId() != null) {
             props.put(PROPERTY_MODEL_ID, device.getModelId());
         }
-        DiscoveryResult result = DiscoveryResultBuilder.create(thingUid)
+        return DiscoveryResultBuilder.create(thingUid)
                 .withBridge(bridgeId)
                 .withProperties(props)
                 .withRepresentationProperty(PROPERTY_DEVICE_UNIQUE_ID)
                 .build();
-        logger.info("Discovered {}", uniqueId);
-        if (eventAdmin != null) {
-            eventAdmin.postEvent(new Event(DeviceDiscoveryEvent.generateTopic(thingUid), props));
-        }
-        this.thingDiscovered(result);
     }
 
     @Override
@@ -194,7 +233,7 @@ public class VicareDiscoveryService extends AbstractDiscoveryService
         @Override
         public void handleEvent(org.osgi.service.event.Event event) {
             logger.info("Received token event.");
-            VicareDiscoveryService.this.startScan();
+            scheduler.submit(scanJob(false));
         }
     }
 
@@ -27,11 +27,14 @@ public class VicareHandlerFactory extends BaseThingHandlerFactory {
     private static final Logger logger = LoggerFactory.getLogger(VicareHandlerFactory.class);
     private final VicareService vicareService;
     private final VicareServiceProvider vicareServiceProvider;
+    private final DeviceDiscoveryEventDispatcher deviceDiscoveryEventDispatcher;
 
     @Activate
     public VicareHandlerFactory(BundleContext bundleContext,
-                                @Reference VicareServiceProvider vicareServiceProvider) {
+                                @Reference VicareServiceProvider vicareServiceProvider,
+                                @Reference DeviceDiscoveryEventDispatcher deviceDiscoveryEventDispatcher) {
         this.vicareServiceProvider = vicareServiceProvider;
+        this.deviceDiscoveryEventDispatcher = deviceDiscoveryEventDispatcher;
         Bundle bundle = bundleContext.getBundle();
         logger.info("Activating Vicare Binding build {}", Instant.ofEpochMilli(bundle.getLastModified()));
         this.vicareService = vicareServiceProvider.getVicareService();
@@ -48,7 +51,7 @@ public class VicareHandlerFactory extends BaseThingHandlerFactory {
         if (VicareConstants.THING_TYPE_BRIDGE.equals(thing.getThingTypeUID())) {
             return new VicareBridgeHandler(vicareServiceProvider, (Bridge) thing);
         } else if (VicareConstants.THING_TYPE_HEATING.equals(thing.getThingTypeUID())) {
-            return new VicareDeviceThingHandler(vicareServiceProvider, thing, vicareService);
+            return new VicareDeviceThingHandler(vicareServiceProvider, thing, vicareService, deviceDiscoveryEventDispatcher);
         }
         return null;
     }
@@ -45,6 +45,11 @@ public class SimpleConfiguration implements VicareConfiguration {
         this.configurationParameters = configurationParameters;
     }
 
+    @Override
+    public boolean isDedicatedHttpClientEnabled() {
+        return (Boolean) ofNullable(configurationParameters.get("dedicatedHttpClient")).orElse(false);
+    }
+
     @Override
     public File getResponseCaptureFolder() {
         return bundleContext.getDataFile("captures");
@@ -60,6 +65,26 @@ public class SimpleConfiguration implements VicareConfiguration {
         return (Boolean) ofNullable(configurationParameters.get("responseCapture")).orElse(false);
     }
 
+    @Override
+    public long getResponseCaptureMaxBytes() {
+        return ofNullable((BigDecimal) configurationParameters.get("responseCaptureSizeLimit"))
+                .map(limit -> limit.longValue() * 1024 * 1024)
+                .orElse(VicareConfiguration.super.getResponseCaptureMaxBytes());
+    }
+
+    @Override
+    public File getResponseReplayFolder() {
+        return (Boolean) ofNullable(configurationParameters.get("responseReplay")).orElse(false) ?
+                bundleContext.getDataFile("replay") : null;
+    }
+
+    @Override
+    public double getResponseReplaySpeed() {
+        return ofNullable((BigDecimal) configurationParameters.get("responseReplaySpeed"))
+                .map(BigDecimal::doubleValue)
+                .orElse(VicareConfiguration.super.getResponseReplaySpeed());
+    }
+
     @Override
     public File getResponseInjectionFile() {
         return bundleContext.getDataFile("responseInjection.json");
@@ -1,23 +1,90 @@
 package com.qubular.openhab.binding.vicare.internal.httpclientprovider;
 
 import com.qubular.vicare.HttpClientProvider;
+import com.qubular.vicare.VicareConfiguration;
 import org.eclipse.jetty.client.HttpClient;
 import org.openhab.core.io.net.http.HttpClientFactory;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+
+/**
+ * Provides openHAB's shared HttpClient, or if enabled in the bridge configuration a dedicated client for the
+ * Viessmann API. The dedicated client keeps a small pool of connections open for long enough to be reused on the
+ * next poll, and leaves gzip decoding to the Vicare service so that it can record the compressed response size. The
+ * dedicated client is stopped when it is turned off or the bridge is disposed.
+ */
 @Component(service = HttpClientProvider.class)
 public class CommonHttpClientProvider implements HttpClientProvider {
+    private static final Logger logger = LoggerFactory.getLogger(CommonHttpClientProvider.class);
+    private static final String CONSUMER_NAME = "vicare";
+    private static final int MAX_CONNECTIONS_PER_DESTINATION = 4;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(5);
+
     private final HttpClientFactory httpClientFactory;
+    private final VicareConfiguration config;
+    private volatile HttpClient dedicatedHttpClient;
 
     @Activate
-    public CommonHttpClientProvider(@Reference HttpClientFactory httpClientFactory) {
+    public CommonHttpClientProvider(@Reference HttpClientFactory httpClientFactory,
+                                    @Reference VicareConfiguration config) {
         this.httpClientFactory = httpClientFactory;
+        this.config = config;
+    }
+
+    @Deactivate
+    public void deactivate() {
+        stopDedicatedHttpClient();
+    }
+
+    /**
+     * Stop the dedicated client if one has been started. A new one is started if it is needed again.
+     */
+    public synchronized void stopDedicatedHttpClient() {
+        if (dedicatedHttpClient != null) {
+            try {
+                dedicatedHttpClient.stop();
+            } catch (Exception e) {
+                logger.warn("Unable to stop HTTP client", e);
+            }
+            dedicatedHttpClient = null;
+        }
     }
 
     @Override
     public HttpClient getHttpClient() {
+        if (config.isDedicatedHttpClientEnabled()) {
+            return getDedicatedHttpClient();
+        }
+        if (dedicatedHttpClient != null) {
+            // the dedicated client has been turned off
+            stopDedicatedHttpClient();
+        }
         return httpClientFactory.getCommonHttpClient();
     }
+
+    private synchronized HttpClient getDedicatedHttpClient() {
+        if (dedicatedHttpClient == null) {
+            HttpClient httpClient = httpClientFactory.createHttpClient(CONSUMER_NAME);
+            httpClient.setMaxConnectionsPerDestination(MAX_CONNECTIONS_PER_DESTINATION);
+            httpClient.setConnectTimeout(CONNECT_TIMEOUT.toMillis());
+            httpClient.setIdleTimeout(IDLE_TIMEOUT.toMillis());
+            httpClient.setTCPNoDelay(true);
+            try {
+                httpClient.start();
+            } catch (Exception e) {
+                logger.warn("Unable to start dedicated HTTP client, using the common client", e);
+                return httpClientFactory.getCommonHttpClient();
+            }
+            httpClient.getContentDecoderFactories().clear();
+            dedicatedHttpClient = httpClient;
+        }
+        return dedicatedHttpClient;
+    }
 }
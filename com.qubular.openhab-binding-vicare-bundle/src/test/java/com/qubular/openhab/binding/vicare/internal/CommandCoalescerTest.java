@@ -0,0 +1,117 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.qubular.vicare.CommandFailureException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandCoalescerTest {
+    private static final URI SET_TEMPERATURE = URI.create("https://api.viessmann.com/iot/v1/features/heating.dhw.temperature.main/commands/setTargetTemperature");
+    private static final URI SET_MODE = URI.create("https://api.viessmann.com/iot/v1/features/heating.circuits.0.operating.modes.active/commands/setMode");
+
+    private ScheduledExecutorService scheduler;
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private CommandCoalescer coalescer;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        coalescer = new CommandCoalescer((uri, params) -> sent.add(uri.getPath().replaceAll(".*/features/", "") + " " + params),
+                                         scheduler, () -> Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        coalescer.dispose();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void sendsImmediatelyWhenIdle() throws Exception {
+        coalescer.submit(SET_TEMPERATURE, Map.of("temperature", 45.0));
+
+        assertEquals(List.of("heating.dhw.temperature.main/commands/setTargetTemperature {temperature=45.0}"), sent);
+        assertEquals(1, coalescer.getSentCount());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void burstIsCollapsedToLastValue() throws Exception {
+        coalescer.submit(SET_TEMPERATURE, Map.of("temperature", 45.0));
+        coalescer.submit(SET_TEMPERATURE, Map.of("temperature", 46.0));
+        coalescer.submit(SET_TEMPERATURE, Map.of("temperature", 47.0));
+        coalescer.submit(SET_TEMPERATURE, Map.of("temperature", 48.0)).get(1, TimeUnit.SECONDS);
+
+        assertEquals(List.of("heating.dhw.temperature.main/commands/setTargetTemperature {temperature=45.0}",
+                             "heating.dhw.temperature.main/commands/setTargetTemperature {temperature=48.0}"), sent);
+        assertEquals(2, coalescer.getSentCount());
+        assertEquals(2, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void commandsToDifferentUrisKeepTheirOrder() throws Exception {
+        coalescer.submit(SET_TEMPERATURE, Map.of("temperature", 45.0));
+        coalescer.submit(SET_TEMPERATURE, Map.of("temperature", 46.0));
+        coalescer.submit(SET_MODE, Map.of("mode", "heating")).get(1, TimeUnit.SECONDS);
+
+        assertEquals(List.of("heating.dhw.temperature.main/commands/setTargetTemperature {temperature=45.0}",
+                             "heating.dhw.temperature.main/commands/setTargetTemperature {temperature=46.0}",
+                             "heating.circuits.0.operating.modes.active/commands/setMode {mode=heating}"), sent);
+    }
+
+    @Test
+    public void coalescedFailureIsReportedToAllReplacedCommands() throws Exception {
+        CommandCoalescer failingCoalescer = new CommandCoalescer((uri, params) -> {
+            if (params.get("temperature").equals(47.0)) {
+                throw new CommandFailureException("Command failed", "VALIDATION_ERROR");
+            }
+        }, scheduler, () -> Duration.ofMillis(200));
+        try {
+            failingCoalescer.submit(SET_TEMPERATURE, Map.of("temperature", 45.0)).get(1, TimeUnit.SECONDS);
+            CompletableFuture<Void> replaced = failingCoalescer.submit(SET_TEMPERATURE, Map.of("temperature", 46.0));
+            CompletableFuture<Void> last = failingCoalescer.submit(SET_TEMPERATURE, Map.of("temperature", 47.0));
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> last.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(CommandFailureException.class, e.getCause());
+            assertTrue(replaced.isCompletedExceptionally());
+        } finally {
+            failingCoalescer.dispose();
+        }
+    }
+
+    @Test
+    public void immediateFailureCompletesExceptionally() {
+        CommandCoalescer failingCoalescer = new CommandCoalescer((uri, params) -> {
+            throw new IOException("Connection refused");
+        }, scheduler, () -> Duration.ofMillis(200));
+
+        CompletableFuture<Void> result = failingCoalescer.submit(SET_MODE, Map.of("mode", "heating"));
+
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(1, failingCoalescer.getSentCount());
+    }
+
+    @Test
+    public void disposeCancelsPendingCommands() throws Exception {
+        coalescer.submit(SET_TEMPERATURE, Map.of("temperature", 45.0));
+        CompletableFuture<Void> pending = coalescer.submit(SET_TEMPERATURE, Map.of("temperature", 46.0));
+
+        coalescer.dispose();
+
+        assertTrue(pending.isCancelled());
+    }
+}
@@ -0,0 +1,64 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.junit.jupiter.api.Test;
+import org.openhab.core.thing.ThingUID;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+import java.util.Map;
+
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.THING_TYPE_BRIDGE;
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.THING_TYPE_HEATING;
+import static org.mockito.Mockito.*;
+
+class DeviceDiscoveryEventDispatcherTest {
+    private static final ThingUID BRIDGE_UID = new ThingUID(THING_TYPE_BRIDGE, "mybridge");
+    private static final ThingUID THING_1 = new ThingUID(THING_TYPE_HEATING, BRIDGE_UID, "device1");
+    private static final ThingUID THING_2 = new ThingUID(THING_TYPE_HEATING, BRIDGE_UID, "device2");
+
+    @Test
+    public void routesEventToRegisteredHandler() {
+        DeviceDiscoveryEventDispatcher dispatcher = new DeviceDiscoveryEventDispatcher();
+        EventHandler handler1 = mock(EventHandler.class);
+        EventHandler handler2 = mock(EventHandler.class);
+        dispatcher.register(THING_1, handler1);
+        dispatcher.register(THING_2, handler2);
+
+        Event event = new Event(DeviceDiscoveryEvent.generateTopic(THING_2),
+                                Map.of(DeviceDiscoveryEvent.PROPERTY_THING_UID, THING_2));
+        dispatcher.handleEvent(event);
+
+        verify(handler2).handleEvent(event);
+        verifyNoInteractions(handler1);
+    }
+
+    @Test
+    public void ignoresEventAfterUnregister() {
+        DeviceDiscoveryEventDispatcher dispatcher = new DeviceDiscoveryEventDispatcher();
+        EventHandler handler = mock(EventHandler.class);
+        dispatcher.register(THING_1, handler);
+        dispatcher.unregister(THING_1, handler);
+
+        dispatcher.handleEvent(new Event(DeviceDiscoveryEvent.generateTopic(THING_1),
+                                         Map.of(DeviceDiscoveryEvent.PROPERTY_THING_UID, THING_1)));
+
+        verifyNoInteractions(handler);
+    }
+
+    @Test
+    public void unregisterKeepsReplacementHandler() {
+        DeviceDiscoveryEventDispatcher dispatcher = new DeviceDiscoveryEventDispatcher();
+        EventHandler oldHandler = mock(EventHandler.class);
+        EventHandler newHandler = mock(EventHandler.class);
+        dispatcher.register(THING_1, oldHandler);
+        dispatcher.register(THING_1, newHandler);
+        dispatcher.unregister(THING_1, oldHandler);
+
+        Event event = new Event(DeviceDiscoveryEvent.generateTopic(THING_1),
+                                Map.of(DeviceDiscoveryEvent.PROPERTY_THING_UID, THING_1));
+        dispatcher.handleEvent(event);
+
+        verify(newHandler).handleEvent(event);
+        verifyNoInteractions(oldHandler);
+    }
+}
@@ -0,0 +1,105 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeaturePollPipelineTest {
+    private static class Device {
+        final long installationId;
+        final String id;
+
+        Device(long installationId, String id) {
+            this.installationId = installationId;
+            this.id = id;
+        }
+    }
+
+    @Test
+    public void limitsRequestsInFlight() {
+        FeaturePollPipeline pipeline = new FeaturePollPipeline(() -> 3, () -> 1);
+        List<Device> devices = List.of(new Device(1, "1a"), new Device(1, "1b"), new Device(1, "1c"),
+                                       new Device(2, "2a"), new Device(2, "2b"),
+                                       new Device(3, "3a"), new Device(4, "4a"));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger maxInFlightPerInstallation = new AtomicInteger();
+        Map<Long, AtomicInteger> inFlightByInstallation = new ConcurrentHashMap<>();
+        List<String> published = new CopyOnWriteArrayList<>();
+
+        Duration cycleTime = pipeline.poll(devices,
+                                           d -> d.installationId,
+                                           d -> CompletableFuture.runAsync(() -> {
+                                               maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                                               maxInFlightPerInstallation.accumulateAndGet(
+                                                       inFlightByInstallation.computeIfAbsent(d.installationId, k -> new AtomicInteger()).incrementAndGet(),
+                                                       Math::max);
+                                               try {
+                                                   Thread.sleep(50);
+                                               } catch (InterruptedException e) {
+                                                   throw new RuntimeException(e);
+                                               }
+                                               inFlightByInstallation.get(d.installationId).decrementAndGet();
+                                               inFlight.decrementAndGet();
+                                           }),
+                                           d -> published.add(d.id))
+                .orTimeout(5, TimeUnit.SECONDS)
+                .join();
+
+        assertEquals(7, published.size());
+        assertTrue(maxInFlight.get() <= 3);
+        assertEquals(1, maxInFlightPerInstallation.get());
+        assertTrue(published.indexOf("1a") < published.indexOf("1b"));
+        assertTrue(published.indexOf("1b") < published.indexOf("1c"));
+        assertEquals(cycleTime, pipeline.getLastCycleTime());
+    }
+
+    @Test
+    public void failedFetchIsStillPublished() {
+        FeaturePollPipeline pipeline = new FeaturePollPipeline(() -> 2, () -> 2);
+        List<String> published = new CopyOnWriteArrayList<>();
+
+        pipeline.poll(List.of(new Device(1, "1a"), new Device(1, "1b")),
+                      d -> d.installationId,
+                      d -> "1a".equals(d.id) ?
+                              CompletableFuture.failedFuture(new RuntimeException("test")) :
+                              CompletableFuture.completedFuture(null),
+                      d -> published.add(d.id))
+                .orTimeout(5, TimeUnit.SECONDS)
+                .join();
+
+        assertEquals(List.of("1a", "1b"), published);
+    }
+
+    @Test
+    public void deviceWithBadInstallationIsSkipped() {
+        FeaturePollPipeline pipeline = new FeaturePollPipeline(() -> 2, () -> 2);
+        List<String> published = new CopyOnWriteArrayList<>();
+        List<Device> devices = List.of(new Device(1, "1a"), new Device(-1, "bad"), new Device(2, "2a"));
+
+        for (int cycle = 0; cycle < 2; ++cycle) {
+            pipeline.poll(devices,
+                          d -> {
+                              if (d.installationId < 0) {
+                                  throw new NumberFormatException("bad device id");
+                              }
+                              return d.installationId;
+                          },
+                          d -> CompletableFuture.completedFuture(null),
+                          d -> published.add(d.id))
+                    .orTimeout(5, TimeUnit.SECONDS)
+                    .join();
+        }
+
+        assertEquals(List.of("1a", "2a", "1a", "2a"), published);
+    }
+}
@@ -90,6 +90,7 @@ public class VicareBindingTest {
     private ConfigurationAdmin configurationAdmin;
     @Mock
     private VicareServiceProvider vicareServiceProvider;
+    private DeviceDiscoveryEventDispatcher deviceDiscoveryEventDispatcher;
     private MyChannelTypeRegistry channelTypeRegistry;
     @Mock
     private ChannelTypeProvider xmlChannelTypeProvider;
@@ -424,6 +425,7 @@ public class VicareBindingTest {
         when(vicareServiceProvider.getBundleContext()).thenReturn(bundleContext);
         when(vicareServiceProvider.getConfigurationAdmin()).thenReturn(configurationAdmin);
         when(vicareServiceProvider.getChannelTypeRegistry()).thenReturn(myChannelTypeRegistry);
+        deviceDiscoveryEventDispatcher = new DeviceDiscoveryEventDispatcher();
         doReturn(channelTypes.values()).when(xmlChannelTypeProvider).getChannelTypes(any(Locale.class));
         doAnswer(i -> channelTypes.get(i.getArgument(0))).when(xmlChannelTypeProvider).getChannelType(any(ChannelTypeUID.class), nullable(Locale.class));
         myChannelTypeRegistry.addChannelTypeProvider(xmlChannelTypeProvider);
@@ -443,7 +445,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
 
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         activateHandlerFactory(vicareHandlerFactory);
 
         BridgeHandler handler = (BridgeHandler) vicareHandlerFactory.createHandler(bridge);
@@ -457,7 +460,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
 
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         activateHandlerFactory(vicareHandlerFactory);
 
         bridgeHandler = vicareHandlerFactory.createHandler(bridge);
@@ -495,7 +499,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
 
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         activateHandlerFactory(vicareHandlerFactory);
 
         bridgeHandler = vicareHandlerFactory.createHandler(bridge);
@@ -521,7 +526,8 @@ public class VicareBindingTest {
 
         ThingHandlerCallback thingHandlerCallback = mock(ThingHandlerCallback.class);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         bridgeHandler = vicareHandlerFactory.createHandler(bridge);
         bridgeHandler.setCallback(thingHandlerCallback);
         VicareDiscoveryService discoveryService = VicareDiscoveryService.class.getConstructor().newInstance();
@@ -551,7 +557,8 @@ public class VicareBindingTest {
         vicareBridge();
 
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
 
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
 
@@ -568,7 +575,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         simpleHandlerCallback(bridge, handler);
@@ -589,7 +597,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -644,7 +653,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -700,7 +710,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -754,7 +765,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -803,7 +815,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -832,7 +845,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -855,7 +869,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -931,7 +946,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -973,7 +989,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1036,7 +1053,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1066,7 +1084,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1109,7 +1128,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1159,7 +1179,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1225,7 +1246,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1298,7 +1320,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1339,7 +1362,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1382,7 +1406,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1412,7 +1437,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1457,7 +1483,8 @@ public class VicareBindingTest {
         bridgeHandler.setCallback(mock(ThingHandlerCallback.class));
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1500,7 +1527,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1528,7 +1556,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1572,7 +1601,7 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                vicareServiceProvider);
+                vicareServiceProvider, deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1600,7 +1629,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1626,6 +1656,31 @@ public class VicareBindingTest {
                 Map.of("temperature", 51.0));
     }
 
+    @Test
+    public void failedCommandTakesDeviceOffline() throws AuthenticationException, IOException, CommandFailureException {
+        simpleHeatingInstallation();
+        URI setTargetTemperatureUri = URI.create("https://api.viessmann.com/iot/v1/equipment/installations/2012616/gateways/7633107093013212/devices/0/features/heating.dhw.temperature.main/commands/setTargetTemperature");
+        doThrow(new IOException("Connection refused")).when(vicareService).sendCommand(eq(setTargetTemperatureUri), anyMap());
+        Bridge bridge = vicareBridge();
+        createBridgeHandler(bridge);
+        VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
+        Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
+        ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
+        ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
+        registerAndInitialize(handler);
+        ArgumentCaptor<Thing> thingCaptor = forClass(Thing.class);
+        verify(callback, timeout(1000).atLeastOnce()).thingUpdated(thingCaptor.capture());
+        Channel tempChannel = findChannel(thingCaptor, "heating_dhw_temperature_main");
+
+        handler.handleCommand(tempChannel.getUID(), QuantityType.valueOf("51  °C"));
+        verify(vicareService, timeout(1000)).sendCommand(setTargetTemperatureUri, Map.of("temperature", 51.0));
+        verify(callback, timeout(1000)).statusUpdated(any(Thing.class),
+                argThat(tsi -> tsi.getStatus() == ThingStatus.OFFLINE &&
+                               tsi.getStatusDetail() == ThingStatusDetail.COMMUNICATION_ERROR));
+    }
+
     private static Channel findChannel(ArgumentCaptor<Thing> thingCaptor, String channelId) {
         Channel channel = findChannelNoVerify(thingCaptor, channelId);
         verifyChannel(channel);
@@ -1650,7 +1705,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1715,7 +1771,8 @@ public class VicareBindingTest {
         Thing boiler1 = heatingDeviceThing(DEVICE_1_ID);
         Thing boiler2 = heatingDeviceThing(DEVICE_2_ID);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         bridgeHandler = new VicareBridgeHandler(vicareServiceProvider, bridge);
         when(bridge.getHandler()).thenReturn((BridgeHandler) bridgeHandler);
         ThingHandler boilerHandler1 = vicareHandlerFactory.createHandler(boiler1);
@@ -1766,7 +1823,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1820,7 +1878,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1861,7 +1920,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1885,7 +1945,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1913,7 +1974,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -1979,7 +2041,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -2003,7 +2066,8 @@ public class VicareBindingTest {
         Bridge bridge = vicareBridge();
         createBridgeHandler(bridge);
         VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext,
-                                                                             vicareServiceProvider);
+                                                                             vicareServiceProvider,
+                                                                             deviceDiscoveryEventDispatcher);
         Thing deviceThing = heatingDeviceThing(DEVICE_1_ID);
         ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
         ThingHandlerCallback callback = simpleHandlerCallback(bridge, handler);
@@ -18,14 +18,18 @@ import org.mockito.quality.Strictness;
 import org.openhab.core.config.discovery.DiscoveryListener;
 import org.openhab.core.config.discovery.DiscoveryResult;
 import org.openhab.core.thing.Bridge;
+import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingUID;
 import org.openhab.core.thing.binding.BridgeHandler;
 import org.osgi.framework.BundleContext;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 import static com.qubular.openhab.binding.vicare.internal.VicareConstants.BINDING_ID;
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.PROPERTY_MODEL_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -85,4 +89,81 @@ public class VicareDiscoveryServiceTest {
         verify(discoveryListener, timeout(1000))
                 .thingDiscovered(same(discoveryService), discoveryCaptor.capture());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void unchangedDeviceIsNotRepublished() throws AuthenticationException, IOException {
+        doReturn(vicareService).when((VicareThingHandler)bridgeHandler).getVicareService();
+        doReturn(installations(heatingDevice("E3_Vitodens_100_0421"))).when(vicareService).getInstallations();
+        VicareDiscoveryService discoveryService = new VicareDiscoveryService();
+        DiscoveryListener discoveryListener = mock(DiscoveryListener.class);
+        discoveryService.addDiscoveryListener(discoveryListener);
+        discoveryService.setThingHandler(bridgeHandler);
+        verify(discoveryListener, timeout(1000)).thingDiscovered(same(discoveryService), any(DiscoveryResult.class));
+
+        rescan(discoveryService, 2);
+
+        verify(discoveryListener, times(1)).thingDiscovered(same(discoveryService), any(DiscoveryResult.class));
+        verify(discoveryListener, never()).thingRemoved(same(discoveryService), any(ThingUID.class));
+    }
+
+    @Test
+    public void changedDeviceIsRepublished() throws AuthenticationException, IOException {
+        doReturn(vicareService).when((VicareThingHandler)bridgeHandler).getVicareService();
+        doReturn(installations(heatingDevice("E3_Vitodens_100_0421")))
+                .doReturn(installations(heatingDevice("E3_Vitodens_200_0421")))
+                .when(vicareService).getInstallations();
+        VicareDiscoveryService discoveryService = new VicareDiscoveryService();
+        DiscoveryListener discoveryListener = mock(DiscoveryListener.class);
+        discoveryService.addDiscoveryListener(discoveryListener);
+        discoveryService.setThingHandler(bridgeHandler);
+        verify(discoveryListener, timeout(1000)).thingDiscovered(same(discoveryService), any(DiscoveryResult.class));
+
+        rescan(discoveryService, 2);
+
+        ArgumentCaptor<DiscoveryResult> discoveryCaptor = ArgumentCaptor.forClass(DiscoveryResult.class);
+        verify(discoveryListener, times(2)).thingDiscovered(same(discoveryService), discoveryCaptor.capture());
+        assertEquals("E3_Vitodens_200_0421", discoveryCaptor.getValue().getProperties().get(PROPERTY_MODEL_ID));
+    }
+
+    @Test
+    public void removedDeviceIsRemoved() throws AuthenticationException, IOException {
+        doReturn(vicareService).when((VicareThingHandler)bridgeHandler).getVicareService();
+        doReturn(installations(heatingDevice("E3_Vitodens_100_0421")))
+                .doReturn(installations())
+                .when(vicareService).getInstallations();
+        VicareDiscoveryService discoveryService = new VicareDiscoveryService();
+        DiscoveryListener discoveryListener = mock(DiscoveryListener.class);
+        discoveryService.addDiscoveryListener(discoveryListener);
+        discoveryService.setThingHandler(bridgeHandler);
+        ArgumentCaptor<DiscoveryResult> discoveryCaptor = ArgumentCaptor.forClass(DiscoveryResult.class);
+        verify(discoveryListener, timeout(1000)).thingDiscovered(same(discoveryService), discoveryCaptor.capture());
+
+        rescan(discoveryService, 2);
+
+        verify(discoveryListener).thingRemoved(same(discoveryService), eq(discoveryCaptor.getValue().getThingUID()));
+        verify((VicareBridgeHandler) bridgeHandler, timeout(1000))
+                .updateDiscoveryStatistics(any(Duration.class), eq(0), eq(0), eq(1));
+    }
+
+    private void rescan(VicareDiscoveryService discoveryService, int expectedScans) {
+        discoveryService.stopBackgroundDiscovery();
+        discoveryService.startBackgroundDiscovery();
+        verify((VicareBridgeHandler) bridgeHandler, timeout(1000).times(expectedScans)).updateStatus(ThingStatus.ONLINE);
+    }
+
+    private static Device heatingDevice(String modelId) {
+        return new Device("7633107093013212", "0", "7723181102527121", modelId, "Online", Device.DEVICE_TYPE_HEATING);
+    }
+
+    private static List<Installation> installations(Device... devices) {
+        List<Gateway> gateways = List.of(new Gateway("7633107093013212",
+                                                     null,
+                                                     0,
+                                                     null,
+                                                     null,
+                                                     null,
+                                                     2012616L,
+                                                     List.of(devices)));
+        return List.of(new Installation(2012616L, "Test description", gateways, null));
+    }
+}
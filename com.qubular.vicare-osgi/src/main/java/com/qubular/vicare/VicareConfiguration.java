@@ -4,6 +4,7 @@ import org.osgi.service.component.annotations.ComponentPropertyType;
 
 import java.io.File;
 import java.net.URI;
+import java.time.Duration;
 
 public interface VicareConfiguration {
     String DEFAULT_ACCESS_SERVER_URI = "https://iam.viessmann.com/idp/v2/token";
@@ -27,6 +28,32 @@ public interface VicareConfiguration {
         return getResponseCaptureFolder() != null;
     }
 
+    /**
+     * @return The total size of the compressed capture files, beyond which the oldest are deleted.
+     */
+    default long getResponseCaptureMaxBytes() {
+        return 10 * 1024 * 1024;
+    }
+
+    /**
+     * @return A folder of captured responses to play back instead of calling the API, or null to call the API.
+     */
+    default File getResponseReplayFolder() {
+        return null;
+    }
+
+    default boolean isResponseReplayEnabled() {
+        return getResponseReplayFolder() != null;
+    }
+
+    /**
+     * @return How many times faster than recorded the responses are played back. At 0 each request for a device
+     * is answered with its next recorded response, regardless of timing.
+     */
+    default double getResponseReplaySpeed() {
+        return 1.0;
+    }
+
     default File getResponseInjectionFile() {
         return null;
     }
@@ -42,4 +69,38 @@ public interface VicareConfiguration {
     default String getDebugInjectedGatewaySerial() {
         return null;
     }
+
+    /**
+     * @return How long the list of installations is cached for before it is fetched again from the API.
+     */
+    default Duration getInstallationsCacheTtl() {
+        return Duration.ofMinutes(15);
+    }
+
+    /**
+     * @return The number of IoT API calls allowed per day, used to report the remaining budget.
+     */
+    default int getDailyApiCallLimit() {
+        return 1450;
+    }
+
+    /**
+     * @return How long to wait for a response from an endpoint before giving up.
+     */
+    default Duration getRequestTimeout(VicareMetrics.Endpoint endpoint) {
+        switch (endpoint) {
+            case INSTALLATIONS:
+            case FEATURES:
+                return Duration.ofSeconds(30);
+            default:
+                return Duration.ofSeconds(15);
+        }
+    }
+
+    /**
+     * @return true to use an HTTP client tuned for the Viessmann API rather than the shared one.
+     */
+    default boolean isDedicatedHttpClientEnabled() {
+        return false;
+    }
 }
@@ -0,0 +1,92 @@
+package com.qubular.vicare;
+
+import com.qubular.circuitbreaker.CircuitBreaker;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Usage statistics for the calls made to the Viessmann API.
+ */
+public interface VicareMetrics {
+    enum Endpoint {
+        INSTALLATIONS,
+        FEATURES,
+        COMMAND,
+        TOKEN
+    }
+
+    /**
+     * Upper bounds in milliseconds of the latency histogram buckets, the last bucket is unbounded.
+     */
+    long[] LATENCY_BUCKETS_MILLIS = {50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    class EndpointStatistics {
+        public final long calls;
+        public final long failures;
+        public final long rateLimited;
+        public final Duration lastLatency;
+        public final Duration totalLatency;
+        public final long[] latencyHistogram;
+        /** Response body bytes after decompression. */
+        public final long responseBytes;
+        public final Duration totalParseTime;
+        /**
+         * Response body bytes as received, before decompression. Responses already decompressed by the HttpClient
+         * only count when they carry a Content-Length.
+         */
+        public final long wireBytes;
+
+        public EndpointStatistics(long calls, long failures, long rateLimited, Duration lastLatency,
+                                  Duration totalLatency, long[] latencyHistogram, long responseBytes,
+                                  Duration totalParseTime, long wireBytes) {
+            this.calls = calls;
+            this.failures = failures;
+            this.rateLimited = rateLimited;
+            this.lastLatency = lastLatency;
+            this.totalLatency = totalLatency;
+            this.latencyHistogram = latencyHistogram;
+            this.responseBytes = responseBytes;
+            this.totalParseTime = totalParseTime;
+            this.wireBytes = wireBytes;
+        }
+
+        public Duration getMeanLatency() {
+            return calls == 0 ? Duration.ZERO : totalLatency.dividedBy(calls);
+        }
+    }
+
+    EndpointStatistics getStatistics(Endpoint endpoint);
+
+    /**
+     * @return The number of IoT API calls made since midnight, which count towards the daily limit.
+     */
+    long getCallsToday();
+
+    /**
+     * @return The number of IoT API calls that can still be made today before the daily limit is reached.
+     */
+    long getRemainingDailyBudget();
+
+    long getRateLimitedCount();
+
+    long getTokenRefreshCount();
+
+    /**
+     * @return When the API rate limit resets, if the API has reported that the limit has been exceeded and the limit
+     * has not yet reset.
+     */
+    Optional<Instant> getRateLimitReset();
+
+    /**
+     * @return The latency of the most recent IoT API call.
+     */
+    Duration getLastLatency();
+
+    /**
+     * @return The state of the circuit breakers guarding the IoT API and the access server.
+     */
+    List<CircuitBreaker.Status> getCircuitBreakers();
+}
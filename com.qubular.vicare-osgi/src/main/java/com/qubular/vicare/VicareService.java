@@ -15,4 +15,16 @@ public interface VicareService {
     List<Feature> getFeatures(long installationId, String gatewaySerial, String deviceId) throws AuthenticationException, IOException;
 
     void sendCommand(URI uri, Map<String, Object> params) throws AuthenticationException, IOException, CommandFailureException;
+
+    /**
+     * Close the circuit breakers so that the next calls are sent to the API, e.g. after the configuration has changed.
+     * The state of the circuit breakers is available from {@link VicareMetrics#getCircuitBreakers()}.
+     */
+    void resetCircuitBreakers();
+
+    /**
+     * Discard cached API responses such as the installations, e.g. after the configuration or the authorisation
+     * has changed.
+     */
+    void invalidateCaches();
 }
@@ -0,0 +1,91 @@
+package com.qubular.vicare.internal;
+
+import com.qubular.vicare.AuthenticationException;
+import com.qubular.vicare.model.Installation;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Caches the installations response, which changes rarely but is requested by discovery, the setup page and
+ * handlers. Entries expire after a TTL and are invalidated when the access token, the authorisation or the
+ * configuration changes. Concurrent callers share a single in-flight request, and the list they share is unmodifiable.
+ */
+class InstallationsCache {
+    interface Loader {
+        List<Installation> load() throws AuthenticationException, IOException;
+    }
+
+    private static class Entry {
+        final String tokenKey;
+        final CompletableFuture<List<Installation>> installations;
+        volatile Instant loadedAt;
+
+        Entry(String tokenKey, CompletableFuture<List<Installation>> installations) {
+            this.tokenKey = tokenKey;
+            this.installations = installations;
+        }
+    }
+
+    private final Supplier<Duration> ttl;
+    private Entry entry;
+
+    InstallationsCache(Supplier<Duration> ttl) {
+        this.ttl = ttl;
+    }
+
+    List<Installation> get(String tokenKey, Loader loader) throws AuthenticationException, IOException {
+        Entry current;
+        boolean load = false;
+        synchronized (this) {
+            current = entry;
+            if (current == null ||
+                    !Objects.equals(current.tokenKey, tokenKey) ||
+                    (current.loadedAt != null && current.loadedAt.plus(ttl.get()).isBefore(Instant.now()))) {
+                current = new Entry(tokenKey, new CompletableFuture<>());
+                entry = current;
+                load = true;
+            }
+        }
+
+        if (load) {
+            try {
+                List<Installation> installations = loader.load();
+                current.loadedAt = Instant.now();
+                current.installations.complete(List.copyOf(installations));
+            } catch (AuthenticationException | IOException | RuntimeException e) {
+                discard(current);
+                current.installations.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return current.installations.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AuthenticationException) {
+                throw new AuthenticationException(cause.getMessage(), (Exception) cause);
+            } else if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            throw e;
+        }
+    }
+
+    synchronized void invalidate() {
+        entry = null;
+    }
+
+    private synchronized void discard(Entry failed) {
+        if (entry == failed) {
+            entry = null;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.qubular.vicare.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes captured API responses to gzip compressed files on a background thread. Captures are queued and dropped
+ * when the queue is full, so capturing never blocks the caller. Files are named with their capture time so they sort
+ * chronologically, and the oldest files are deleted once the folder exceeds its size cap.
+ */
+class ResponseCaptureWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCaptureWriter.class);
+    static final String SUFFIX = ".json.gz";
+    private static final String PART_SUFFIX = ".part";
+    static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSS'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private final Supplier<File> folder;
+    private final LongSupplier maxBytes;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicInteger sequence = new AtomicInteger();
+    // only accessed from the writer thread
+    private final TreeMap<String, Long> files = new TreeMap<>();
+    private File scannedFolder;
+    private long totalBytes;
+
+    ResponseCaptureWriter(Supplier<File> folder, LongSupplier maxBytes, int queueCapacity) {
+        this.folder = folder;
+        this.maxBytes = maxBytes;
+        this.executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                                               new ArrayBlockingQueue<>(queueCapacity),
+                                               r -> {
+                                                   Thread t = new Thread(r, "vicare-response-capture");
+                                                   t.setDaemon(true);
+                                                   return t;
+                                               },
+                                               (r, e) -> dropped.incrementAndGet());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue a response to be written.
+     * @param name Identifies the response, e.g. the endpoint and device.
+     * @param content The response body
+     */
+    void capture(String name, String content) {
+        Instant timestamp = Instant.now();
+        int seq = sequence.getAndIncrement() % 1000;
+        executor.execute(() -> write(String.format("%s-%03d-%s%s", TIMESTAMP_FORMAT.format(timestamp), seq, name, SUFFIX),
+                                     content));
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Wait for queued captures to be written, then stop the writer thread.
+     */
+    void dispose() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(String fileName, String content) {
+        File captureFolder = folder.get();
+        if (captureFolder == null) {
+            return;
+        }
+        if (!captureFolder.equals(scannedFolder)) {
+            scan(captureFolder);
+        }
+        File file = new File(captureFolder, fileName);
+        // written under a temporary name so that a capture file is never seen half written, e.g. by replay
+        File partFile = new File(captureFolder, fileName + PART_SUFFIX);
+        try {
+            try (OutputStream os = new GZIPOutputStream(new FileOutputStream(partFile))) {
+                os.write(content.getBytes(StandardCharsets.UTF_8));
+            }
+            Files.move(partFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Unable to write to capture file {}: {}", file, e.getMessage());
+            partFile.delete();
+            return;
+        }
+        files.put(fileName, file.length());
+        totalBytes += file.length();
+        while (totalBytes > maxBytes.getAsLong() && files.size() > 1) {
+            Map.Entry<String, Long> oldest = files.pollFirstEntry();
+            totalBytes -= oldest.getValue();
+            File oldestFile = new File(captureFolder, oldest.getKey());
+            if (!oldestFile.delete()) {
+                logger.debug("Unable to delete capture file {}", oldestFile);
+            }
+        }
+    }
+
+    private void scan(File captureFolder) {
+        captureFolder.mkdirs();
+        files.clear();
+        totalBytes = 0;
+        File[] existing = captureFolder.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (existing != null) {
+            for (File f : existing) {
+                files.put(f.getName(), f.length());
+                totalBytes += f.length();
+            }
+        }
+        scannedFolder = captureFolder;
+    }
+}
@@ -0,0 +1,68 @@
+package com.qubular.vicare.internal;
+
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.http.HttpHeader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Requests are sent with {@code Accept-Encoding: gzip} and decompressed here rather than by the HttpClient, so that
+ * the compressed size can be recorded. Clients that still decompress responses themselves are also handled, since
+ * a response that has already been decompressed no longer starts with the gzip header.
+ */
+class ResponseContent {
+    static final String GZIP = "gzip";
+
+    private ResponseContent() {
+    }
+
+    static byte[] decode(ContentResponse response) throws IOException {
+        byte[] content = response.getContent();
+        if (content == null) {
+            return new byte[0];
+        }
+        if (isGzipped(response, content)) {
+            try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(content))) {
+                return is.readAllBytes();
+            }
+        }
+        return content;
+    }
+
+    /**
+     * @return The size of the response body as it was received. When the HttpClient has already decompressed the
+     * body only the {@code Content-Length} header records the compressed size, so without it nothing is reported.
+     */
+    static long wireBytes(ContentResponse response) {
+        byte[] content = response.getContent();
+        if (content == null) {
+            return 0;
+        }
+        if (isGzipped(response, content) ||
+                !GZIP.equalsIgnoreCase(response.getHeaders().get(HttpHeader.CONTENT_ENCODING))) {
+            return content.length;
+        }
+        try {
+            return Math.max(0, response.getHeaders().getLongField(HttpHeader.CONTENT_LENGTH.asString()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static String toString(ContentResponse response, byte[] content) {
+        Charset charset = response.getEncoding() == null ? StandardCharsets.UTF_8 : Charset.forName(response.getEncoding());
+        return new String(content, charset);
+    }
+
+    private static boolean isGzipped(ContentResponse response, byte[] content) {
+        return GZIP.equalsIgnoreCase(response.getHeaders().get(HttpHeader.CONTENT_ENCODING)) &&
+                content.length >= 2 &&
+                content[0] == (byte) (GZIPInputStream.GZIP_MAGIC & 0xff) &&
+                content[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+    }
+}
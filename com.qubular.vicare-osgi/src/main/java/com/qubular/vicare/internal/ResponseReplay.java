@@ -0,0 +1,167 @@
+package com.qubular.vicare.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static java.lang.String.format;
+
+/**
+ * Plays back responses recorded by {@link ResponseCaptureWriter} in place of calls to the API. Each request is
+ * answered with the most recent response recorded for the same endpoint and device at the equivalent point in the
+ * recorded session, which starts when the first request is replayed and runs at a multiple of the recorded speed.
+ * With a speed of 0 timing is ignored and every request for a device is answered with its next recorded response,
+ * looping at the end.
+ */
+class ResponseReplay {
+    private static final Logger logger = LoggerFactory.getLogger(ResponseReplay.class);
+    private static final Pattern CAPTURE_FILE = Pattern.compile("(\\d{8}T\\d{6}\\.\\d{3}Z)-\\d+-(.+)" +
+                                                                    Pattern.quote(ResponseCaptureWriter.SUFFIX));
+    static final String INSTALLATIONS = "installations";
+
+    private final Supplier<File> folder;
+    private final DoubleSupplier speed;
+    private final Clock clock;
+    private volatile Session session;
+
+    private static class Recording {
+        final Instant timestamp;
+        final File file;
+
+        Recording(Instant timestamp, File file) {
+            this.timestamp = timestamp;
+            this.file = file;
+        }
+    }
+
+    private static class Session {
+        final File folder;
+        final double speed;
+        final Instant recordingStart;
+        final Instant replayStart;
+        final Map<String, List<Recording>> recordings;
+        final Map<String, AtomicInteger> positions = new HashMap<>();
+
+        Session(File folder, double speed, Instant recordingStart, Instant replayStart, Map<String, List<Recording>> recordings) {
+            this.folder = folder;
+            this.speed = speed;
+            this.recordingStart = recordingStart;
+            this.replayStart = replayStart;
+            this.recordings = recordings;
+            recordings.keySet().forEach(name -> positions.put(name, new AtomicInteger()));
+        }
+    }
+
+    ResponseReplay(Supplier<File> folder, DoubleSupplier speed, Clock clock) {
+        this.folder = folder;
+        this.speed = speed;
+        this.clock = clock;
+    }
+
+    String getInstallations() throws IOException {
+        return replay(INSTALLATIONS);
+    }
+
+    String getFeatures(long installationId, String gatewaySerial, String deviceId) throws IOException {
+        return replay(featuresName(installationId, gatewaySerial, deviceId));
+    }
+
+    static String featuresName(long installationId, String gatewaySerial, String deviceId) {
+        return format("features-%s-%s-%s", installationId, gatewaySerial, deviceId);
+    }
+
+    private String replay(String name) throws IOException {
+        Session session = currentSession();
+        List<Recording> recordings = session.recordings.get(name);
+        if (recordings == null) {
+            throw new IOException("No recorded responses for " + name + " in " + session.folder);
+        }
+        Recording recording;
+        if (session.speed <= 0) {
+            recording = recordings.get(session.positions.get(name).getAndIncrement() % recordings.size());
+        } else {
+            Duration elapsed = Duration.between(session.replayStart, clock.instant());
+            Instant sessionTime = session.recordingStart.plusNanos((long) (elapsed.toNanos() * session.speed));
+            // find the last recording at or before the session time
+            int low = 0;
+            int high = recordings.size() - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (recordings.get(mid).timestamp.isAfter(sessionTime)) {
+                    high = mid - 1;
+                } else {
+                    low = mid;
+                }
+            }
+            recording = recordings.get(low);
+        }
+        logger.trace("Replaying {} for {}", recording.file, name);
+        try (InputStream is = new GZIPInputStream(new FileInputStream(recording.file))) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private Session currentSession() throws IOException {
+        File replayFolder = folder.get();
+        double replaySpeed = speed.getAsDouble();
+        Session current = session;
+        if (current != null && current.folder.equals(replayFolder) && current.speed == replaySpeed) {
+            return current;
+        }
+        synchronized (this) {
+            current = session;
+            if (current == null || !current.folder.equals(replayFolder) || current.speed != replaySpeed) {
+                current = load(Objects.requireNonNull(replayFolder), replaySpeed);
+                session = current;
+            }
+            return current;
+        }
+    }
+
+    private Session load(File replayFolder, double replaySpeed) throws IOException {
+        File[] files = replayFolder.listFiles();
+        if (files == null) {
+            throw new IOException("Unable to read replay folder " + replayFolder);
+        }
+        Arrays.sort(files);
+        Map<String, List<Recording>> recordings = new HashMap<>();
+        Instant recordingStart = null;
+        for (File file : files) {
+            Matcher matcher = CAPTURE_FILE.matcher(file.getName());
+            if (matcher.matches()) {
+                Instant timestamp = Instant.from(ResponseCaptureWriter.TIMESTAMP_FORMAT.parse(matcher.group(1)));
+                recordings.computeIfAbsent(matcher.group(2), k -> new ArrayList<>())
+                        .add(new Recording(timestamp, file));
+                if (recordingStart == null) {
+                    recordingStart = timestamp;
+                }
+            }
+        }
+        if (recordingStart == null) {
+            throw new IOException("No recorded responses in replay folder " + replayFolder);
+        }
+        logger.info("Replaying {} recorded responses for {} endpoints from {} at {}x speed",
+                    recordings.values().stream().mapToInt(List::size).sum(), recordings.size(), replayFolder, replaySpeed);
+        return new Session(replayFolder, replaySpeed, recordingStart, clock.instant(), recordings);
+    }
+}
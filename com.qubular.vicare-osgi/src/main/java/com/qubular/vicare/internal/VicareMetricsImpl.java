@@ -0,0 +1,212 @@
+package com.qubular.vicare.internal;
+
+import com.qubular.circuitbreaker.CircuitBreaker;
+import com.qubular.vicare.VicareConfiguration;
+import com.qubular.vicare.VicareMetrics;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.qubular.vicare.internal.VicareServiceImpl.RATE_LIMIT_EXCEEDED;
+
+/**
+ * Records the calls made by {@link VicareServiceImpl}. Recording only updates counters so it is cheap enough to
+ * be left on all the time.
+ */
+@Component(service = {VicareMetrics.class, VicareMetricsImpl.class})
+public class VicareMetricsImpl implements VicareMetrics {
+    private final VicareConfiguration config;
+    private final Clock clock;
+    private final Map<Endpoint, EndpointCounters> counters = new EnumMap<>(Endpoint.class);
+    private final LongAdder tokenRefreshes = new LongAdder();
+    private final AtomicReference<Instant> rateLimitReset = new AtomicReference<>();
+    private final AtomicLong lastLatencyNanos = new AtomicLong();
+    private final AtomicReference<DailyCount> callsToday;
+    private volatile List<CircuitBreaker> circuitBreakers = List.of();
+
+    private static class EndpointCounters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder rateLimited = new LongAdder();
+        final AtomicLong lastLatencyNanos = new AtomicLong();
+        final LongAdder totalLatencyNanos = new LongAdder();
+        final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS_MILLIS.length + 1);
+        final LongAdder responseBytes = new LongAdder();
+        final LongAdder wireBytes = new LongAdder();
+        final LongAdder parseNanos = new LongAdder();
+    }
+
+    private static class DailyCount {
+        final LocalDate date;
+        final AtomicLong count = new AtomicLong();
+
+        DailyCount(LocalDate date) {
+            this.date = date;
+        }
+    }
+
+    @Activate
+    public VicareMetricsImpl(@Reference VicareConfiguration config) {
+        this(config, Clock.systemDefaultZone());
+    }
+
+    VicareMetricsImpl(VicareConfiguration config, Clock clock) {
+        this.config = config;
+        this.clock = clock;
+        for (Endpoint endpoint : Endpoint.values()) {
+            counters.put(endpoint, new EndpointCounters());
+        }
+        callsToday = new AtomicReference<>(new DailyCount(LocalDate.now(clock)));
+    }
+
+    /**
+     * Record a completed HTTP exchange.
+     * @param startNanos The {@link System#nanoTime()} at which the request was sent.
+     * @param wireBytes The size of the response body as received.
+     * @param decodedBytes The size of the response body after decompression.
+     */
+    void recordResponse(Endpoint endpoint, long startNanos, ContentResponse response, long wireBytes, int decodedBytes) {
+        EndpointCounters c = recordCall(endpoint, startNanos);
+        c.wireBytes.add(wireBytes);
+        c.responseBytes.add(decodedBytes);
+        if (response.getStatus() == RATE_LIMIT_EXCEEDED) {
+            c.rateLimited.increment();
+        } else if (response.getStatus() >= 400) {
+            c.failures.increment();
+        }
+    }
+
+    /**
+     * Record a request that failed without a response, e.g. a timeout.
+     */
+    void recordFailure(Endpoint endpoint, long startNanos) {
+        recordCall(endpoint, startNanos).failures.increment();
+    }
+
+    void recordParse(Endpoint endpoint, long startNanos) {
+        counters.get(endpoint).parseNanos.add(System.nanoTime() - startNanos);
+    }
+
+    void recordTokenRefresh() {
+        tokenRefreshes.increment();
+    }
+
+    void recordRateLimitReset(Instant limitReset) {
+        rateLimitReset.set(limitReset);
+    }
+
+    void setCircuitBreakers(List<CircuitBreaker> circuitBreakers) {
+        this.circuitBreakers = List.copyOf(circuitBreakers);
+    }
+
+    private EndpointCounters recordCall(Endpoint endpoint, long startNanos) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        EndpointCounters c = counters.get(endpoint);
+        c.calls.increment();
+        c.lastLatencyNanos.set(latencyNanos);
+        c.totalLatencyNanos.add(latencyNanos);
+        c.latencyHistogram.incrementAndGet(bucket(latencyNanos / 1_000_000));
+        if (endpoint != Endpoint.TOKEN) {
+            lastLatencyNanos.set(latencyNanos);
+            currentDay().count.incrementAndGet();
+        }
+        return c;
+    }
+
+    private static int bucket(long latencyMillis) {
+        for (int i = 0; i < LATENCY_BUCKETS_MILLIS.length; ++i) {
+            if (latencyMillis <= LATENCY_BUCKETS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BUCKETS_MILLIS.length;
+    }
+
+    private DailyCount currentDay() {
+        LocalDate today = LocalDate.now(clock);
+        DailyCount current = callsToday.get();
+        if (!current.date.equals(today)) {
+            callsToday.compareAndSet(current, new DailyCount(today));
+            current = callsToday.get();
+        }
+        return current;
+    }
+
+    @Override
+    public EndpointStatistics getStatistics(Endpoint endpoint) {
+        EndpointCounters c = counters.get(endpoint);
+        long[] histogram = new long[c.latencyHistogram.length()];
+        for (int i = 0; i < histogram.length; ++i) {
+            histogram[i] = c.latencyHistogram.get(i);
+        }
+        return new EndpointStatistics(c.calls.sum(),
+                                      c.failures.sum(),
+                                      c.rateLimited.sum(),
+                                      Duration.ofNanos(c.lastLatencyNanos.get()),
+                                      Duration.ofNanos(c.totalLatencyNanos.sum()),
+                                      histogram,
+                                      c.responseBytes.sum(),
+                                      Duration.ofNanos(c.parseNanos.sum()),
+                                      c.wireBytes.sum());
+    }
+
+    @Override
+    public long getCallsToday() {
+        return currentDay().count.get();
+    }
+
+    @Override
+    public long getRemainingDailyBudget() {
+        if (getRateLimitReset().isPresent()) {
+            return 0;
+        }
+        return Math.max(0, config.getDailyApiCallLimit() - getCallsToday());
+    }
+
+    @Override
+    public long getRateLimitedCount() {
+        return counters.values().stream().mapToLong(c -> c.rateLimited.sum()).sum();
+    }
+
+    @Override
+    public long getTokenRefreshCount() {
+        return tokenRefreshes.sum();
+    }
+
+    @Override
+    public Optional<Instant> getRateLimitReset() {
+        Instant reset = rateLimitReset.get();
+        if (reset != null && !clock.instant().isBefore(reset)) {
+            rateLimitReset.compareAndSet(reset, null);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(reset);
+    }
+
+    @Override
+    public Duration getLastLatency() {
+        return Duration.ofNanos(lastLatencyNanos.get());
+    }
+
+    @Override
+    public List<CircuitBreaker.Status> getCircuitBreakers() {
+        return circuitBreakers.stream()
+                .map(CircuitBreaker::getStatus)
+                .collect(Collectors.toList());
+    }
+}
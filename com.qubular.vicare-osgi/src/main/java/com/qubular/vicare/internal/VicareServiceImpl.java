@@ -1,6 +1,8 @@
 package com.qubular.vicare.internal;
 
 import com.google.gson.*;
+import com.qubular.circuitbreaker.CircuitBreaker;
+import com.qubular.circuitbreaker.CircuitBreakerOpenException;
 import com.qubular.vicare.*;
 import com.qubular.vicare.internal.oauth.AccessGrantResponse;
 import com.qubular.vicare.internal.servlet.VicareServlet;
@@ -29,18 +31,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.ServletException;
-import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -62,8 +64,15 @@ public class VicareServiceImpl implements VicareService {
     private final TokenStore tokenStore;
     private final VicareConfiguration config;
     private final VicareServlet vicareServlet;
+    private final InstallationsCache installationsCache;
+    private final VicareMetricsImpl metrics;
+    private final ResponseCaptureWriter responseCaptureWriter;
+    private final ResponseReplay responseReplay;
+    private final CircuitBreaker iotCircuitBreaker = new CircuitBreaker("Viessmann IoT API");
+    private final CircuitBreaker accessServerCircuitBreaker = new CircuitBreaker("Viessmann access server");
 
     private static final String EMPTY_RESPONSE = "{ \"data\": [] }";
+    private static final int RESPONSE_CAPTURE_QUEUE_CAPACITY = 64;
 
     @Activate
     public VicareServiceImpl(
@@ -71,11 +80,21 @@ public class VicareServiceImpl implements VicareService {
             @Reference HttpService httpService,
             @Reference ChallengeStore<?> challengeStore,
             @Reference HttpClientProvider httpClientProvider,
-            @Reference TokenStore tokenStore) {
+            @Reference TokenStore tokenStore,
+            @Reference VicareMetricsImpl metrics) {
         this.httpService = httpService;
+        this.metrics = metrics;
         this.httpClientProvider = httpClientProvider;
         this.tokenStore = tokenStore;
         this.config = configuration;
+        this.installationsCache = new InstallationsCache(config::getInstallationsCacheTtl);
+        this.responseCaptureWriter = new ResponseCaptureWriter(config::getResponseCaptureFolder,
+                                                               config::getResponseCaptureMaxBytes,
+                                                               RESPONSE_CAPTURE_QUEUE_CAPACITY);
+        this.responseReplay = new ResponseReplay(config::getResponseReplayFolder,
+                                                 config::getResponseReplaySpeed,
+                                                 Clock.systemUTC());
+        metrics.setCircuitBreakers(List.of(iotCircuitBreaker, accessServerCircuitBreaker));
         logger.info("Activating Viessmann API Service");
         try {
             vicareServlet = new VicareServlet(this, challengeStore, tokenStore, httpClientProvider, config);
@@ -90,6 +109,7 @@ public class VicareServiceImpl implements VicareService {
     public void deactivate() {
         logger.info("Deactivating Viessmann API Service");
         httpService.unregister(VicareServlet.CONTEXT_PATH);
+        responseCaptureWriter.dispose();
     }
 
     private static class InstallationsResponse {
@@ -124,32 +144,44 @@ public class VicareServiceImpl implements VicareService {
     @Override
     public List<Installation> getInstallations() throws AuthenticationException, IOException {
         logger.trace("Fetching installations.");
+        if (config.isResponseReplayEnabled()) {
+            return apiGson().fromJson(responseReplay.getInstallations(), InstallationsResponse.class).data;
+        }
         TokenStore.AccessToken accessToken = getValidAccessToken()
                 .orElseThrow(()-> new AuthenticationException("No access token for Viessmann API"));
+        return installationsCache.get(accessToken.token + "@" + accessToken.expiry,
+                                      () -> fetchInstallations(accessToken));
+    }
 
+    private List<Installation> fetchInstallations(TokenStore.AccessToken accessToken) throws IOException {
+        long start = System.nanoTime();
         try {
             URI endpoint = URI.create(config.getIOTServerURI()).resolve("equipment/installations?includeGateways=true");
             logger.debug("Querying {}", endpoint);
             HttpClient httpClient = httpClientProvider.getHttpClient();
-            ContentResponse iotApiResponse = httpClient
-                    .newRequest(endpoint)
+            iotCircuitBreaker.acquire();
+            ContentResponse iotApiResponse = apiRequest(httpClient.newRequest(endpoint), VicareMetrics.Endpoint.INSTALLATIONS)
                     .header(HttpHeader.AUTHORIZATION, "Bearer " + accessToken.token)
                     .method(HttpMethod.GET)
                     .send();
+            String responseContent = recordResponse(VicareMetrics.Endpoint.INSTALLATIONS, start, iotApiResponse);
             if (iotApiResponse.getStatus() == SC_OK) {
-                maybeCaptureResponse(iotApiResponse.getContentAsString(), "installationsResponseCapture.json");
-                InstallationsResponse installations = apiGson().fromJson(iotApiResponse.getContentAsString(), InstallationsResponse.class);
+                maybeCaptureResponse(responseContent, ResponseReplay.INSTALLATIONS);
+                long parseStart = System.nanoTime();
+                InstallationsResponse installations = apiGson().fromJson(responseContent, InstallationsResponse.class);
+                metrics.recordParse(VicareMetrics.Endpoint.INSTALLATIONS, parseStart);
                 maybeInjectInstallations(installations);
                 return installations.data;
             } else {
                 throw new IOException("Unable to fetch installations, server returned " + iotApiResponse.getStatus());
             }
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            recordFailure(VicareMetrics.Endpoint.INSTALLATIONS, start);
             throw new IOException("Unable to fetch installations.", e);
         }
     }
 
-    private Gson apiGson() {
+    private static Gson apiGson() {
         return new GsonBuilder()
                 .setFieldNamingPolicy(FieldNamingPolicy.IDENTITY)
                 .registerTypeAdapter(Instant.class, new InstantDeserializer())
@@ -172,16 +204,21 @@ public class VicareServiceImpl implements VicareService {
                     fields.put("grant_type", "refresh_token");
                     fields.put("client_id", config.getClientId());
                     fields.put("refresh_token", refreshToken);
+                    metrics.recordTokenRefresh();
+                    long start = System.nanoTime();
                     try {
-                        ContentResponse response = httpClientProvider.getHttpClient()
-                                .POST(config.getAccessServerURI())
+                        accessServerCircuitBreaker.acquire();
+                        ContentResponse response = apiRequest(httpClientProvider.getHttpClient()
+                                                                      .POST(config.getAccessServerURI()),
+                                                              VicareMetrics.Endpoint.TOKEN)
                                 .content(new FormContentProvider(fields))
                                 .accept("application/json")
                                 .send();
+                        String responseContent = recordResponse(VicareMetrics.Endpoint.TOKEN, start, response);
                         if (response.getStatus() == 200) {
                             Gson gson = new GsonBuilder().setFieldNamingPolicy(
                                     FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES).create();
-                            AccessGrantResponse accessGrantResponse = gson.fromJson(response.getContentAsString(),
+                            AccessGrantResponse accessGrantResponse = gson.fromJson(responseContent,
                                                                                     AccessGrantResponse.class);
                             return of(tokenStore.storeAccessToken(accessGrantResponse.accessToken,
                                                                   Instant.now().plusSeconds(
@@ -190,7 +227,12 @@ public class VicareServiceImpl implements VicareService {
                             logger.warn("Unable to refresh, access server sent {}", response.getStatus());
                             throw new AuthenticationException("Unable to refresh access token");
                         }
+                    } catch (CircuitBreakerOpenException e) {
+                        throw new AuthenticationException("Unable to refresh access token: " + e.getMessage(), e);
+                    } catch (IOException e) {
+                        throw new AuthenticationException("Unable to refresh access token", e);
                     } catch (InterruptedException | TimeoutException | ExecutionException e) {
+                        recordFailure(VicareMetrics.Endpoint.TOKEN, start);
                         throw new AuthenticationException("Unable to refresh access token", e);
                     }
                 }
@@ -206,24 +248,35 @@ public class VicareServiceImpl implements VicareService {
     @Override
     public List<Feature> getFeatures(long installationId, String gatewaySerial, String deviceId) throws AuthenticationException, IOException {
         logger.trace("Fetching features for {}/{}", gatewaySerial, deviceId);
+        if (config.isResponseReplayEnabled()) {
+            long parseStart = System.nanoTime();
+            List<Feature> features = extractFeatures(responseReplay.getFeatures(installationId, gatewaySerial, deviceId));
+            metrics.recordParse(VicareMetrics.Endpoint.FEATURES, parseStart);
+            return features;
+        }
         TokenStore.AccessToken accessToken = getValidAccessToken()
                 .orElseThrow(()-> new AuthenticationException("No access token for Viessmann API"));
 
         URI endpoint = URI.create(config.getIOTServerURI())
                 .resolve(format("equipment/installations/%s/gateways/%s/devices/%s/features", installationId, gatewaySerial, deviceId));
 
+        long start = System.nanoTime();
         try {
             String responseContent = maybeInjectFeatureResponse(installationId, gatewaySerial);
             if (responseContent == null) {
-                ContentResponse contentResponse = httpClientProvider.getHttpClient()
-                        .newRequest(endpoint)
+                iotCircuitBreaker.acquire();
+                ContentResponse contentResponse = apiRequest(httpClientProvider.getHttpClient().newRequest(endpoint),
+                                                             VicareMetrics.Endpoint.FEATURES)
                         .header(HttpHeader.AUTHORIZATION, "Bearer " + accessToken.token)
                         .method(HttpMethod.GET)
                         .send();
-                responseContent = contentResponse.getContentAsString();
-                maybeCaptureResponse(responseContent, "responseCapture.json");
+                responseContent = recordResponse(VicareMetrics.Endpoint.FEATURES, start, contentResponse);
                 if (contentResponse.getStatus() == SC_OK) {
-                    return extractFeatures(responseContent);
+                    maybeCaptureResponse(responseContent, ResponseReplay.featuresName(installationId, gatewaySerial, deviceId));
+                    long parseStart = System.nanoTime();
+                    List<Feature> features = extractFeatures(responseContent);
+                    metrics.recordParse(VicareMetrics.Endpoint.FEATURES, parseStart);
+                    return features;
                 } else {
                     String msg = "";
                     try {
@@ -234,7 +287,10 @@ public class VicareServiceImpl implements VicareService {
                                                 errorResponse.message,
                                                 errorResponse.errorType);
                             if (contentResponse.getStatus() == RATE_LIMIT_EXCEEDED && errorResponse.extendedPayload != null) {
-                                logger.warn("Rate limit expires at %s", Instant.ofEpochMilli(errorResponse.extendedPayload.limitReset));
+                                Instant limitReset = Instant.ofEpochMilli(errorResponse.extendedPayload.limitReset);
+                                metrics.recordRateLimitReset(limitReset);
+                                iotCircuitBreaker.openUntil(limitReset);
+                                logger.warn("Rate limit expires at {}", limitReset);
                             }
                             logger.warn(msg);
                             throw new IOException(msg);
@@ -249,6 +305,7 @@ public class VicareServiceImpl implements VicareService {
             }
 
         } catch (InterruptedException | TimeoutException | ExecutionException e) {
+            recordFailure(VicareMetrics.Endpoint.FEATURES, start);
             logger.warn("Unable to request features from IoT API", e);
             throw new IOException("Unable to request features from IoT API", e);
         }
@@ -257,12 +314,17 @@ public class VicareServiceImpl implements VicareService {
     @Override
     public void sendCommand(URI uri, Map<String, Object> params) throws AuthenticationException, IOException, CommandFailureException {
         logger.trace("Sending command {}, params {}", uri, params);
+        if (config.isResponseReplayEnabled()) {
+            logger.debug("Not sending command {} while replaying responses", uri);
+            return;
+        }
         TokenStore.AccessToken accessToken = getValidAccessToken()
                 .orElseThrow(()-> new AuthenticationException("No access token for Viessmann API"));
 
+        long start = System.nanoTime();
         try {
-            Request request = httpClientProvider.getHttpClient()
-                    .newRequest(uri)
+            Request request = apiRequest(httpClientProvider.getHttpClient().newRequest(uri),
+                                         VicareMetrics.Endpoint.COMMAND)
                     .header(HttpHeader.AUTHORIZATION, "Bearer " + accessToken.token)
                     .header(HttpHeader.CONTENT_TYPE, "application/json")
                     .accept("application/json")
@@ -275,15 +337,17 @@ public class VicareServiceImpl implements VicareService {
                     body.addProperty(name, (Number) value);
                 }
             });
+            iotCircuitBreaker.acquire();
             ContentResponse contentResponse = request.content(new StringContentProvider(apiGson().toJson(body))).send();
+            String responseContent = recordResponse(VicareMetrics.Endpoint.COMMAND, start, contentResponse);
             if (contentResponse.getStatus() == SC_OK) {
-                CommandResponse commandResponse = apiGson().fromJson(contentResponse.getContentAsString(), CommandResponse.class);
+                CommandResponse commandResponse = apiGson().fromJson(responseContent, CommandResponse.class);
                 if (!commandResponse.data.success) {
                     throw new CommandFailureException(commandResponse.data.message, commandResponse.data.reason);
                 }
             } else {
                 try {
-                    HttpErrorResponse errorResponse = apiGson().fromJson(contentResponse.getContentAsString(), HttpErrorResponse.class);
+                    HttpErrorResponse errorResponse = apiGson().fromJson(responseContent, HttpErrorResponse.class);
                     String msg = format("Failed to send command, server returned %d, %s - %s", contentResponse.getStatus(), errorResponse.errorType, errorResponse.message);
                     logger.warn(msg);
                     throw new IOException(msg);
@@ -294,14 +358,59 @@ public class VicareServiceImpl implements VicareService {
             }
 
         } catch (InterruptedException | TimeoutException | ExecutionException e) {
+            recordFailure(VicareMetrics.Endpoint.COMMAND, start);
             logger.warn("Unable to request features from IoT API", e);
             throw new IOException("Unable to request features from IoT API", e);
         }
     }
 
-    private List<Feature> extractFeatures(String responseContent) {
-                List<Feature> data = apiGson().fromJson(responseContent, FeatureResponse.class).data;
-                return data.stream()
+    @Override
+    public void resetCircuitBreakers() {
+        iotCircuitBreaker.reset();
+        accessServerCircuitBreaker.reset();
+    }
+
+    @Override
+    public void invalidateCaches() {
+        installationsCache.invalidate();
+    }
+
+    private CircuitBreaker circuitBreaker(VicareMetrics.Endpoint endpoint) {
+        return endpoint == VicareMetrics.Endpoint.TOKEN ? accessServerCircuitBreaker : iotCircuitBreaker;
+    }
+
+    private Request apiRequest(Request request, VicareMetrics.Endpoint endpoint) {
+        return request.header(HttpHeader.ACCEPT_ENCODING, ResponseContent.GZIP)
+                .timeout(config.getRequestTimeout(endpoint).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record a response in the metrics and circuit breaker. Server errors and rate limiting count as failures,
+     * other responses show that the API is available.
+     * @return The decompressed response content.
+     */
+    private String recordResponse(VicareMetrics.Endpoint endpoint, long start, ContentResponse response) throws IOException {
+        if (response.getStatus() >= 500 || response.getStatus() == RATE_LIMIT_EXCEEDED) {
+            circuitBreaker(endpoint).recordFailure();
+        } else {
+            circuitBreaker(endpoint).recordSuccess();
+        }
+        byte[] content = ResponseContent.decode(response);
+        metrics.recordResponse(endpoint, start, response, ResponseContent.wireBytes(response), content.length);
+        return ResponseContent.toString(response, content);
+    }
+
+    private void recordFailure(VicareMetrics.Endpoint endpoint, long start) {
+        metrics.recordFailure(endpoint, start);
+        circuitBreaker(endpoint).recordFailure();
+    }
+
+    static List<Feature> extractFeatures(String responseContent) throws IOException {
+                FeatureResponse response = apiGson().fromJson(responseContent, FeatureResponse.class);
+                if (response == null || response.data == null) {
+                    throw new IOException("Response does not contain any feature data");
+                }
+                return response.data.stream()
                         .filter(Objects::nonNull)
                         .collect(Collectors.toList());
     }
@@ -353,29 +462,17 @@ public class VicareServiceImpl implements VicareService {
     }
 
     /**
-     * capture the feature response to a file in order to aid debugging.
+     * capture the response to a file in order to aid debugging. The file is written in the background and the
+     * capture is dropped if the writer cannot keep up.
      * @param responseJson The json response
-     * @param fileName The capture file to create
+     * @param name Identifies the response in the capture file name
      */
-    private void maybeCaptureResponse(String responseJson, String fileName) {
+    private void maybeCaptureResponse(String responseJson, String name) {
         if (config.isResponseCaptureEnabled()) {
-            File responseCaptureFile = getCaptureFile(fileName);
-
-            try (var fos = new FileOutputStream(responseCaptureFile, false)) {
-                fos.write(responseJson.getBytes(StandardCharsets.UTF_8));
-            } catch (IOException e) {
-                logger.warn("Unable to write to capture file {}: {}", responseCaptureFile, e.getMessage());
-            }
+            responseCaptureWriter.capture(name, responseJson);
         }
     }
 
-    private File getCaptureFile(String fileName) {
-        File responseCaptureFolder = config.getResponseCaptureFolder();
-        responseCaptureFolder.mkdirs();
-        File responseCaptureFile = new File(responseCaptureFolder, fileName);
-        return responseCaptureFile;
-    }
-
     private static class InstantDeserializer implements JsonDeserializer<Instant> {
         @Override
         public Instant deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
@@ -384,6 +481,9 @@ public class VicareServiceImpl implements VicareService {
     }
 
     private static class FeatureDeserializer implements JsonDeserializer<Feature> {
+        // commands rarely change, so unchanged command json maps to the previously parsed descriptor; json that
+        // changes (e.g. isExecutable flips) is dropped when the interner fills up and is cleared
+        private static final Interner<JsonObject, Optional<CommandDescriptor>> COMMANDS = new Interner<>(1024);
 
         @Override
         public Feature deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
@@ -392,7 +492,7 @@ public class VicareServiceImpl implements VicareService {
                 return null;
             }
 
-            String featureName = jsonObject.get("feature").getAsString();
+            String featureName = Interner.name(jsonObject.get("feature").getAsString());
             JsonObject properties = jsonObject.getAsJsonObject("properties");
             JsonObject commands = jsonObject.getAsJsonObject("commands");
             if (properties != null) {
@@ -412,7 +512,7 @@ public class VicareServiceImpl implements VicareService {
                                                             "value",
                                                             commandDescriptors,
                                                             dimensionalValueFromUnitValue(value),
-                                                            new StatusValue(status),
+                                                            StatusValue.valueOf(status),
                                                             null);
                         } else {
                             return new NumericSensorFeature(featureName,
@@ -465,14 +565,14 @@ public class VicareServiceImpl implements VicareService {
                 featureName.contains(".consumption.")) {
                     Map<String, Value> arrayProperties = properties.entrySet().stream()
                             .filter(e -> TYPE_ARRAY.equals(e.getValue().getAsJsonObject().get("type").getAsString()))
-                            .collect(toMap(Map.Entry::getKey, e -> {
+                            .collect(toMap(e -> Interner.name(e.getKey()), e -> {
                                 JsonObject property = e.getValue().getAsJsonObject();
                                 JsonArray jsonArray = property.get("value").getAsJsonArray();
                                 double[] values = new double[jsonArray.size()];
                                 for (int i = 0; i < jsonArray.size(); ++i) {
                                     values[i] = jsonArray.get(i).getAsDouble();
                                 }
-                                Unit unit = new Unit(property.get("unit").getAsString());
+                                Unit unit = Unit.valueOf(property.get("unit").getAsString());
                                 return new ArrayValue(unit, values);
                             }));
 
@@ -492,7 +592,7 @@ public class VicareServiceImpl implements VicareService {
                     .filter(e -> e.getValue().isJsonObject())
                     .map(e -> Map.entry(e.getKey(), e.getValue().getAsJsonObject()))
                     .filter(e -> Set.of(TYPE_STRING, TYPE_BOOLEAN, TYPE_NUMBER).contains(e.getValue().get("type").getAsString()))
-                    .collect(Collectors.toMap(Map.Entry::getKey,
+                    .collect(Collectors.toMap(e -> Interner.name(e.getKey()),
                                               e -> {
                                                   JsonObject propObject = e.getValue().getAsJsonObject();
                                                   switch (propObject.get("type").getAsString()) {
@@ -502,7 +602,7 @@ public class VicareServiceImpl implements VicareService {
                                                           return BooleanValue.valueOf(
                                                                   propObject.get("value").getAsBoolean());
                                                       case TYPE_NUMBER:
-                                                          return new DimensionalValue(new Unit(propObject.get("unit").getAsString()), propObject.get("value").getAsDouble());
+                                                          return new DimensionalValue(Unit.valueOf(propObject.get("unit").getAsString()), propObject.get("value").getAsDouble());
                                                       default:
                                                           throw new IllegalStateException(
                                                                   "Unsupported property type " + propObject.get(
@@ -513,24 +613,24 @@ public class VicareServiceImpl implements VicareService {
 
         private static List<CommandDescriptor> generateCommands(JsonObject commands) {
             return commands.entrySet().stream()
-                    .map(e -> generateCommand(e.getKey(), e.getValue().getAsJsonObject()))
-                    .filter(Objects::nonNull)
+                    .map(e -> COMMANDS.intern(e.getValue().getAsJsonObject(), c -> ofNullable(generateCommand(c))))
+                    .flatMap(Optional::stream)
                     .collect(Collectors.toList());
         }
 
-        private static CommandDescriptor generateCommand(String key, JsonObject value) {
-            String name = value.get("name").getAsString();
+        private static CommandDescriptor generateCommand(JsonObject value) {
+            String name = Interner.name(value.get("name").getAsString());
             boolean executable = value.get("isExecutable").getAsBoolean();
             URI uri = URI.create(value.get("uri").getAsString());
             List<ParamDescriptor> params = value.get("params").getAsJsonObject().entrySet().stream()
-                    .map(e -> generateParam(e.getKey(), e.getValue().getAsJsonObject()))
+                    .map(e -> generateParam(Interner.name(e.getKey()), e.getValue().getAsJsonObject()))
                     .collect(Collectors.toList());
 
             if (params.contains(null)) {
                 // Don't support the command if we don't understand the parameters.
                 return null;
             }
-            return new CommandDescriptor(name, executable, params, uri);
+            return new CommandDescriptor(name, executable, Collections.unmodifiableList(params), uri);
         }
 
         private static ParamDescriptor generateParam(String name, JsonObject jsonObject) {
@@ -541,8 +641,9 @@ public class VicareServiceImpl implements VicareService {
                     if (constraints.has("enum")) {
                         Set<String> enumValues = stream(constraints.getAsJsonArray("enum").spliterator(), false)
                                 .map(JsonElement::getAsString)
+                                .map(Interner::name)
                                 .collect(Collectors.toCollection(LinkedHashSet::new));
-                        return new EnumParamDescriptor(jsonObject.get("required").getAsBoolean(), name, enumValues);
+                        return new EnumParamDescriptor(jsonObject.get("required").getAsBoolean(), name, Collections.unmodifiableSet(enumValues));
                     } else {
                         return new StringParamDescriptor(jsonObject.get("required").getAsBoolean(), name);
                     }
@@ -570,6 +671,6 @@ public class VicareServiceImpl implements VicareService {
     private static DimensionalValue dimensionalValueFromUnitValue(JsonObject prop) {
         String unit = prop.get("unit").getAsString();
         double numberValue = prop.get("value").getAsDouble();
-        return new DimensionalValue(new Unit(unit), numberValue);
+        return new DimensionalValue(Unit.valueOf(unit), numberValue);
     }
 }
@@ -144,6 +144,7 @@ public class VicareServlet extends HttpServlet {
                                     logger.debug("Got access token, expiry in {}", accessGrantResponse.expiresIn);
                                     try {
                                         tokenStore.storeAccessToken(accessGrantResponse.accessToken, Instant.now().plusSeconds(accessGrantResponse.expiresIn));
+                                        vicareService.invalidateCaches();
                                         req.getSession().setAttribute(SESSION_ATTR_ACCESS_TOKEN, accessGrantResponse.accessToken);
                                         if (accessGrantResponse.refreshToken != null) {
                                             logger.debug("Got refresh token");
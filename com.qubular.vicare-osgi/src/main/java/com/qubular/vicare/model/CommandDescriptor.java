@@ -4,7 +4,7 @@ import java.net.URI;
 import java.util.List;
 
 public class CommandDescriptor {
-    private String name;
+    private final String name;
     private final boolean executable;
     private final List<ParamDescriptor> params;
     private final URI uri;
@@ -0,0 +1,49 @@
+package com.qubular.vicare.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Canonical instances of small immutable values that recur on every poll, so that repeated responses share the same
+ * instances. The number of canonical instances is bounded; once the limit is reached the cache is cleared and
+ * refills with the values that still recur, so values that stop recurring don't pin the cache.
+ * @param <K> The key the value is created from
+ * @param <V> The value
+ */
+public class Interner<K, V> {
+    private static final Interner<String, String> NAMES = new Interner<>(4096);
+
+    private final int maxSize;
+    private final ConcurrentHashMap<K, V> canonical = new ConcurrentHashMap<>();
+
+    public Interner(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return The canonical value for the key, created with the factory if there isn't one.
+     */
+    public V intern(K key, Function<? super K, ? extends V> factory) {
+        V value = canonical.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = factory.apply(key);
+        if (canonical.size() >= maxSize) {
+            canonical.clear();
+        }
+        V existing = canonical.putIfAbsent(key, value);
+        return existing == null ? value : existing;
+    }
+
+    public int size() {
+        return canonical.size();
+    }
+
+    /**
+     * @return The canonical instance of a feature, property, command or parameter name.
+     */
+    public static String name(String name) {
+        return name == null ? null : NAMES.intern(name, Function.identity());
+    }
+}
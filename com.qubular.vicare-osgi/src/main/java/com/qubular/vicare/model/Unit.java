@@ -3,9 +3,10 @@ package com.qubular.vicare.model;
 import java.util.Objects;
 
 public class Unit {
-    public static final Unit CELSIUS = new Unit("celsius");
-    public static final Unit KILOWATT_HOUR = new Unit("kilowattHour");
-    public static final Unit LITER = new Unit("liter");
+    private static final Interner<String, Unit> UNITS = new Interner<>(256);
+    public static final Unit CELSIUS = valueOf("celsius");
+    public static final Unit KILOWATT_HOUR = valueOf("kilowattHour");
+    public static final Unit LITER = valueOf("liter");
 
     private final String name;
 
@@ -13,6 +14,13 @@ public class Unit {
         this.name = name;
     }
 
+    /**
+     * @return The canonical instance of the unit.
+     */
+    public static Unit valueOf(String name) {
+        return UNITS.intern(name, Unit::new);
+    }
+
     public String getName() {
         return name;
     }
@@ -45,7 +45,7 @@ public class StatusSensorFeature extends Feature {
         if (status instanceof StatusValue) {
             return (StatusValue) status;
         } else if (status instanceof StringValue) {
-            return status == null ? StatusValue.NA : new StatusValue(((StringValue)status).getValue());
+            return status == null ? StatusValue.NA : StatusValue.valueOf(((StringValue)status).getValue());
         }
         return StatusValue.NA;
     }
@@ -1,13 +1,15 @@
 package com.qubular.vicare.model.values;
 
+import com.qubular.vicare.model.Interner;
 import com.qubular.vicare.model.Value;
 
 import java.util.Objects;
 
 public class StatusValue extends Value {
-    public static final StatusValue NA = new StatusValue("N/A");
-    public static final StatusValue ON = new StatusValue("on");
-    public static final StatusValue OFF = new StatusValue("off");
+    private static final Interner<String, StatusValue> STATUSES = new Interner<>(256);
+    public static final StatusValue NA = valueOf("N/A");
+    public static final StatusValue ON = valueOf("on");
+    public static final StatusValue OFF = valueOf("off");
 
     private final String name;
 
@@ -15,6 +17,13 @@ public class StatusValue extends Value {
         this.name = name;
     }
 
+    /**
+     * @return The canonical instance of the status.
+     */
+    public static StatusValue valueOf(String name) {
+        return STATUSES.intern(name, StatusValue::new);
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,102 @@
+package com.qubular.vicare.test;
+
+import com.qubular.circuitbreaker.CircuitBreaker;
+import com.qubular.circuitbreaker.CircuitBreakerOpenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(10);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(60);
+    private MutableClock clock;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2022-10-01T00:00:00Z"));
+        circuitBreaker = new CircuitBreaker("test", 2, INITIAL_BACKOFF, MAX_BACKOFF, clock, new Random(1));
+    }
+
+    private void fail(int times) throws CircuitBreakerOpenException {
+        for (int i = 0; i < times; ++i) {
+            circuitBreaker.acquire();
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    private Duration backoff() {
+        return Duration.between(clock.instant, circuitBreaker.getStatus().retryAt);
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() throws Exception {
+        fail(1);
+        circuitBreaker.acquire();
+        circuitBreaker.recordSuccess();
+        fail(1);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        fail(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(CircuitBreakerOpenException.class, () -> circuitBreaker.acquire());
+        assertEquals(1, circuitBreaker.getStatus().rejectedCalls);
+    }
+
+    @Test
+    public void halfOpenAllowsOneTrialCall() throws Exception {
+        fail(2);
+        clock.instant = circuitBreaker.getStatus().retryAt;
+
+        circuitBreaker.acquire();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertThrows(CircuitBreakerOpenException.class, () -> circuitBreaker.acquire());
+        circuitBreaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.acquire();
+    }
+
+    @Test
+    public void backoffDoublesWithJitterUpToMaximum() throws Exception {
+        fail(2);
+        Duration expected = INITIAL_BACKOFF;
+        for (int i = 0; i < 5; ++i) {
+            Duration backoff = backoff();
+            assertTrue(backoff.compareTo(expected.dividedBy(2)) >= 0, backoff.toString());
+            assertTrue(backoff.compareTo(expected) <= 0, backoff.toString());
+            // failed trial call
+            clock.instant = circuitBreaker.getStatus().retryAt;
+            fail(1);
+            expected = expected.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : expected.multipliedBy(2);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void opensUntilRateLimitResets() throws Exception {
+        Instant limitReset = clock.instant.plus(Duration.ofMinutes(10));
+
+        circuitBreaker.openUntil(limitReset);
+
+        assertThrows(CircuitBreakerOpenException.class, () -> circuitBreaker.acquire());
+        clock.instant = limitReset;
+        circuitBreaker.acquire();
+    }
+
+    @Test
+    public void resetCloses() throws Exception {
+        fail(2);
+
+        circuitBreaker.reset();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.acquire();
+    }
+}
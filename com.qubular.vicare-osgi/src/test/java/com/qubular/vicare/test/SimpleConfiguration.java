@@ -3,12 +3,18 @@ package com.qubular.vicare.test;
 import com.qubular.vicare.VicareConfiguration;
 import org.osgi.service.component.annotations.Component;
 
+import java.io.File;
+
 @Component(service = VicareConfiguration.class)
 public class SimpleConfiguration implements VicareConfiguration {
 
     private String clientId;
     private String accessServerUri = DEFAULT_ACCESS_SERVER_URI;
     private String iotServerUri = DEFAULT_IOT_SERVER_URI;
+    private File responseCaptureFolder;
+    private long responseCaptureMaxBytes = VicareConfiguration.super.getResponseCaptureMaxBytes();
+    private File responseReplayFolder;
+    private double responseReplaySpeed = VicareConfiguration.super.getResponseReplaySpeed();
 
     public void setClientId(String clientId) {
         this.clientId = clientId;
@@ -22,6 +28,22 @@ public class SimpleConfiguration implements VicareConfiguration {
         this.iotServerUri = iotServerUri;
     }
 
+    public void setResponseCaptureFolder(File responseCaptureFolder) {
+        this.responseCaptureFolder = responseCaptureFolder;
+    }
+
+    public void setResponseCaptureMaxBytes(long responseCaptureMaxBytes) {
+        this.responseCaptureMaxBytes = responseCaptureMaxBytes;
+    }
+
+    public void setResponseReplayFolder(File responseReplayFolder) {
+        this.responseReplayFolder = responseReplayFolder;
+    }
+
+    public void setResponseReplaySpeed(double responseReplaySpeed) {
+        this.responseReplaySpeed = responseReplaySpeed;
+    }
+
     @Override
     public String getClientId() {
         return clientId;
@@ -36,4 +58,24 @@ public class SimpleConfiguration implements VicareConfiguration {
     public String getIOTServerURI() {
         return iotServerUri;
     }
+
+    @Override
+    public File getResponseCaptureFolder() {
+        return responseCaptureFolder;
+    }
+
+    @Override
+    public long getResponseCaptureMaxBytes() {
+        return responseCaptureMaxBytes;
+    }
+
+    @Override
+    public File getResponseReplayFolder() {
+        return responseReplayFolder;
+    }
+
+    @Override
+    public double getResponseReplaySpeed() {
+        return responseReplaySpeed;
+    }
 }
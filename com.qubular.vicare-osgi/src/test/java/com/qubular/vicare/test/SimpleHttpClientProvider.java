@@ -5,6 +5,7 @@ import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 
 @Component(service = HttpClientProvider.class)
 public class SimpleHttpClientProvider implements HttpClientProvider {
@@ -15,11 +16,18 @@ public class SimpleHttpClientProvider implements HttpClientProvider {
         this.httpClient = new HttpClient(new SslContextFactory.Client());
         try {
             this.httpClient.start();
+            // as with the binding's dedicated client, leave gzip to VicareServiceImpl so compressed sizes are recorded
+            this.httpClient.getContentDecoderFactories().clear();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Deactivate
+    public void deactivate() throws Exception {
+        httpClient.stop();
+    }
+
     @Override
     public HttpClient getHttpClient() {
         return httpClient;
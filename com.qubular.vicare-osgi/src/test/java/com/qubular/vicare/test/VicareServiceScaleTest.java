@@ -0,0 +1,168 @@
+package com.qubular.vicare.test;
+
+import com.qubular.circuitbreaker.CircuitBreakerOpenException;
+import com.qubular.vicare.TokenStore;
+import com.qubular.vicare.VicareConfiguration;
+import com.qubular.vicare.VicareService;
+import com.qubular.vicare.model.Device;
+import com.qubular.vicare.model.Gateway;
+import com.qubular.vicare.model.Installation;
+import com.qubular.vicare.simulator.ViessmannApiSimulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.http.HttpService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fetches the features of hundreds of simulated devices through {@link VicareService} from a fixed size pool and fails
+ * if the fetch cycle time, the rate of parsed features, the retained heap or the thread count exceed their budgets.
+ * This covers the service, the parser and the HTTP client, not the bridge handler's poll pipeline or channel updates.
+ * Only runs with the scale profile of the tester, e.g.
+ * <pre>mvn install -Pscale -pl com.qubular.vicare.tester -am</pre>
+ */
+@EnabledIf("scaleTest")
+public class VicareServiceScaleTest {
+    private static final Logger logger = LoggerFactory.getLogger(VicareServiceScaleTest.class);
+    private static final String PREFIX = "com.qubular.vicare.tester.scale.";
+
+    private BundleContext bundleContext;
+    private SimpleConfiguration configuration;
+    private SimpleTokenStore tokenStore;
+    private VicareService vicareService;
+    private ViessmannApiSimulator simulator;
+
+    static boolean scaleTest() {
+        return Boolean.getBoolean("com.qubular.vicare.tester.scale");
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.getInteger(PREFIX + name, defaultValue);
+    }
+
+    private <T> T getService(Class<T> clazz) {
+        return bundleContext.getService(bundleContext.getServiceReference(clazz));
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        bundleContext = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
+        configuration = (SimpleConfiguration) getService(VicareConfiguration.class);
+        tokenStore = (SimpleTokenStore) getService(TokenStore.class);
+        vicareService = getService(VicareService.class);
+        simulator = ViessmannApiSimulator.builder()
+                .installations(intProperty("installations", 30))
+                .gatewaysPerInstallation(1)
+                .devicesPerGateway(intProperty("devicesPerGateway", 10))
+                .latency(Duration.ofMillis(intProperty("minLatencyMillis", 20)),
+                         Duration.ofMillis(intProperty("maxLatencyMillis", 80)))
+                .errorRate(intProperty("errorRatePercent", 1) / 100.0)
+                .build();
+        simulator.register(getService(HttpService.class), URI.create("http://localhost:9000"));
+        configuration.setClientId("myClientId");
+        configuration.setIOTServerURI(simulator.getIotServerUri().toString());
+        configuration.setAccessServerURI(simulator.getAccessServerUri().toString());
+        tokenStore.storeRefreshToken(simulator.grantAccess().getRefreshToken());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        simulator.unregister();
+        tokenStore.reset();
+        vicareService.resetCircuitBreakers();
+    }
+
+    @Test
+    public void fetchingFeaturesStaysWithinBudget() throws Exception {
+        int cycles = intProperty("cycles", 5);
+        int maxConcurrentRequests = intProperty("maxConcurrentRequests", 4);
+        Duration cycleTimeBudget = Duration.ofMillis(intProperty("cycleTimeBudgetMillis", 10000));
+        int minFeaturesPerSecond = intProperty("minFeaturesPerSecond", 2000);
+        long heapBudget = intProperty("heapBudgetMegabytes", 128) * 1024L * 1024L;
+        int threadBudget = intProperty("threadBudget", 150);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        AtomicLong parsedFeatures = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        // once injected errors open a device's circuit breaker its fetches are rejected without a request
+        AtomicLong rejections = new AtomicLong();
+        List<Callable<Void>> polls = new ArrayList<>();
+        for (Installation installation : vicareService.getInstallations()) {
+            for (Gateway gateway : installation.getGateways()) {
+                for (Device device : gateway.getDevices()) {
+                    polls.add(() -> {
+                        try {
+                            parsedFeatures.addAndGet(vicareService.getFeatures(installation.getId(), gateway.getSerial(), device.getId()).size());
+                        } catch (CircuitBreakerOpenException e) {
+                            rejections.incrementAndGet();
+                        } catch (IOException e) {
+                            failures.incrementAndGet();
+                        }
+                        return null;
+                    });
+                }
+            }
+        }
+        assertEquals(simulator.getDeviceCount(), polls.size());
+
+        threads.resetPeakThreadCount();
+        ExecutorService pollers = Executors.newFixedThreadPool(maxConcurrentRequests);
+        Duration maxCycleTime = Duration.ZERO;
+        Duration totalTime = Duration.ZERO;
+        try {
+            for (int cycle = 0; cycle < cycles; ++cycle) {
+                Instant start = Instant.now();
+                for (Future<Void> poll : pollers.invokeAll(polls)) {
+                    poll.get();
+                }
+                Duration cycleTime = Duration.between(start, Instant.now());
+                logger.info("Fetch cycle {} of {} devices took {}ms", cycle, polls.size(), cycleTime.toMillis());
+                maxCycleTime = cycleTime.compareTo(maxCycleTime) > 0 ? cycleTime : maxCycleTime;
+                totalTime = totalTime.plus(cycleTime);
+            }
+        } finally {
+            pollers.shutdown();
+        }
+
+        System.gc();
+        long heapAfterGc = memory.getHeapMemoryUsage().getUsed();
+        int peakThreads = threads.getPeakThreadCount();
+        double featuresPerSecond = parsedFeatures.get() * 1000.0 / Math.max(1, totalTime.toMillis());
+        logger.info("Scale test: {} devices, max cycle {}ms, {} features/s, {} failed fetches, {} rejected fetches, heap after GC {}MB, peak threads {}, {}",
+                    polls.size(), maxCycleTime.toMillis(), (long) featuresPerSecond, failures.get(),
+                    rejections.get(), heapAfterGc / (1024 * 1024), peakThreads, simulator.getStatistics());
+
+        assertTrue(maxCycleTime.compareTo(cycleTimeBudget) <= 0,
+                   "Fetch cycle took " + maxCycleTime.toMillis() + "ms, budget " + cycleTimeBudget.toMillis() + "ms");
+        assertTrue(featuresPerSecond >= minFeaturesPerSecond,
+                   "Parsed " + (long) featuresPerSecond + " features/s, budget " + minFeaturesPerSecond);
+        assertTrue(heapAfterGc <= heapBudget,
+                   "Heap after GC " + heapAfterGc / (1024 * 1024) + "MB, budget " + heapBudget / (1024 * 1024) + "MB");
+        assertTrue(peakThreads <= threadBudget, "Peak threads " + peakThreads + ", budget " + threadBudget);
+        assertTrue(failures.get() <= simulator.getStatistics().getInjectedErrors(),
+                   "Unexpected fetch failures " + failures.get());
+    }
+}
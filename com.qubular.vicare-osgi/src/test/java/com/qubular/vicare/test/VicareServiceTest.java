@@ -44,6 +44,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.regex.Matcher;
@@ -100,6 +101,7 @@ public class VicareServiceTest {
         }
         servlets.clear();
         tokenStore.reset();
+        vicareService.resetCircuitBreakers();
     }
 
     private void registerServlet(String path, Servlet servlet) throws ServletException, NamespaceException {
@@ -332,6 +334,40 @@ public class VicareServiceTest {
         assertEquals("heating", device.getDeviceType());
     }
 
+    @Test
+    @DisabledIf("realConnection")
+    public void getInstallationsIsCachedUntilTokenChangesOrInvalidated() throws Exception {
+        tokenStore.storeAccessToken("mytoken", Instant.now().plus(1, ChronoUnit.DAYS));
+        AtomicInteger requestCount = new AtomicInteger();
+        Servlet iotServlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                requestCount.incrementAndGet();
+                String jsonResponse = new String(getClass().getResourceAsStream("installationsResponse.json").readAllBytes(), StandardCharsets.UTF_8);
+                resp.setContentType("application/json");
+                resp.setStatus(200);
+                try (ServletOutputStream outputStream = resp.getOutputStream()) {
+                    outputStream.print(jsonResponse);
+                }
+            }
+        };
+        registerServlet("/iot", iotServlet);
+
+        List<Installation> installations = vicareService.getInstallations();
+        assertEquals(installations, vicareService.getInstallations());
+        assertThrows(UnsupportedOperationException.class, installations::clear);
+        httpClient.GET("http://localhost:9000/vicare/setup");
+        assertEquals(1, requestCount.get());
+
+        tokenStore.storeAccessToken("mynewtoken", Instant.now().plus(1, ChronoUnit.DAYS));
+        vicareService.getInstallations();
+        assertEquals(2, requestCount.get());
+
+        vicareService.invalidateCaches();
+        vicareService.getInstallations();
+        assertEquals(3, requestCount.get());
+    }
+
     @Test
     @DisabledIf("realConnection")
     public void supports_heating_boiler_serial() throws ServletException, NamespaceException, AuthenticationException, IOException {
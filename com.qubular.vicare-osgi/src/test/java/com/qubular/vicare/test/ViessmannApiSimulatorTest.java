@@ -0,0 +1,475 @@
+package com.qubular.vicare.test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.qubular.circuitbreaker.CircuitBreaker;
+import com.qubular.circuitbreaker.CircuitBreakerOpenException;
+import com.qubular.vicare.HttpClientProvider;
+import com.qubular.vicare.TokenStore;
+import com.qubular.vicare.VicareConfiguration;
+import com.qubular.vicare.VicareMetrics;
+import com.qubular.vicare.VicareService;
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.Gateway;
+import com.qubular.vicare.model.Installation;
+import com.qubular.vicare.model.Interner;
+import com.qubular.vicare.model.Unit;
+import com.qubular.vicare.model.features.NumericSensorFeature;
+import com.qubular.vicare.model.values.StatusValue;
+import com.qubular.vicare.simulator.ViessmannApiSimulator;
+import org.eclipse.jetty.client.GZIPContentDecoder;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.http.HttpHeader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIf;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.http.HttpService;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledIf("realConnection")
+public class ViessmannApiSimulatorTest {
+    private static final URI BASE_URI = URI.create("http://localhost:9000");
+    private BundleContext bundleContext;
+    private HttpService httpService;
+    private SimpleConfiguration configuration;
+    private SimpleTokenStore tokenStore;
+    private VicareService vicareService;
+    private ViessmannApiSimulator simulator;
+
+    static boolean realConnection() {
+        return VicareServiceTest.realConnection();
+    }
+
+    private <T> T getService(Class<T> clazz) {
+        return bundleContext.getService(bundleContext.getServiceReference(clazz));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        bundleContext = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
+        httpService = getService(HttpService.class);
+        configuration = (SimpleConfiguration) getService(VicareConfiguration.class);
+        tokenStore = (SimpleTokenStore) getService(TokenStore.class);
+        vicareService = getService(VicareService.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (simulator != null) {
+            simulator.unregister();
+        }
+        tokenStore.reset();
+        vicareService.resetCircuitBreakers();
+        configuration.setResponseCaptureFolder(null);
+        configuration.setResponseCaptureMaxBytes(10 * 1024 * 1024);
+        configuration.setResponseReplayFolder(null);
+        configuration.setResponseReplaySpeed(1.0);
+    }
+
+    private void start(ViessmannApiSimulator.Builder builder) throws Exception {
+        simulator = builder.build();
+        simulator.register(httpService, BASE_URI);
+        configuration.setClientId("myClientId");
+        configuration.setIOTServerURI(simulator.getIotServerUri().toString());
+        configuration.setAccessServerURI(simulator.getAccessServerUri().toString());
+        tokenStore.storeRefreshToken(simulator.grantAccess().getRefreshToken());
+    }
+
+    @Test
+    public void servesConfiguredTopology() throws Exception {
+        start(ViessmannApiSimulator.builder()
+                      .installations(3)
+                      .gatewaysPerInstallation(2)
+                      .devicesPerGateway(4));
+
+        List<Installation> installations = vicareService.getInstallations();
+
+        assertEquals(3, installations.size());
+        assertEquals(24, installations.stream()
+                .flatMap(i -> i.getGateways().stream())
+                .mapToInt(g -> g.getDevices().size())
+                .sum());
+        Installation installation = installations.get(2);
+        Gateway gateway = installation.getGateways().get(1);
+        List<Feature> features = vicareService.getFeatures(installation.getId(), gateway.getSerial(),
+                                                           gateway.getDevices().get(3).getId());
+        assertTrue(features.stream().anyMatch(f -> "heating.dhw.sensors.temperature.hotWaterStorage".equals(f.getName())));
+        assertEquals(1, simulator.getStatistics().getFeatureRequests());
+    }
+
+    @Test
+    public void refreshesShortLivedAccessTokens() throws Exception {
+        start(ViessmannApiSimulator.builder()
+                      .accessTokenLifetime(Duration.ofSeconds(30)));
+
+        vicareService.getInstallations();
+        vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0");
+
+        // the service refreshes when the token expires within a minute, so every request needs a new token
+        assertEquals(3, simulator.getStatistics().getTokensIssued());
+        assertEquals(0, simulator.getStatistics().getUnauthorized());
+    }
+
+    @Test
+    public void rejectsExpiredAccessTokens() throws Exception {
+        start(ViessmannApiSimulator.builder());
+        vicareService.getInstallations();
+
+        simulator.expireAccessTokens();
+
+        assertThrows(IOException.class,
+                     () -> vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0"));
+        assertEquals(1, simulator.getStatistics().getUnauthorized());
+    }
+
+    @Test
+    public void rateLimitsWithLimitReset() throws Exception {
+        start(ViessmannApiSimulator.builder()
+                      .quota("ViCare ten minutes rate limit", 3, Duration.ofMinutes(10)));
+        ViessmannApiSimulator.AccessGrant grant = simulator.grantAccess();
+        HttpClient httpClient = new HttpClient();
+        httpClient.start();
+        try {
+            URI featuresUri = simulator.getIotServerUri()
+                    .resolve("equipment/installations/1000000/gateways/7633107000000000/devices/0/features");
+            for (int i = 0; i < 3; ++i) {
+                assertEquals(200, httpClient.newRequest(featuresUri)
+                        .header(HttpHeader.AUTHORIZATION, "Bearer " + grant.getAccessToken())
+                        .send()
+                        .getStatus());
+            }
+            ContentResponse response = httpClient.newRequest(featuresUri)
+                    .header(HttpHeader.AUTHORIZATION, "Bearer " + grant.getAccessToken())
+                    .send();
+
+            assertEquals(429, response.getStatus());
+            JsonObject error = JsonParser.parseString(response.getContentAsString()).getAsJsonObject();
+            assertEquals("RATE_LIMIT_EXCEEDED", error.get("errorType").getAsString());
+            Instant limitReset = Instant.ofEpochMilli(error.getAsJsonObject("extendedPayload").get("limitReset").getAsLong());
+            assertTrue(limitReset.isAfter(Instant.now().plus(Duration.ofMinutes(9))), limitReset.toString());
+            assertThrows(IOException.class, () -> vicareService.getInstallations());
+            assertEquals(2, simulator.getStatistics().getRateLimited());
+        } finally {
+            httpClient.stop();
+        }
+    }
+
+    @Test
+    public void recordsMetrics() throws Exception {
+        VicareMetrics metrics = getService(VicareMetrics.class);
+        VicareMetrics.EndpointStatistics featuresBefore = metrics.getStatistics(VicareMetrics.Endpoint.FEATURES);
+        long callsTodayBefore = metrics.getCallsToday();
+        long rateLimitedBefore = metrics.getRateLimitedCount();
+        long tokenRefreshesBefore = metrics.getTokenRefreshCount();
+        start(ViessmannApiSimulator.builder()
+                      .quota("ViCare ten minutes rate limit", 2, Duration.ofMinutes(10)));
+
+        vicareService.getInstallations();
+        vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0");
+        assertThrows(IOException.class,
+                     () -> vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0"));
+
+        VicareMetrics.EndpointStatistics features = metrics.getStatistics(VicareMetrics.Endpoint.FEATURES);
+        assertEquals(2, features.calls - featuresBefore.calls);
+        assertEquals(1, features.rateLimited - featuresBefore.rateLimited);
+        assertTrue(features.responseBytes - featuresBefore.responseBytes > 10000);
+        long wireBytes = features.wireBytes - featuresBefore.wireBytes;
+        assertTrue(wireBytes > 0 && wireBytes < (features.responseBytes - featuresBefore.responseBytes) / 2,
+                   String.valueOf(wireBytes));
+        assertTrue(features.totalParseTime.compareTo(featuresBefore.totalParseTime) > 0);
+        assertEquals(2, Arrays.stream(features.latencyHistogram).sum() - Arrays.stream(featuresBefore.latencyHistogram).sum());
+        assertEquals(3, metrics.getCallsToday() - callsTodayBefore);
+        assertEquals(1, metrics.getRateLimitedCount() - rateLimitedBefore);
+        assertEquals(1, metrics.getTokenRefreshCount() - tokenRefreshesBefore);
+        assertTrue(metrics.getRateLimitReset().isPresent());
+        assertEquals(0, metrics.getRemainingDailyBudget());
+    }
+
+    @Test
+    public void doesNotCountDecompressedBytesAsWireBytes() throws Exception {
+        VicareMetrics metrics = getService(VicareMetrics.class);
+        HttpClient httpClient = getService(HttpClientProvider.class).getHttpClient();
+        start(ViessmannApiSimulator.builder());
+        vicareService.getInstallations();
+        VicareMetrics.EndpointStatistics featuresBefore = metrics.getStatistics(VicareMetrics.Endpoint.FEATURES);
+
+        // a shared HttpClient decompresses responses before they reach the service
+        httpClient.getContentDecoderFactories().add(new GZIPContentDecoder.Factory());
+        try {
+            vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0");
+        } finally {
+            httpClient.getContentDecoderFactories().clear();
+        }
+
+        VicareMetrics.EndpointStatistics features = metrics.getStatistics(VicareMetrics.Endpoint.FEATURES);
+        long responseBytes = features.responseBytes - featuresBefore.responseBytes;
+        long wireBytes = features.wireBytes - featuresBefore.wireBytes;
+        assertTrue(responseBytes > 10000);
+        assertTrue(wireBytes < responseBytes / 2, String.valueOf(wireBytes));
+    }
+
+    @Test
+    public void capturesResponsesToRotatingFiles() throws Exception {
+        start(ViessmannApiSimulator.builder()
+                      .devicesPerGateway(2));
+        File captureFolder = Files.createTempDirectory("responseCapture").toFile();
+        configuration.setResponseCaptureFolder(captureFolder);
+
+        vicareService.getInstallations();
+        vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0");
+        vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "1");
+
+        File[] captures = awaitCaptures(captureFolder, 3);
+        assertEquals(3, captures.length);
+        assertTrue(captures[0].getName().endsWith("-installations.json.gz"), captures[0].getName());
+        assertTrue(captures[1].getName().endsWith("-features-1000000-7633107000000000-0.json.gz"), captures[1].getName());
+        try (InputStream is = new GZIPInputStream(new FileInputStream(captures[2]))) {
+            JsonObject features = JsonParser.parseString(new String(is.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+            assertTrue(features.getAsJsonArray("data").size() > 0);
+        }
+
+        configuration.setResponseCaptureMaxBytes(1);
+        vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0");
+
+        captures = awaitCaptures(captureFolder, 1);
+        assertEquals(1, captures.length);
+        assertTrue(captures[0].getName().endsWith("-features-1000000-7633107000000000-0.json.gz"), captures[0].getName());
+    }
+
+    @Test
+    public void replaysCapturedResponses() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2022-10-01T00:00:00Z"));
+        start(ViessmannApiSimulator.builder()
+                      .clock(clock)
+                      .accessTokenLifetime(Duration.ofDays(7)));
+        File captureFolder = Files.createTempDirectory("responseReplay").toFile();
+        configuration.setResponseCaptureFolder(captureFolder);
+        vicareService.getInstallations();
+        double first = hotWaterStorageTemperature();
+        clock.instant = clock.instant.plus(Duration.ofMinutes(15));
+        double second = hotWaterStorageTemperature();
+        assertNotEquals(first, second);
+        File[] captures = awaitCaptures(captureFolder, 3);
+        configuration.setResponseCaptureFolder(null);
+        simulator.unregister();
+        simulator = null;
+        // record the feature responses a minute apart
+        rename(captures[0], "20221001T000000.000Z-000-installations.json.gz");
+        rename(captures[1], "20221001T000000.000Z-001-features-1000000-7633107000000000-0.json.gz");
+        rename(captures[2], "20221001T000100.000Z-002-features-1000000-7633107000000000-0.json.gz");
+
+        configuration.setResponseReplayFolder(captureFolder);
+        configuration.setResponseReplaySpeed(0);
+        assertEquals(ViessmannApiSimulator.FIRST_INSTALLATION_ID, vicareService.getInstallations().get(0).getId());
+        assertEquals(first, hotWaterStorageTemperature());
+        assertEquals(second, hotWaterStorageTemperature());
+        assertEquals(first, hotWaterStorageTemperature());
+        assertThrows(IOException.class,
+                     () -> vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "1"));
+
+        // a minute of the recording takes 100ms
+        configuration.setResponseReplaySpeed(600);
+        assertEquals(first, hotWaterStorageTemperature());
+        Thread.sleep(150);
+        assertEquals(second, hotWaterStorageTemperature());
+        assertEquals(second, hotWaterStorageTemperature());
+    }
+
+    @Test
+    public void doesNotCaptureErrorResponses() throws Exception {
+        start(ViessmannApiSimulator.builder()
+                      .quota("ViCare ten minutes rate limit", 2, Duration.ofMinutes(10)));
+        File captureFolder = Files.createTempDirectory("responseCapture").toFile();
+        configuration.setResponseCaptureFolder(captureFolder);
+
+        vicareService.getInstallations();
+        vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0");
+        assertThrows(IOException.class,
+                     () -> vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0"));
+        simulator.resetQuotas();
+        vicareService.resetCircuitBreakers();
+        vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0");
+
+        File[] captures = awaitCaptures(captureFolder, 3);
+        assertEquals(3, captures.length);
+        for (int i = 1; i < captures.length; ++i) {
+            try (InputStream is = new GZIPInputStream(new FileInputStream(captures[i]))) {
+                JsonObject features = JsonParser.parseString(new String(is.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+                assertTrue(features.has("data"), captures[i].getName());
+            }
+        }
+    }
+
+    @Test
+    public void replayOfCapturedErrorResponseFails() throws Exception {
+        File replayFolder = Files.createTempDirectory("responseReplay").toFile();
+        try (OutputStream os = new GZIPOutputStream(new FileOutputStream(
+                new File(replayFolder, "20221001T000000.000Z-001-features-1000000-7633107000000000-0.json.gz")))) {
+            os.write(("{\"viErrorId\":\"1\",\"statusCode\":429,\"errorType\":\"RATE_LIMIT_EXCEEDED\"," +
+                      "\"message\":\"API calls rate limit has been exceeded.\"}").getBytes(StandardCharsets.UTF_8));
+        }
+
+        configuration.setResponseReplayFolder(replayFolder);
+        configuration.setResponseReplaySpeed(0);
+        assertThrows(IOException.class,
+                     () -> vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0"));
+    }
+
+    private static void rename(File file, String name) {
+        assertTrue(file.renameTo(new File(file.getParentFile(), name)), file.toString());
+    }
+
+    private static File[] awaitCaptures(File captureFolder, int expected) throws InterruptedException {
+        File[] captures = new File[0];
+        for (int i = 0; i < 50; ++i) {
+            captures = captureFolder.listFiles((dir, name) -> name.endsWith(".json.gz"));
+            if (captures != null && captures.length == expected) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        Arrays.sort(captures);
+        return captures;
+    }
+
+    @Test
+    public void repeatedPollsShareCanonicalInstances() throws Exception {
+        start(ViessmannApiSimulator.builder()
+                      .devicesPerGateway(2));
+
+        NumericSensorFeature first = hotWaterStorage("0");
+        NumericSensorFeature second = hotWaterStorage("1");
+
+        assertSame(first.getName(), second.getName());
+        assertSame(Unit.CELSIUS, first.getValue().getUnit());
+        assertSame(first.getValue().getUnit(), second.getValue().getUnit());
+        assertSame(first.getStatus(), second.getStatus());
+        assertSame(StatusValue.valueOf("connected"), first.getStatus());
+    }
+
+    @Test
+    public void internerIsClearedPastItsLimit() {
+        Interner<String, String> interner = new Interner<>(2);
+        String first = interner.intern("first", String::new);
+        String second = interner.intern("second", String::new);
+        assertSame(first, interner.intern("first", String::new));
+
+        String third = interner.intern("third", String::new);
+
+        assertEquals(1, interner.size());
+        assertSame(third, interner.intern("third", String::new));
+        assertNotSame(first, interner.intern("first", String::new));
+        assertEquals(2, interner.size());
+    }
+
+    @Test
+    public void unchangedCommandsAreReused() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2022-10-01T00:00:00Z"));
+        start(ViessmannApiSimulator.builder()
+                      .clock(clock)
+                      .accessTokenLifetime(Duration.ofDays(7)));
+
+        List<Feature> before = vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0");
+        clock.instant = clock.instant.plus(Duration.ofMinutes(15));
+        List<Feature> after = vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0");
+
+        assertEquals(before.size(), after.size());
+        int commands = 0;
+        for (int i = 0; i < before.size(); ++i) {
+            assertEquals(before.get(i).getName(), after.get(i).getName());
+            assertEquals(before.get(i).getCommands().size(), after.get(i).getCommands().size());
+            for (int j = 0; j < before.get(i).getCommands().size(); ++j) {
+                assertSame(before.get(i).getCommands().get(j), after.get(i).getCommands().get(j));
+                ++commands;
+            }
+        }
+        assertTrue(commands > 0);
+    }
+
+    private NumericSensorFeature hotWaterStorage(String deviceId) throws Exception {
+        return vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", deviceId)
+                .stream()
+                .filter(f -> "heating.dhw.sensors.temperature.hotWaterStorage".equals(f.getName()))
+                .map(NumericSensorFeature.class::cast)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    public void injectsServerErrors() throws Exception {
+        start(ViessmannApiSimulator.builder()
+                      .errorRate(1.0));
+
+        assertThrows(IOException.class, () -> vicareService.getInstallations());
+        assertEquals(1, simulator.getStatistics().getInjectedErrors());
+    }
+
+    @Test
+    public void circuitBreakerOpensWhenServerFails() throws Exception {
+        start(ViessmannApiSimulator.builder()
+                      .errorRate(1.0));
+        vicareService.resetCircuitBreakers();
+
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; ++i) {
+            IOException e = assertThrows(IOException.class,
+                                         () -> vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0"));
+            assertFalse(e instanceof CircuitBreakerOpenException);
+        }
+        assertThrows(CircuitBreakerOpenException.class,
+                     () -> vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0"));
+        assertThrows(CircuitBreakerOpenException.class, () -> vicareService.getInstallations());
+
+        assertEquals(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, simulator.getStatistics().getInjectedErrors());
+        CircuitBreaker.Status status = getService(VicareMetrics.class).getCircuitBreakers().stream()
+                .filter(s -> s.name.equals("Viessmann IoT API"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(CircuitBreaker.State.OPEN, status.state);
+        assertEquals(2, status.rejectedCalls);
+        assertTrue(status.retryAt.isAfter(Instant.now()));
+    }
+
+    @Test
+    public void featuresEvolveOverTime() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2022-10-01T00:00:00Z"));
+        start(ViessmannApiSimulator.builder()
+                      .clock(clock)
+                      .accessTokenLifetime(Duration.ofDays(7)));
+
+        double before = hotWaterStorageTemperature();
+        clock.instant = clock.instant.plus(Duration.ofMinutes(15));
+        double after = hotWaterStorageTemperature();
+
+        assertNotEquals(before, after);
+    }
+
+    private double hotWaterStorageTemperature() throws Exception {
+        return vicareService.getFeatures(ViessmannApiSimulator.FIRST_INSTALLATION_ID, "7633107000000000", "0")
+                .stream()
+                .filter(f -> "heating.dhw.sensors.temperature.hotWaterStorage".equals(f.getName()))
+                .map(f -> ((NumericSensorFeature) f).getValue().getValue())
+                .findFirst()
+                .orElseThrow();
+    }
+}
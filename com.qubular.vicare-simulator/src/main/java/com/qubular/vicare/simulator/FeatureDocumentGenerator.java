@@ -0,0 +1,101 @@
+package com.qubular.vicare.simulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Produces feature documents for simulated devices from a recorded template. Sensor readings wander around their
+ * recorded values and consumption and statistics counters increase over time, so that successive polls of the same
+ * device see changing state.
+ */
+class FeatureDocumentGenerator {
+    private static final String TEMPLATE = "deviceFeaturesTemplate.json";
+    private static final Duration SENSOR_PERIOD = Duration.ofHours(1);
+    private static final Duration COUNTER_STEP = Duration.ofMinutes(10);
+
+    private final JsonArray template;
+    private final Instant start;
+
+    FeatureDocumentGenerator(Instant start) {
+        this.start = start;
+        try (InputStream is = FeatureDocumentGenerator.class.getResourceAsStream(TEMPLATE)) {
+            if (is == null) {
+                throw new IllegalStateException("Missing feature template " + TEMPLATE);
+            }
+            template = JsonParser.parseReader(new InputStreamReader(is, StandardCharsets.UTF_8))
+                    .getAsJsonObject()
+                    .getAsJsonArray("data");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param deviceUri The URI of the device, the feature and command URIs are generated relative to this.
+     * @return The feature response document for the device at the given time.
+     */
+    String generate(URI deviceUri, String gatewaySerial, String deviceId, Instant now) {
+        JsonArray data = new JsonArray(template.size());
+        for (JsonElement element : template) {
+            JsonObject feature = element.getAsJsonObject().deepCopy();
+            String featureName = feature.get("feature").getAsString();
+            String featureUri = deviceUri + "/features/" + featureName;
+            feature.addProperty("gatewayId", gatewaySerial);
+            feature.addProperty("deviceId", deviceId);
+            feature.addProperty("uri", featureUri);
+            feature.addProperty("timestamp", now.toString());
+            JsonObject commands = feature.getAsJsonObject("commands");
+            if (commands != null) {
+                for (Map.Entry<String, JsonElement> command : commands.entrySet()) {
+                    command.getValue().getAsJsonObject().addProperty("uri", featureUri + "/commands/" + command.getKey());
+                }
+            }
+            JsonObject properties = feature.getAsJsonObject("properties");
+            if (properties != null) {
+                for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+                    evolve(deviceUri + featureName + property.getKey(), featureName, property.getValue().getAsJsonObject(), now);
+                }
+            }
+            data.add(feature);
+        }
+        JsonObject response = new JsonObject();
+        response.add("data", data);
+        return response.toString();
+    }
+
+    private void evolve(String key, String featureName, JsonObject property, Instant now) {
+        JsonElement type = property.get("type");
+        JsonElement value = property.get("value");
+        if (type == null || !"number".equals(type.getAsString()) || value == null || !value.isJsonPrimitive()) {
+            return;
+        }
+        double recorded = value.getAsDouble();
+        if (featureName.contains(".sensors.") || featureName.endsWith(".modulation")) {
+            double phase = (key.hashCode() & 0xffff) / (double) 0xffff * 2 * Math.PI;
+            double cycle = Duration.between(start, now).toMillis() / (double) SENSOR_PERIOD.toMillis();
+            double amplitude = Math.max(1.0, Math.abs(recorded) * 0.1);
+            property.add("value", new JsonPrimitive(round(recorded + amplitude * Math.sin(2 * Math.PI * cycle + phase))));
+        } else if (featureName.contains(".consumption.") || featureName.endsWith(".statistics")) {
+            long steps = Duration.between(start, now).toMillis() / COUNTER_STEP.toMillis();
+            boolean integral = recorded == Math.rint(recorded) && !featureName.contains(".consumption.");
+            property.add("value", new JsonPrimitive(integral ? (long) recorded + steps : round(recorded + steps * 0.1)));
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,62 @@
+package com.qubular.vicare.simulator;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed window request quotas in the style of the Viessmann API, where each window starts with the first request
+ * made after the previous window has reset.
+ */
+class QuotaTracker {
+    static class Quota {
+        final String name;
+        final int limit;
+        final Duration window;
+        private Instant windowStart;
+        private int count;
+
+        Quota(String name, int limit, Duration window) {
+            this.name = name;
+            this.limit = limit;
+            this.window = window;
+        }
+
+        Instant limitReset() {
+            return windowStart.plus(window);
+        }
+    }
+
+    private final Clock clock;
+    private final List<Quota> quotas = new ArrayList<>();
+
+    QuotaTracker(Clock clock, List<Quota> quotas) {
+        this.clock = clock;
+        this.quotas.addAll(quotas);
+    }
+
+    /**
+     * Count a request against every quota.
+     * @return null if the request is allowed, otherwise the quota that has been exceeded.
+     */
+    synchronized Quota acquire() {
+        Instant now = clock.instant();
+        for (Quota quota : quotas) {
+            if (quota.windowStart == null || !now.isBefore(quota.limitReset())) {
+                quota.windowStart = now;
+                quota.count = 0;
+            }
+            if (quota.count >= quota.limit) {
+                return quota;
+            }
+        }
+        quotas.forEach(q -> q.count++);
+        return null;
+    }
+
+    synchronized void reset() {
+        quotas.forEach(q -> q.windowStart = null);
+    }
+}
@@ -0,0 +1,83 @@
+package com.qubular.vicare.simulator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the requests handled by the simulator.
+ */
+public class SimulatorStatistics {
+    final AtomicLong requests = new AtomicLong();
+    final AtomicLong installationRequests = new AtomicLong();
+    final AtomicLong featureRequests = new AtomicLong();
+    final AtomicLong commandRequests = new AtomicLong();
+    final AtomicLong rateLimited = new AtomicLong();
+    final AtomicLong unauthorized = new AtomicLong();
+    final AtomicLong injectedErrors = new AtomicLong();
+    final AtomicLong tokensIssued = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    void requestStarted() {
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    }
+
+    void requestFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getInstallationRequests() {
+        return installationRequests.get();
+    }
+
+    public long getFeatureRequests() {
+        return featureRequests.get();
+    }
+
+    public long getCommandRequests() {
+        return commandRequests.get();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    public long getUnauthorized() {
+        return unauthorized.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long getTokensIssued() {
+        return tokensIssued.get();
+    }
+
+    /**
+     * @return The largest number of IoT API requests that were being handled at the same time.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SimulatorStatistics{" +
+                "requests=" + requests +
+                ", installationRequests=" + installationRequests +
+                ", featureRequests=" + featureRequests +
+                ", commandRequests=" + commandRequests +
+                ", rateLimited=" + rateLimited +
+                ", unauthorized=" + unauthorized +
+                ", injectedErrors=" + injectedErrors +
+                ", tokensIssued=" + tokensIssued +
+                ", maxInFlight=" + maxInFlight +
+                '}';
+    }
+}
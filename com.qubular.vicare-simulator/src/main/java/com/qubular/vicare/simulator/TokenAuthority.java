@@ -0,0 +1,54 @@
+package com.qubular.vicare.simulator;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues, refreshes and validates the OAuth tokens of the simulated access server.
+ */
+class TokenAuthority {
+    private final Clock clock;
+    private final Duration accessTokenLifetime;
+    private final Map<String, Instant> accessTokens = new ConcurrentHashMap<>();
+    private final Set<String> refreshTokens = ConcurrentHashMap.newKeySet();
+
+    TokenAuthority(Clock clock, Duration accessTokenLifetime) {
+        this.clock = clock;
+        this.accessTokenLifetime = accessTokenLifetime;
+    }
+
+    ViessmannApiSimulator.AccessGrant grant() {
+        String refreshToken = UUID.randomUUID().toString().replace("-", "");
+        refreshTokens.add(refreshToken);
+        return issue(refreshToken);
+    }
+
+    /**
+     * @return A new access token for the refresh token, or null if the refresh token was not issued by us.
+     */
+    ViessmannApiSimulator.AccessGrant refresh(String refreshToken) {
+        return refreshToken != null && refreshTokens.contains(refreshToken) ? issue(refreshToken) : null;
+    }
+
+    boolean isValid(String accessToken) {
+        Instant expiry = accessTokens.get(accessToken);
+        return expiry != null && clock.instant().isBefore(expiry);
+    }
+
+    void expireAccessTokens() {
+        accessTokens.clear();
+    }
+
+    private ViessmannApiSimulator.AccessGrant issue(String refreshToken) {
+        String accessToken = "sim." + UUID.randomUUID();
+        Instant expiry = clock.instant().plus(accessTokenLifetime);
+        accessTokens.put(accessToken, expiry);
+        accessTokens.values().removeIf(e -> !clock.instant().isBefore(e));
+        return new ViessmannApiSimulator.AccessGrant(accessToken, refreshToken, expiry, accessTokenLifetime);
+    }
+}
@@ -0,0 +1,485 @@
+package com.qubular.vicare.simulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.osgi.service.http.HttpService;
+import org.osgi.service.http.NamespaceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.String.format;
+
+/**
+ * Local stand-in for the Viessmann IoT API and its OAuth access server, for exercising polling strategies and
+ * rate limit handling against large numbers of devices.
+ * <p>
+ * The simulator serves a fixed topology of installations, gateways and devices, each of which returns a feature
+ * document that evolves over time. Latency, server errors and request quotas can be configured, and access tokens
+ * expire after a configurable lifetime.
+ * <pre>
+ * ViessmannApiSimulator simulator = ViessmannApiSimulator.builder()
+ *         .installations(10)
+ *         .gatewaysPerInstallation(1)
+ *         .devicesPerGateway(10)
+ *         .latency(Duration.ofMillis(50), Duration.ofMillis(200))
+ *         .errorRate(0.01)
+ *         .quota("ViCare ten minutes rate limit", 120, Duration.ofMinutes(10))
+ *         .build();
+ * simulator.register(httpService, URI.create("http://localhost:9000"));
+ * configuration.setIOTServerURI(simulator.getIotServerUri().toString());
+ * configuration.setAccessServerURI(simulator.getAccessServerUri().toString());
+ * tokenStore.storeRefreshToken(simulator.grantAccess().getRefreshToken());
+ * </pre>
+ */
+public class ViessmannApiSimulator {
+    private static final Logger logger = LoggerFactory.getLogger(ViessmannApiSimulator.class);
+    public static final String DEFAULT_PATH = "/simulator";
+    public static final long FIRST_INSTALLATION_ID = 1000000;
+
+    private static final Pattern PATTERN_INSTALLATIONS = Pattern.compile("(?:/v1)?/equipment/installations/?");
+    private static final Pattern PATTERN_FEATURES = Pattern.compile("(?:/v1)?/equipment/installations/(\\d+)/gateways/([^/]+)/devices/([^/]+)/features/?");
+    private static final Pattern PATTERN_COMMAND = Pattern.compile("(?:/v1)?/equipment/installations/(\\d+)/gateways/([^/]+)/devices/([^/]+)/features/([^/]+)/commands/([^/]+)");
+
+    private final int installations;
+    private final int gatewaysPerInstallation;
+    private final int devicesPerGateway;
+    private final Duration minLatency;
+    private final Duration maxLatency;
+    private final double errorRate;
+    private final String path;
+    private final Clock clock;
+    private final Random random;
+    private final TokenAuthority tokenAuthority;
+    private final QuotaTracker quotaTracker;
+    private final FeatureDocumentGenerator featureGenerator;
+    private final SimulatorStatistics statistics = new SimulatorStatistics();
+    private HttpService httpService;
+    private URI baseUri;
+
+    public static class AccessGrant {
+        private final String accessToken;
+        private final String refreshToken;
+        private final Instant expiry;
+        private final Duration expiresIn;
+
+        AccessGrant(String accessToken, String refreshToken, Instant expiry, Duration expiresIn) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.expiry = expiry;
+            this.expiresIn = expiresIn;
+        }
+
+        public String getAccessToken() {
+            return accessToken;
+        }
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+
+        public Instant getExpiry() {
+            return expiry;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("access_token", accessToken);
+            json.addProperty("refresh_token", refreshToken);
+            json.addProperty("token_type", "Bearer");
+            json.addProperty("expires_in", expiresIn.toSeconds());
+            return json;
+        }
+    }
+
+    public static class Builder {
+        private int installations = 1;
+        private int gatewaysPerInstallation = 1;
+        private int devicesPerGateway = 1;
+        private Duration minLatency = Duration.ZERO;
+        private Duration maxLatency = Duration.ZERO;
+        private double errorRate;
+        private final List<QuotaTracker.Quota> quotas = new ArrayList<>();
+        private Duration accessTokenLifetime = Duration.ofHours(1);
+        private String path = DEFAULT_PATH;
+        private Clock clock = Clock.systemUTC();
+        private long seed = 1;
+
+        private Builder() {
+        }
+
+        public Builder installations(int installations) {
+            this.installations = installations;
+            return this;
+        }
+
+        public Builder gatewaysPerInstallation(int gatewaysPerInstallation) {
+            this.gatewaysPerInstallation = gatewaysPerInstallation;
+            return this;
+        }
+
+        public Builder devicesPerGateway(int devicesPerGateway) {
+            this.devicesPerGateway = devicesPerGateway;
+            return this;
+        }
+
+        /**
+         * Each IoT API request is delayed by a random duration in the given range.
+         */
+        public Builder latency(Duration min, Duration max) {
+            this.minLatency = min;
+            this.maxLatency = max;
+            return this;
+        }
+
+        /**
+         * @param errorRate Fraction of IoT API requests, between 0 and 1, that fail with a server error.
+         */
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Add a request quota, requests in excess of the limit within the window are rejected with 429 until the
+         * window resets. The real API currently allows 120 requests per 10 minutes and 1450 per day.
+         */
+        public Builder quota(String name, int limit, Duration window) {
+            quotas.add(new QuotaTracker.Quota(name, limit, window));
+            return this;
+        }
+
+        public Builder accessTokenLifetime(Duration accessTokenLifetime) {
+            this.accessTokenLifetime = accessTokenLifetime;
+            return this;
+        }
+
+        /**
+         * @param path The servlet path under which the simulator registers, defaults to {@link #DEFAULT_PATH}
+         */
+        public Builder path(String path) {
+            this.path = path;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * @param seed Seed for latency and error injection, so that runs are repeatable.
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public ViessmannApiSimulator build() {
+            return new ViessmannApiSimulator(this);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private ViessmannApiSimulator(Builder builder) {
+        this.installations = builder.installations;
+        this.gatewaysPerInstallation = builder.gatewaysPerInstallation;
+        this.devicesPerGateway = builder.devicesPerGateway;
+        this.minLatency = builder.minLatency;
+        this.maxLatency = builder.maxLatency;
+        this.errorRate = builder.errorRate;
+        this.path = builder.path;
+        this.clock = builder.clock;
+        this.random = new Random(builder.seed);
+        this.tokenAuthority = new TokenAuthority(builder.clock, builder.accessTokenLifetime);
+        this.quotaTracker = new QuotaTracker(builder.clock, builder.quotas);
+        this.featureGenerator = new FeatureDocumentGenerator(builder.clock.instant());
+    }
+
+    /**
+     * Register the simulator servlets.
+     * @param baseUri The externally visible URI of the http service, e.g. http://localhost:9000
+     */
+    public synchronized void register(HttpService httpService, URI baseUri) throws ServletException, NamespaceException {
+        this.httpService = httpService;
+        this.baseUri = baseUri;
+        httpService.registerServlet(path + "/iot", new IotServlet(), new Hashtable<>(), httpService.createDefaultHttpContext());
+        httpService.registerServlet(path + "/token", new TokenServlet(), new Hashtable<>(), httpService.createDefaultHttpContext());
+        logger.info("Simulating {} installations x {} gateways x {} devices at {}", installations,
+                    gatewaysPerInstallation, devicesPerGateway, getIotServerUri());
+    }
+
+    public synchronized void unregister() {
+        if (httpService != null) {
+            httpService.unregister(path + "/iot");
+            httpService.unregister(path + "/token");
+            httpService = null;
+        }
+    }
+
+    public URI getIotServerUri() {
+        return baseUri.resolve(path + "/iot/v1/");
+    }
+
+    public URI getAccessServerUri() {
+        return baseUri.resolve(path + "/token");
+    }
+
+    /**
+     * Issue a new access and refresh token without going through the authorisation code flow.
+     */
+    public AccessGrant grantAccess() {
+        statistics.tokensIssued.incrementAndGet();
+        return tokenAuthority.grant();
+    }
+
+    /**
+     * Invalidate every access token issued so far, clients must refresh before their next request succeeds.
+     */
+    public void expireAccessTokens() {
+        tokenAuthority.expireAccessTokens();
+    }
+
+    public void resetQuotas() {
+        quotaTracker.reset();
+    }
+
+    public SimulatorStatistics getStatistics() {
+        return statistics;
+    }
+
+    public int getDeviceCount() {
+        return installations * gatewaysPerInstallation * devicesPerGateway;
+    }
+
+    static String gatewaySerial(int installation, int gateway) {
+        return format("7633107%09d", installation * 100 + gateway);
+    }
+
+    private boolean exists(long installationId, String gatewaySerial, String deviceId) {
+        int installation = (int) (installationId - FIRST_INSTALLATION_ID);
+        if (installation < 0 || installation >= installations) {
+            return false;
+        }
+        for (int g = 0; g < gatewaysPerInstallation; ++g) {
+            if (gatewaySerial(installation, g).equals(gatewaySerial)) {
+                try {
+                    int device = Integer.parseInt(deviceId);
+                    return device >= 0 && device < devicesPerGateway;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private String installationsDocument() {
+        JsonArray data = new JsonArray();
+        for (int i = 0; i < installations; ++i) {
+            long installationId = FIRST_INSTALLATION_ID + i;
+            JsonArray gateways = new JsonArray();
+            for (int g = 0; g < gatewaysPerInstallation; ++g) {
+                String serial = gatewaySerial(i, g);
+                JsonArray devices = new JsonArray();
+                for (int d = 0; d < devicesPerGateway; ++d) {
+                    JsonObject device = new JsonObject();
+                    device.addProperty("gatewaySerial", serial);
+                    device.addProperty("id", String.valueOf(d));
+                    device.addProperty("boilerSerial", format("77231811%08d", i * 10000 + g * 100 + d));
+                    device.addProperty("modelId", "E3_Vitodens_100_0421");
+                    device.addProperty("status", "Online");
+                    device.addProperty("deviceType", "heating");
+                    devices.add(device);
+                }
+                JsonObject gateway = new JsonObject();
+                gateway.addProperty("serial", serial);
+                gateway.addProperty("version", "502.2144.33.0");
+                gateway.addProperty("firmwareUpdateFailureCounter", 0);
+                gateway.addProperty("lastStatusChangedAt", "2022-07-07T18:54:03.084Z");
+                gateway.addProperty("aggregatedStatus", "WorksProperly");
+                gateway.addProperty("gatewayType", "VitoconnectOpto1");
+                gateway.addProperty("installationId", installationId);
+                gateway.add("devices", devices);
+                gateways.add(gateway);
+            }
+            JsonObject installation = new JsonObject();
+            installation.addProperty("id", installationId);
+            installation.addProperty("description", "Simulated Installation " + i);
+            installation.add("gateways", gateways);
+            installation.addProperty("aggregatedStatus", "WorksProperly");
+            data.add(installation);
+        }
+        JsonObject response = new JsonObject();
+        response.add("data", data);
+        return response.toString();
+    }
+
+    private static void sendJson(HttpServletRequest req, HttpServletResponse resp, int status, String json) throws IOException {
+        resp.setStatus(status);
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            resp.setHeader("Content-Encoding", "gzip");
+            try (OutputStream os = new GZIPOutputStream(resp.getOutputStream())) {
+                os.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+        } else {
+            resp.getWriter().print(json);
+        }
+    }
+
+    private static void sendError(HttpServletRequest req, HttpServletResponse resp, int status, String errorType, String message,
+                                  JsonObject extendedPayload) throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("viErrorId", UUID.randomUUID().toString());
+        error.addProperty("statusCode", status);
+        error.addProperty("errorType", errorType);
+        error.addProperty("message", message);
+        if (extendedPayload != null) {
+            error.add("extendedPayload", extendedPayload);
+        }
+        sendJson(req, resp, status, error.toString());
+    }
+
+    private class IotServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+            handle(req, resp, false);
+        }
+
+        @Override
+        protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+            handle(req, resp, true);
+        }
+
+        private void handle(HttpServletRequest req, HttpServletResponse resp, boolean post) throws IOException {
+            statistics.requestStarted();
+            try {
+                delay();
+                if (!authorised(req)) {
+                    statistics.unauthorized.incrementAndGet();
+                    sendError(req, resp, HttpServletResponse.SC_UNAUTHORIZED, "EXPIRED TOKEN", "Token expired", null);
+                    return;
+                }
+                QuotaTracker.Quota exceeded = quotaTracker.acquire();
+                if (exceeded != null) {
+                    statistics.rateLimited.incrementAndGet();
+                    JsonObject extendedPayload = new JsonObject();
+                    extendedPayload.addProperty("name", exceeded.name);
+                    extendedPayload.addProperty("requestCountLimit", exceeded.limit);
+                    extendedPayload.addProperty("limitReset", exceeded.limitReset().toEpochMilli());
+                    sendError(req, resp, 429, "RATE_LIMIT_EXCEEDED",
+                              "API calls rate limit has been exceeded. Please wait until your limit will renew.",
+                              extendedPayload);
+                    return;
+                }
+                if (errorRate > 0 && random.nextDouble() < errorRate) {
+                    statistics.injectedErrors.incrementAndGet();
+                    sendError(req, resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "INTERNAL_SERVER_ERROR",
+                              "Simulated server error", null);
+                    return;
+                }
+                route(req, resp, post);
+            } finally {
+                statistics.requestFinished();
+            }
+        }
+
+        private void route(HttpServletRequest req, HttpServletResponse resp, boolean post) throws IOException {
+            String pathInfo = req.getPathInfo() == null ? "" : req.getPathInfo();
+            Matcher matcher;
+            if (!post && PATTERN_INSTALLATIONS.matcher(pathInfo).matches()) {
+                statistics.installationRequests.incrementAndGet();
+                sendJson(req, resp, HttpServletResponse.SC_OK, installationsDocument());
+            } else if (!post && (matcher = PATTERN_FEATURES.matcher(pathInfo)).matches()) {
+                long installationId = Long.parseLong(matcher.group(1));
+                String gatewaySerial = matcher.group(2);
+                String deviceId = matcher.group(3);
+                if (!exists(installationId, gatewaySerial, deviceId)) {
+                    sendError(req, resp, HttpServletResponse.SC_NOT_FOUND, "DEVICE_NOT_FOUND", "Device not found", null);
+                    return;
+                }
+                statistics.featureRequests.incrementAndGet();
+                URI deviceUri = getIotServerUri().resolve(
+                        format("equipment/installations/%d/gateways/%s/devices/%s", installationId, gatewaySerial, deviceId));
+                sendJson(req, resp, HttpServletResponse.SC_OK,
+                         featureGenerator.generate(deviceUri, gatewaySerial, deviceId, clock.instant()));
+            } else if (post && (matcher = PATTERN_COMMAND.matcher(pathInfo)).matches()) {
+                if (!exists(Long.parseLong(matcher.group(1)), matcher.group(2), matcher.group(3))) {
+                    sendError(req, resp, HttpServletResponse.SC_NOT_FOUND, "DEVICE_NOT_FOUND", "Device not found", null);
+                    return;
+                }
+                statistics.commandRequests.incrementAndGet();
+                logger.debug("Simulated command {} on {}", matcher.group(5), matcher.group(4));
+                sendJson(req, resp, HttpServletResponse.SC_OK, "{\"data\":{\"success\":true,\"message\":null,\"reason\":\"COMMAND_EXECUTION_SUCCESS\"}}");
+            } else {
+                sendError(req, resp, HttpServletResponse.SC_NOT_FOUND, "NOT_FOUND", "No such resource " + pathInfo, null);
+            }
+        }
+
+        private boolean authorised(HttpServletRequest req) {
+            String authorization = req.getHeader("Authorization");
+            return authorization != null &&
+                    authorization.startsWith("Bearer ") &&
+                    tokenAuthority.isValid(authorization.substring("Bearer ".length()));
+        }
+
+        private void delay() {
+            long min = minLatency.toMillis();
+            long spread = maxLatency.toMillis() - min;
+            long millis = min + (spread > 0 ? (long) (random.nextDouble() * spread) : 0);
+            if (millis > 0) {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private class TokenServlet extends HttpServlet {
+        @Override
+        protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+            String grantType = req.getParameter("grant_type");
+            AccessGrant grant;
+            if ("authorization_code".equals(grantType)) {
+                grant = tokenAuthority.grant();
+            } else if ("refresh_token".equals(grantType)) {
+                grant = tokenAuthority.refresh(req.getParameter("refresh_token"));
+            } else {
+                grant = null;
+            }
+            if (grant == null) {
+                sendJson(req, resp, HttpServletResponse.SC_BAD_REQUEST, "{\"error\":\"invalid_grant\"}");
+            } else {
+                statistics.tokensIssued.incrementAndGet();
+                sendJson(req, resp, HttpServletResponse.SC_OK, grant.toJson().toString());
+            }
+        }
+    }
+}